@@ -0,0 +1,617 @@
+package org.openml.apiconnector.algorithms;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.openml.apiconnector.xml.DataFeature;
+import org.openml.apiconnector.xml.DataFeature.Feature;
+
+/**
+ * Reads the data of an ARFF file (e.g., obtained with datasetGet) into
+ * primitive columns: numeric attributes into a double[] (NaN for missing
+ * values), nominal and string attributes into an int[] of codes (-1 for
+ * missing values) that index a dictionary. The attributes are taken from the
+ * features of the dataset (dataFeatures), date attributes are read as strings.
+ *
+ * The file is read in a single pass, without creating objects per row, and
+ * numbers are parsed without creating strings when they are short enough to
+ * be converted exactly. Dense and sparse rows ({index value, ...}, omitted
+ * values are 0, i.e., the first nominal value, and missing for strings) are
+ * supported, as are quoted values, comments and (ignored) instance weights.
+ * Large files can be read in batches of rows.
+ *
+ * Not thread safe: use a reader per thread.
+ */
+public class ArffReader {
+
+	/**
+	 * The types of columns
+	 */
+	public enum Type {
+		NUMERIC, NOMINAL, STRING
+	}
+
+	/**
+	 * The values of an attribute
+	 */
+	public static class Column {
+		private final String name;
+		private final Type type;
+		private final List<String> dictionary;
+		private double[] values;
+		private int[] codes;
+		private int size;
+
+		private Column(String name, Type type, List<String> dictionary, int capacity) {
+			this.name = name;
+			this.type = type;
+			this.dictionary = dictionary == null ? null : Collections.unmodifiableList(dictionary);
+			if (type == Type.NUMERIC) {
+				values = new double[capacity];
+			} else {
+				codes = new int[capacity];
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		/**
+		 * @return the number of rows
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @return the values of a numeric column (NaN if missing), null for other columns
+		 */
+		public double[] getValues() {
+			return values;
+		}
+
+		/**
+		 * @return the codes of a nominal or string column (index in the dictionary, -1 if missing), null for numeric columns
+		 */
+		public int[] getCodes() {
+			return codes;
+		}
+
+		/**
+		 * @return the values the codes refer to (for nominal columns the declared values), null for numeric columns
+		 */
+		public List<String> getDictionary() {
+			return dictionary;
+		}
+
+		/**
+		 * @param row - the row
+		 * @return whether the value of the row is missing
+		 */
+		public boolean isMissing(int row) {
+			return type == Type.NUMERIC ? Double.isNaN(values[row]) : codes[row] < 0;
+		}
+
+		/**
+		 * @param row - the row
+		 * @return the value of the row as string (as in the file, but without quotes), or null if missing
+		 */
+		public String getString(int row) {
+			if (isMissing(row)) {
+				return null;
+			}
+			return type == Type.NUMERIC ? Double.toString(values[row]) : dictionary.get(codes[row]);
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (values != null && values.length < capacity) {
+				values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+			} else if (codes != null && codes.length < capacity) {
+				codes = Arrays.copyOf(codes, Math.max(capacity, codes.length * 2));
+			}
+		}
+
+		private void trim(int rows) {
+			size = rows;
+			if (values != null && values.length != rows) {
+				values = Arrays.copyOf(values, rows);
+			} else if (codes != null && codes.length != rows) {
+				codes = Arrays.copyOf(codes, rows);
+			}
+		}
+	}
+
+	private static final int BUFFER_SIZE = 65536;
+	private static final int INITIAL_CAPACITY = 1024;
+	// powers of ten that are exact doubles
+	private static final double[] POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final String[] names;
+	private final Type[] types;
+	private final String[][] nominalValues;
+
+	// state of a read
+	private List<List<String>> dictionaries;
+	private List<Map<String, Integer>> lookups;
+	private InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition;
+	private int bufferEnd;
+	private byte[] line = new byte[1024];
+	private int length;
+	private int position;
+	private long lineNumber;
+
+	/**
+	 * @param features - the features of the dataset (e.g., obtained with dataFeatures)
+	 */
+	public ArffReader(DataFeature features) {
+		Feature[] sorted = features.getFeatures().clone();
+		Arrays.sort(sorted, Comparator.comparing(Feature::getIndex));
+		names = new String[sorted.length];
+		types = new Type[sorted.length];
+		nominalValues = new String[sorted.length][];
+		for (int i = 0; i < sorted.length; ++i) {
+			names[i] = sorted[i].getName();
+			String dataType = sorted[i].getDataType() == null ? "" : sorted[i].getDataType().toLowerCase();
+			if (dataType.equals("numeric") || dataType.equals("real") || dataType.equals("integer")) {
+				types[i] = Type.NUMERIC;
+			} else if (dataType.equals("nominal")) {
+				types[i] = Type.NOMINAL;
+				nominalValues[i] = sorted[i].getNominalValues();
+			} else {
+				// string, date
+				types[i] = Type.STRING;
+			}
+		}
+	}
+
+	/**
+	 * Reads all rows of an ARFF file (which may be gzip compressed)
+	 *
+	 * @param arff - the file
+	 * @return the columns, in the order of the features
+	 * @throws IOException - problem reading the file, or a syntax error
+	 */
+	public Column[] read(File arff) throws IOException {
+		List<Column[]> result = new ArrayList<Column[]>(1);
+		try (InputStream is = open(arff)) {
+			read(is, Integer.MAX_VALUE, result::add);
+		}
+		return result.get(0);
+	}
+
+	/**
+	 * Reads the rows of an ARFF stream in batches, such that the file does
+	 * not need to fit in memory. The dictionaries of string columns are
+	 * shared by the batches, i.e., a code means the same in every batch.
+	 *
+	 * @param arff - the ARFF data
+	 * @param batchSize - the (maximum) number of rows of a batch
+	 * @param consumer - receives the columns of each batch (at least one batch, which may be empty)
+	 * @throws IOException - problem reading the stream, or a syntax error
+	 */
+	public void read(InputStream arff, int batchSize, Consumer<Column[]> consumer) throws IOException {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize should be at least 1");
+		}
+		in = arff;
+		bufferPosition = 0;
+		bufferEnd = 0;
+		lineNumber = 0;
+		dictionaries = new ArrayList<List<String>>();
+		lookups = new ArrayList<Map<String, Integer>>();
+		for (int i = 0; i < names.length; ++i) {
+			List<String> dictionary = null;
+			Map<String, Integer> lookup = null;
+			if (types[i] != Type.NUMERIC) {
+				dictionary = new ArrayList<String>();
+				lookup = new HashMap<String, Integer>();
+				if (nominalValues[i] != null) {
+					for (String value : nominalValues[i]) {
+						lookup.put(value, dictionary.size());
+						dictionary.add(value);
+					}
+				}
+			}
+			dictionaries.add(dictionary);
+			lookups.add(lookup);
+		}
+		try {
+			readHeader();
+			int capacity = Math.min(batchSize, INITIAL_CAPACITY);
+			Column[] columns = newColumns(capacity);
+			int rows = 0;
+			boolean emitted = false;
+			while (readLine()) {
+				skipWhitespace();
+				if (position == length || line[position] == '%') {
+					continue;
+				}
+				if (rows == capacity) {
+					capacity = (int) Math.min(batchSize, capacity * 2L);
+					for (Column column : columns) {
+						column.ensureCapacity(capacity);
+					}
+				}
+				if (line[position] == '{') {
+					parseSparseRow(columns, rows);
+				} else {
+					parseDenseRow(columns, rows);
+				}
+				rows += 1;
+				if (rows == batchSize) {
+					emit(columns, rows, consumer);
+					emitted = true;
+					capacity = Math.min(batchSize, INITIAL_CAPACITY);
+					columns = newColumns(capacity);
+					rows = 0;
+				}
+			}
+			if (rows > 0 || !emitted) {
+				emit(columns, rows, consumer);
+			}
+		} finally {
+			in = null;
+		}
+	}
+
+	private static InputStream open(File arff) throws IOException {
+		InputStream is = new BufferedInputStream(new FileInputStream(arff), BUFFER_SIZE);
+		if (Conversion.isGzipped(arff)) {
+			return new GZIPInputStream(is, BUFFER_SIZE);
+		}
+		return is;
+	}
+
+	private Column[] newColumns(int capacity) {
+		Column[] columns = new Column[names.length];
+		for (int i = 0; i < names.length; ++i) {
+			columns[i] = new Column(names[i], types[i], dictionaries.get(i), capacity);
+		}
+		return columns;
+	}
+
+	private static void emit(Column[] columns, int rows, Consumer<Column[]> consumer) {
+		for (Column column : columns) {
+			column.trim(rows);
+		}
+		consumer.accept(columns);
+	}
+
+	// skips the header, checking it declares as many attributes as there are features
+	private void readHeader() throws IOException {
+		int attributes = 0;
+		while (readLine()) {
+			skipWhitespace();
+			if (startsWith("@attribute")) {
+				attributes += 1;
+			} else if (startsWith("@data")) {
+				if (attributes != names.length) {
+					throw new IOException("ARFF header declares " + attributes + " attributes, but there are " + names.length + " features. ");
+				}
+				return;
+			}
+		}
+		throw new IOException("ARFF file has no @data section. ");
+	}
+
+	private boolean startsWith(String keyword) {
+		if (length - position < keyword.length()) {
+			return false;
+		}
+		for (int i = 0; i < keyword.length(); ++i) {
+			if (Character.toLowerCase(line[position + i]) != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void parseDenseRow(Column[] columns, int row) throws IOException {
+		for (int i = 0; i < columns.length; ++i) {
+			if (i > 0) {
+				skipSeparator();
+			}
+			if (position == length) {
+				throw error("expected " + columns.length + " values, found " + i);
+			}
+			parseValue(columns[i], i, row);
+		}
+		skipSeparator();
+		// instance weight, e.g., {0.5}
+		if (position < length && line[position] == '{') {
+			position = length;
+		}
+		if (position < length && line[position] != '%') {
+			throw error("more than " + columns.length + " values");
+		}
+	}
+
+	private void parseSparseRow(Column[] columns, int row) throws IOException {
+		for (int i = 0; i < columns.length; ++i) {
+			if (types[i] == Type.NUMERIC) {
+				columns[i].values[row] = 0;
+			} else {
+				columns[i].codes[row] = types[i] == Type.NOMINAL && !dictionaries.get(i).isEmpty() ? 0 : -1;
+			}
+		}
+		position += 1;
+		skipWhitespace();
+		while (position < length && line[position] != '}') {
+			int index = parseIndex();
+			if (index >= columns.length) {
+				throw error("index " + index + " out of range");
+			}
+			skipWhitespace();
+			if (position == length || line[position] == '}') {
+				throw error("no value for index " + index);
+			}
+			parseValue(columns[index], index, row);
+			skipSeparator();
+		}
+		if (position == length) {
+			throw error("sparse row is not closed");
+		}
+		position += 1;
+		skipSeparator();
+		// instance weight, e.g., {0.5}
+		if (position < length && line[position] == '{') {
+			position = length;
+		}
+		if (position < length && line[position] != '%') {
+			throw error("content after sparse row");
+		}
+	}
+
+	private int parseIndex() throws IOException {
+		int start = position;
+		int index = 0;
+		while (position < length && line[position] >= '0' && line[position] <= '9') {
+			index = index * 10 + (line[position] - '0');
+			position += 1;
+		}
+		if (position == start || position - start > 9) {
+			throw error("invalid index");
+		}
+		return index;
+	}
+
+	private void parseValue(Column column, int index, int row) throws IOException {
+		byte first = line[position];
+		if (first == '\'' || first == '"') {
+			String value = parseQuoted(first);
+			if (column.type == Type.NUMERIC) {
+				column.values[row] = parseDouble(value);
+			} else {
+				column.codes[row] = encode(index, value);
+			}
+			return;
+		}
+		int start = position;
+		while (position < length && !isDelimiter(line[position])) {
+			position += 1;
+		}
+		if (position - start == 1 && first == '?') {
+			if (column.type == Type.NUMERIC) {
+				column.values[row] = Double.NaN;
+			} else {
+				column.codes[row] = -1;
+			}
+		} else if (column.type == Type.NUMERIC) {
+			column.values[row] = parseNumber(start, position);
+		} else {
+			column.codes[row] = encode(index, new String(line, start, position - start, StandardCharsets.UTF_8));
+		}
+	}
+
+	private int encode(int index, String value) throws IOException {
+		Integer code = lookups.get(index).get(value);
+		if (code == null) {
+			if (types[index] == Type.NOMINAL && nominalValues[index] != null) {
+				throw error("value " + value + " is not declared for " + names[index]);
+			}
+			code = dictionaries.get(index).size();
+			dictionaries.get(index).add(value);
+			lookups.get(index).put(value, code);
+		}
+		return code;
+	}
+
+	private String parseQuoted(byte quote) throws IOException {
+		int start = ++position;
+		boolean escaped = false;
+		while (position < length && line[position] != quote) {
+			if (line[position] == '\\') {
+				escaped = true;
+				position += 1;
+			}
+			position += 1;
+		}
+		if (position >= length) {
+			throw error("quote is not closed");
+		}
+		String value = new String(line, start, position - start, StandardCharsets.UTF_8);
+		position += 1;
+		return escaped ? unescape(value) : value;
+	}
+
+	private static String unescape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				switch (next) {
+				case 'n':
+					sb.append('\n');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				default:
+					sb.append(next);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	// parses a number from line[start, end) exactly, without creating a string if possible
+	private double parseNumber(int start, int end) throws IOException {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (line[i] == '-' || line[i] == '+')) {
+			negative = line[i] == '-';
+			i += 1;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean any = false;
+		for (; i < end && line[i] >= '0' && line[i] <= '9'; ++i) {
+			any = true;
+			if (digits < 18) {
+				mantissa = mantissa * 10 + (line[i] - '0');
+				digits += mantissa == 0 ? 0 : 1;
+			} else {
+				exponent += 1;
+			}
+		}
+		if (i < end && line[i] == '.') {
+			for (i += 1; i < end && line[i] >= '0' && line[i] <= '9'; ++i) {
+				any = true;
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (line[i] - '0');
+					digits += mantissa == 0 ? 0 : 1;
+					exponent -= 1;
+				}
+			}
+		}
+		if (any && i < end && (line[i] == 'e' || line[i] == 'E')) {
+			i += 1;
+			boolean negativeExponent = false;
+			if (i < end && (line[i] == '-' || line[i] == '+')) {
+				negativeExponent = line[i] == '-';
+				i += 1;
+			}
+			int value = 0;
+			boolean anyExponent = false;
+			for (; i < end && line[i] >= '0' && line[i] <= '9'; ++i) {
+				anyExponent = true;
+				value = Math.min(value * 10 + (line[i] - '0'), 100000);
+			}
+			any = anyExponent;
+			exponent += negativeExponent ? -value : value;
+		}
+		if (!any || i != end || digits > 15 || exponent < -22 || exponent > 22) {
+			// e.g., many digits, large exponents, NaN, Infinity
+			return parseDouble(new String(line, start, end - start, StandardCharsets.US_ASCII));
+		}
+		// exact: both operands are exact doubles, so the result is correctly rounded
+		double value = exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+		return negative ? -value : value;
+	}
+
+	private double parseDouble(String value) throws IOException {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw error("invalid number " + value);
+		}
+	}
+
+	private static boolean isDelimiter(byte b) {
+		return b == ',' || b == ' ' || b == '\t' || b == '}';
+	}
+
+	private void skipWhitespace() {
+		while (position < length && (line[position] == ' ' || line[position] == '\t')) {
+			position += 1;
+		}
+	}
+
+	private void skipSeparator() {
+		skipWhitespace();
+		if (position < length && line[position] == ',') {
+			position += 1;
+			skipWhitespace();
+		}
+	}
+
+	private IOException error(String message) {
+		return new IOException("Line " + lineNumber + " of ARFF: " + message);
+	}
+
+	// reads the next line into line[0, length), returns false at the end of the stream
+	private boolean readLine() throws IOException {
+		length = 0;
+		position = 0;
+		boolean read = false;
+		while (true) {
+			if (bufferPosition == bufferEnd) {
+				bufferPosition = 0;
+				bufferEnd = Math.max(0, in.read(buffer, 0, buffer.length));
+				if (bufferEnd == 0) {
+					if (read) {
+						lineNumber += 1;
+						stripCarriageReturn();
+					}
+					return read;
+				}
+			}
+			read = true;
+			int start = bufferPosition;
+			while (bufferPosition < bufferEnd && buffer[bufferPosition] != '\n') {
+				bufferPosition += 1;
+			}
+			append(start, bufferPosition - start);
+			if (bufferPosition < bufferEnd) {
+				bufferPosition += 1;
+				lineNumber += 1;
+				stripCarriageReturn();
+				return true;
+			}
+		}
+	}
+
+	private void append(int start, int count) {
+		if (length + count > line.length) {
+			line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+		}
+		System.arraycopy(buffer, start, line, length, count);
+		length += count;
+	}
+
+	private void stripCarriageReturn() {
+		if (length > 0 && line[length - 1] == '\r') {
+			length -= 1;
+		}
+	}
+}
@@ -33,9 +33,11 @@ package org.openml.apiconnector.algorithms;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 
 import javax.xml.XMLConstants;
@@ -116,6 +118,19 @@ public class Conversion {
 		return sb.toString();
 	}
 	
+	/**
+	 * Checks whether a file is gzip compressed, by its header
+	 * 
+	 * @param f - the file
+	 * @return true if the file starts with the gzip magic number
+	 * @throws IOException - IO Problem
+	 */
+	public static boolean isGzipped( File f ) throws IOException {
+		try( InputStream is = new FileInputStream( f ) ) {
+			return is.read() == 0x1f && is.read() == 0x8b;
+		}
+	}
+	
 	public static void log( String status, String action, String message ) {
 		log( status, action, message, System.err );
 	}
@@ -0,0 +1,118 @@
+package org.openml.apiconnector.io;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the number of concurrent requests, and adapts the limit to the
+ * server (additive increase, multiplicative decrease). Every successful
+ * response raises the limit by 1/limit, i.e., by one per round of requests.
+ * A failed response (connection problem, 429, 5xx, or an empty result) or a
+ * slow one halves it, at most once per response time, so that a burst of
+ * failures of requests that were all in flight counts as one signal.
+ *
+ * A response is slow when it took longer than the tolerance times the usual
+ * response time of its endpoint (a moving average), as endpoints differ a
+ * lot in how long they take.
+ */
+public class AdaptiveConcurrencyLimit {
+
+	private static final double BACKOFF = 0.5;
+	private static final double SMOOTHING = 0.1;
+	// the number of responses of an endpoint before its response time is judged
+	private static final int WARMUP = 5;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final Map<String, double[]> latencies = new HashMap<String, double[]>();
+
+	private double limit;
+	private int inFlight;
+	private long lastDecrease;
+
+	/**
+	 * @param initialLimit - the number of concurrent requests to start with
+	 * @param minLimit - the minimum number of concurrent requests
+	 * @param maxLimit - the maximum number of concurrent requests
+	 * @param tolerance - how many times longer than usual a response may take before it is slow
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Limits should satisfy 1 <= min <= max. ");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.lastDecrease = System.nanoTime();
+	}
+
+	/**
+	 * Waits until the number of requests in flight is below the limit
+	 *
+	 * @throws InterruptedIOException - the thread was interrupted while waiting
+	 */
+	public synchronized void acquire() throws InterruptedIOException {
+		while (inFlight >= (int) limit) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the concurrency limit");
+			}
+		}
+		++inFlight;
+	}
+
+	/**
+	 * Reports the outcome of a request that was acquired, and adapts the limit
+	 *
+	 * @param endpoint - the endpoint family of the request (e.g., task)
+	 * @param latency - the time (ns) until the response arrived
+	 * @param failed - whether the request failed because of the server or the connection
+	 */
+	public synchronized void release(String endpoint, long latency, boolean failed) {
+		--inFlight;
+		boolean slow = isSlow(endpoint, latency);
+		if (failed || slow) {
+			long now = System.nanoTime();
+			if (now - lastDecrease > latency) {
+				limit = Math.max(minLimit, limit * BACKOFF);
+				lastDecrease = now;
+			}
+		} else {
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+		notifyAll();
+	}
+
+	// compares the latency to the average of the endpoint, and updates the average
+	private boolean isSlow(String endpoint, long latency) {
+		double[] average = latencies.computeIfAbsent(endpoint, key -> new double[] {latency, 0});
+		boolean slow = average[1] >= WARMUP && latency > tolerance * average[0];
+		average[0] += SMOOTHING * (latency - average[0]);
+		average[1] += 1;
+		return slow;
+	}
+
+	/**
+	 * @return the current number of concurrent requests that is allowed
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * @return the number of requests that are in flight
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "AdaptiveConcurrencyLimit [limit=" + (int) limit + ", inFlight=" + inFlight + "]";
+	}
+}
@@ -0,0 +1,590 @@
+package org.openml.apiconnector.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.core.JVM;
+
+/**
+ * Stores api responses in a compact binary format, that is considerably
+ * faster to read than xml. The format is generic: objects are written field by
+ * field, with the name of every field, so it is tolerant to changes of the
+ * classes. Fields that no longer exist are skipped, new fields keep their
+ * default value and numbers are converted when the type of a field changed.
+ * All strings (including class and field names) are written once and referred
+ * to by index afterwards.
+ *
+ * Layout: the magic bytes "OMLB", a version byte, and the tagged value of the
+ * response.
+ *
+ * Objects are written as trees: responses with cyclic references (or nested
+ * deeper than MAX_DEPTH) can not be stored in this format.
+ *
+ * Only the classes of api responses (org.openml.apiconnector.xml), and the
+ * primitive, boxed and other JDK types the writer emits are read. Files that
+ * name any other class are rejected, so a tampered cache file can not make
+ * the reader instantiate arbitrary classes.
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+	public static final String NAME = "binary";
+	public static final String EXTENSION = ".bin";
+
+	private static final byte[] MAGIC = {'O', 'M', 'L', 'B'};
+	private static final int VERSION = 1;
+	private static final int MAX_DEPTH = 100;
+
+	private static final int TAG_NULL = 0;
+	private static final int TAG_STRING = 1;
+	private static final int TAG_INT = 2;
+	private static final int TAG_LONG = 3;
+	private static final int TAG_DOUBLE = 4;
+	private static final int TAG_TRUE = 5;
+	private static final int TAG_FALSE = 6;
+	private static final int TAG_OBJECT = 7;
+	private static final int TAG_ARRAY = 8;
+	private static final int TAG_LIST = 9;
+	private static final int TAG_MAP = 10;
+	private static final int TAG_FLOAT = 11;
+	private static final int TAG_ENUM = 12;
+	private static final int TAG_URL = 13;
+	private static final int TAG_FILE = 14;
+	private static final int TAG_DATE = 15;
+	private static final int TAG_SHORT = 16;
+	private static final int TAG_BYTE = 17;
+	private static final int TAG_CHAR = 18;
+
+	private static final Map<String, Class<?>> primitives = new HashMap<String, Class<?>>();
+	static {
+		for (Class<?> c : new Class<?>[] {int.class, long.class, double.class, float.class, boolean.class, short.class, byte.class, char.class}) {
+			primitives.put(c.getName(), c);
+		}
+	}
+
+	// the classes of objects (and enums) that are written field by field
+	private static final String RESPONSE_PACKAGE = "org.openml.apiconnector.xml.";
+	// other classes that can be the component type of an array
+	private static final Set<String> jdkClasses = new HashSet<String>();
+	static {
+		for (Class<?> c : new Class<?>[] {Object.class, String.class, Integer.class, Long.class, Double.class, Float.class, Boolean.class,
+										  Short.class, Byte.class, Character.class, URL.class, File.class, Date.class}) {
+			jdkClasses.add(c.getName());
+		}
+	}
+
+	private static final ReflectionProvider reflectionProvider = JVM.newReflectionProvider();
+	private static final Map<Class<?>, Map<String, Field>> fieldCache = new ConcurrentHashMap<Class<?>, Map<String, Field>>();
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public File getLocation(File cachedData) {
+		return new File(cachedData.getPath() + EXTENSION);
+	}
+
+	@Override
+	public void write(OpenmlApiResponse response, OutputStream out) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+		dos.write(MAGIC);
+		dos.writeByte(VERSION);
+		new Writer(dos).writeValue(response);
+		dos.flush();
+	}
+
+	@Override
+	public OpenmlApiResponse read(InputStream in) throws IOException {
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+		byte[] magic = new byte[MAGIC.length];
+		dis.readFully(magic);
+		for (int i = 0; i < MAGIC.length; ++i) {
+			if (magic[i] != MAGIC[i]) {
+				throw new IOException("Not a binary cache file");
+			}
+		}
+		int version = dis.readUnsignedByte();
+		if (version > VERSION) {
+			throw new IOException("Unsupported binary cache version: " + version);
+		}
+		Object result = new Reader(dis).readValue(Object.class);
+		if (!(result instanceof OpenmlApiResponse)) {
+			throw new IOException("Binary cache file does not contain an api response");
+		}
+		return (OpenmlApiResponse) result;
+	}
+
+	/**
+	 * Whether a class can be the component type of an array in this format:
+	 * the classes of api responses, primitive and boxed types, the other JDK
+	 * types the writer emits, and arrays of these.
+	 */
+	private static boolean isAllowedComponent(String name) {
+		int dimensions = 0;
+		while (name.startsWith("[", dimensions)) {
+			++dimensions;
+		}
+		if (dimensions > 0) {
+			String element = name.substring(dimensions);
+			if (element.length() == 1) {
+				return "ZBCSIJFD".contains(element);
+			}
+			if (!element.startsWith("L") || !element.endsWith(";")) {
+				return false;
+			}
+			name = element.substring(1, element.length() - 1);
+		}
+		return primitives.containsKey(name) || jdkClasses.contains(name) || name.startsWith(RESPONSE_PACKAGE);
+	}
+
+	/**
+	 * Returns the fields that are stored, by name: all instance fields of the
+	 * class and its super classes, except for transient and synthetic ones
+	 * (e.g., the reference to the outer object of an inner class).
+	 */
+	private static Map<String, Field> getFields(Class<?> c) {
+		Map<String, Field> fields = fieldCache.get(c);
+		if (fields == null) {
+			fields = new LinkedHashMap<String, Field>();
+			for (Class<?> current = c; current != null && current != Object.class; current = current.getSuperclass()) {
+				for (Field field : current.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic() || fields.containsKey(field.getName())) {
+						continue;
+					}
+					field.setAccessible(true);
+					fields.put(field.getName(), field);
+				}
+			}
+			fields = Collections.unmodifiableMap(fields);
+			fieldCache.put(c, fields);
+		}
+		return fields;
+	}
+
+	private static class Writer {
+		private final DataOutputStream out;
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+		// the objects that are being written, from the response down
+		private final Set<Object> path = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+		private Writer(DataOutputStream out) {
+			this.out = out;
+		}
+
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		}
+
+		private void writeString(String value) throws IOException {
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeVarInt(index);
+			} else {
+				// a new string is announced by the next free index
+				writeVarInt(strings.size());
+				strings.put(value, strings.size());
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		private void writeValue(Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(TAG_NULL);
+			} else if (value instanceof String) {
+				out.writeByte(TAG_STRING);
+				writeString((String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(TAG_INT);
+				int i = (Integer) value;
+				// zigzag encoding, so small negative numbers are small as well
+				writeVarInt((i << 1) ^ (i >> 31));
+			} else if (value instanceof Long) {
+				out.writeByte(TAG_LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Double) {
+				out.writeByte(TAG_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof Boolean) {
+				out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+			} else if (value instanceof Float) {
+				out.writeByte(TAG_FLOAT);
+				out.writeFloat((Float) value);
+			} else if (value instanceof Short) {
+				out.writeByte(TAG_SHORT);
+				out.writeShort((Short) value);
+			} else if (value instanceof Byte) {
+				out.writeByte(TAG_BYTE);
+				out.writeByte((Byte) value);
+			} else if (value instanceof Character) {
+				out.writeByte(TAG_CHAR);
+				out.writeChar((Character) value);
+			} else if (value instanceof Enum) {
+				if (!((Enum<?>) value).getDeclaringClass().getName().startsWith(RESPONSE_PACKAGE)) {
+					throw new IOException("Binary cache format does not support " + value.getClass().getName());
+				}
+				out.writeByte(TAG_ENUM);
+				writeString(((Enum<?>) value).getDeclaringClass().getName());
+				writeString(((Enum<?>) value).name());
+			} else if (value instanceof URL) {
+				out.writeByte(TAG_URL);
+				writeString(value.toString());
+			} else if (value instanceof File) {
+				out.writeByte(TAG_FILE);
+				writeString(((File) value).getPath());
+			} else if (value instanceof Date) {
+				out.writeByte(TAG_DATE);
+				out.writeLong(((Date) value).getTime());
+			} else {
+				if (path.size() >= MAX_DEPTH) {
+					throw new IOException("Binary cache format does not support objects nested deeper than " + MAX_DEPTH);
+				}
+				if (!path.add(value)) {
+					throw new IOException("Binary cache format does not support cyclic references, " + value.getClass().getName() + " contains itself");
+				}
+				writeComposite(value);
+				path.remove(value);
+			}
+		}
+
+		private void writeComposite(Object value) throws IOException {
+			if (value.getClass().isArray()) {
+				if (!isAllowedComponent(value.getClass().getComponentType().getName())) {
+					throw new IOException("Binary cache format does not support " + value.getClass().getName());
+				}
+				out.writeByte(TAG_ARRAY);
+				writeString(value.getClass().getComponentType().getName());
+				int length = Array.getLength(value);
+				writeVarInt(length);
+				for (int i = 0; i < length; ++i) {
+					writeValue(Array.get(value, i));
+				}
+			} else if (value instanceof Collection) {
+				out.writeByte(TAG_LIST);
+				writeVarInt(((Collection<?>) value).size());
+				for (Object item : (Collection<?>) value) {
+					writeValue(item);
+				}
+			} else if (value instanceof Map) {
+				out.writeByte(TAG_MAP);
+				writeVarInt(((Map<?, ?>) value).size());
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+					writeValue(entry.getKey());
+					writeValue(entry.getValue());
+				}
+			} else if (value.getClass().getName().startsWith(RESPONSE_PACKAGE)) {
+				out.writeByte(TAG_OBJECT);
+				writeString(value.getClass().getName());
+				Map<String, Field> fields = getFields(value.getClass());
+				writeVarInt(fields.size());
+				for (Field field : fields.values()) {
+					writeString(field.getName());
+					try {
+						writeValue(field.get(value));
+					} catch (IllegalAccessException e) {
+						throw new IOException(e);
+					}
+				}
+			} else {
+				throw new IOException("Binary cache format does not support " + value.getClass().getName());
+			}
+		}
+	}
+
+	private static class Reader {
+		private final DataInputStream in;
+		private final List<String> strings = new ArrayList<String>();
+		private int depth = 0;
+
+		private Reader(DataInputStream in) {
+			this.in = in;
+		}
+
+		private int readVarInt() throws IOException {
+			int result = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = in.readUnsignedByte();
+				result |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+			}
+			throw new IOException("Malformed binary cache file");
+		}
+
+		private String readString() throws IOException {
+			int index = readVarInt();
+			if (index < strings.size()) {
+				return strings.get(index);
+			}
+			if (index != strings.size()) {
+				throw new IOException("Malformed binary cache file");
+			}
+			byte[] bytes = new byte[readVarInt()];
+			in.readFully(bytes);
+			String value = new String(bytes, StandardCharsets.UTF_8);
+			strings.add(value);
+			return value;
+		}
+
+		/**
+		 * Reads the name of a class and loads it, without initializing it. The
+		 * class has to be an api response class (object, enum), or an allowed
+		 * array component type.
+		 *
+		 * @return the class, or null if an allowed class no longer exists
+		 * @throws IOException - the class is not allowed
+		 */
+		private Class<?> readClass(boolean component) throws IOException {
+			String name = readString();
+			Class<?> c = primitives.get(name);
+			if (c != null && component) {
+				return c;
+			}
+			if (component ? !isAllowedComponent(name) : !name.startsWith(RESPONSE_PACKAGE)) {
+				throw new IOException("Binary cache file refers to a class that is not allowed: " + name);
+			}
+			try {
+				return Class.forName(name, false, BinaryCacheCodec.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Reads a value. The expected type is used to create fitting
+		 * collections and to convert numbers. Values of which the class no
+		 * longer exists are read and returned as null.
+		 */
+		private Object readValue(Class<?> expected) throws IOException {
+			int tag = in.readUnsignedByte();
+			boolean nested = tag == TAG_ARRAY || tag == TAG_LIST || tag == TAG_MAP || tag == TAG_OBJECT;
+			if (nested && ++depth > MAX_DEPTH) {
+				throw new IOException("Malformed binary cache file, nested deeper than " + MAX_DEPTH);
+			}
+			Object value = readValue(tag, expected);
+			if (nested) {
+				--depth;
+			}
+			return value;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Object readValue(int tag, Class<?> expected) throws IOException {
+			switch (tag) {
+			case TAG_NULL:
+				return null;
+			case TAG_STRING:
+				return readString();
+			case TAG_INT:
+				int zigzag = readVarInt();
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			case TAG_LONG:
+				return in.readLong();
+			case TAG_DOUBLE:
+				return in.readDouble();
+			case TAG_TRUE:
+				return Boolean.TRUE;
+			case TAG_FALSE:
+				return Boolean.FALSE;
+			case TAG_FLOAT:
+				return in.readFloat();
+			case TAG_SHORT:
+				return in.readShort();
+			case TAG_BYTE:
+				return in.readByte();
+			case TAG_CHAR:
+				return in.readChar();
+			case TAG_ENUM: {
+				Class<?> c = readClass(false);
+				String name = readString();
+				if (c == null || !c.isEnum()) {
+					return null;
+				}
+				try {
+					return Enum.valueOf((Class<Enum>) c, name);
+				} catch (IllegalArgumentException e) {
+					return null;
+				}
+			}
+			case TAG_URL:
+				return new URL(readString());
+			case TAG_FILE:
+				return new File(readString());
+			case TAG_DATE:
+				return new Date(in.readLong());
+			case TAG_ARRAY: {
+				Class<?> component = readClass(true);
+				int length = readVarInt();
+				Object array = component == null ? null : Array.newInstance(component, length);
+				for (int i = 0; i < length; ++i) {
+					Object item = readValue(component == null ? Object.class : component);
+					if (array != null) {
+						item = convert(item, component);
+						if (item != null || !component.isPrimitive()) {
+							Array.set(array, i, item);
+						}
+					}
+				}
+				return array;
+			}
+			case TAG_LIST: {
+				int size = readVarInt();
+				Collection<Object> collection = (Collection<Object>) newContainer(expected, Collection.class, ArrayList.class);
+				for (int i = 0; i < size; ++i) {
+					collection.add(readValue(Object.class));
+				}
+				return collection;
+			}
+			case TAG_MAP: {
+				int size = readVarInt();
+				Map<Object, Object> map = (Map<Object, Object>) newContainer(expected, Map.class, LinkedHashMap.class);
+				for (int i = 0; i < size; ++i) {
+					Object key = readValue(Object.class);
+					map.put(key, readValue(Object.class));
+				}
+				return map;
+			}
+			case TAG_OBJECT: {
+				Class<?> c = readClass(false);
+				Object result = c == null ? null : reflectionProvider.newInstance(c);
+				Map<String, Field> fields = c == null ? Collections.<String, Field>emptyMap() : getFields(c);
+				int count = readVarInt();
+				for (int i = 0; i < count; ++i) {
+					Field field = fields.get(readString());
+					Object value = readValue(field == null ? Object.class : field.getType());
+					if (field == null || result == null) {
+						// the field no longer exists
+						continue;
+					}
+					value = convert(value, field.getType());
+					if (value == null && field.getType().isPrimitive()) {
+						continue;
+					}
+					try {
+						field.set(result, value);
+					} catch (IllegalAccessException e) {
+						throw new IOException(e);
+					}
+				}
+				return result;
+			}
+			default:
+				throw new IOException("Malformed binary cache file, unknown tag: " + tag);
+			}
+		}
+
+		/**
+		 * Creates a collection or map of the type that is expected, if that is a
+		 * concrete type of the right kind. The default type otherwise.
+		 */
+		private static Object newContainer(Class<?> expected, Class<?> kind, Class<?> fallback) throws IOException {
+			Class<?> c = fallback;
+			if (kind.isAssignableFrom(expected) && !expected.isInterface() && !Modifier.isAbstract(expected.getModifiers())) {
+				c = expected;
+			}
+			try {
+				return c.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("Could not create " + c.getName(), e);
+			}
+		}
+
+		/**
+		 * Converts a value to the type of the field (or array) it is assigned
+		 * to. Values that can not be converted become null.
+		 */
+		private static Object convert(Object value, Class<?> type) {
+			if (value == null) {
+				return null;
+			}
+			Class<?> boxed = box(type);
+			if (boxed.isInstance(value)) {
+				return value;
+			}
+			if (value instanceof Number) {
+				Number number = (Number) value;
+				if (boxed == Integer.class) {
+					return number.intValue();
+				} else if (boxed == Long.class) {
+					return number.longValue();
+				} else if (boxed == Double.class) {
+					return number.doubleValue();
+				} else if (boxed == Float.class) {
+					return number.floatValue();
+				} else if (boxed == Short.class) {
+					return number.shortValue();
+				} else if (boxed == Byte.class) {
+					return number.byteValue();
+				} else if (boxed == String.class) {
+					return number.toString();
+				}
+			} else if (value instanceof String && Number.class.isAssignableFrom(boxed)) {
+				try {
+					Double number = Double.valueOf((String) value);
+					return convert(number, type);
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			} else if (boxed == String.class && (value instanceof Boolean || value instanceof Character)) {
+				return value.toString();
+			}
+			return null;
+		}
+
+		private static Class<?> box(Class<?> type) {
+			if (!type.isPrimitive()) {
+				return type;
+			} else if (type == int.class) {
+				return Integer.class;
+			} else if (type == long.class) {
+				return Long.class;
+			} else if (type == double.class) {
+				return Double.class;
+			} else if (type == float.class) {
+				return Float.class;
+			} else if (type == boolean.class) {
+				return Boolean.class;
+			} else if (type == short.class) {
+				return Short.class;
+			} else if (type == byte.class) {
+				return Byte.class;
+			} else {
+				return Character.class;
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package org.openml.apiconnector.io;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of a bulk get: a map from the requested ids to the entities that
+ * could be obtained, in the order the ids were requested. The ids that could
+ * not be obtained are not in the map, but have an error instead, such that
+ * one failing id does not fail the whole request.
+ *
+ * @param <T> - the type of the entities
+ */
+public class BulkResult<T> extends AbstractMap<Integer, T> {
+
+	/**
+	 * Loads a single entity
+	 */
+	public interface Loader<T> {
+		/**
+		 * @param id - the id of the entity
+		 * @return the entity, or null if not available (used for cache lookups)
+		 * @throws Exception - problem obtaining the entity
+		 */
+		T load(int id) throws Exception;
+	}
+
+	private final Map<Integer, T> results;
+	private final Map<Integer, Exception> errors;
+
+	/**
+	 * @param results - the entities per id
+	 * @param errors - the errors per id
+	 */
+	public BulkResult(Map<Integer, T> results, Map<Integer, Exception> errors) {
+		this.results = Collections.unmodifiableMap(new LinkedHashMap<Integer, T>(results));
+		this.errors = Collections.unmodifiableMap(new LinkedHashMap<Integer, Exception>(errors));
+	}
+
+	@Override
+	public Set<Entry<Integer, T>> entrySet() {
+		return results.entrySet();
+	}
+
+	@Override
+	public T get(Object id) {
+		return results.get(id);
+	}
+
+	@Override
+	public boolean containsKey(Object id) {
+		return results.containsKey(id);
+	}
+
+	/**
+	 * @return the errors of the ids that could not be obtained
+	 */
+	public Map<Integer, Exception> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return whether all ids were obtained
+	 */
+	public boolean isComplete() {
+		return errors.isEmpty();
+	}
+
+	/**
+	 * Returns the entity of an id, or throws the error that occurred obtaining it
+	 *
+	 * @param id - the id
+	 * @return the entity
+	 * @throws Exception - the error of the id, or an IllegalArgumentException if it was not requested
+	 */
+	public T getOrThrow(int id) throws Exception {
+		if (errors.containsKey(id)) {
+			throw errors.get(id);
+		}
+		if (!results.containsKey(id)) {
+			throw new IllegalArgumentException("Id " + id + " was not requested. ");
+		}
+		return results.get(id);
+	}
+}
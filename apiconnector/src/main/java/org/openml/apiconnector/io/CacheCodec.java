@@ -0,0 +1,41 @@
+package org.openml.apiconnector.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+
+/**
+ * Format in which api responses are stored in the cache.
+ */
+public interface CacheCodec {
+
+	/**
+	 * @return the name of the codec, as used in the config file
+	 */
+	String getName();
+
+	/**
+	 * Returns where a response is stored with this codec
+	 *
+	 * @param cachedData - the location of the cache entry (ending with .xml)
+	 * @return the file the codec writes to
+	 */
+	File getLocation(File cachedData);
+
+	/**
+	 * @param response - the response to store
+	 * @param out - the stream to write to
+	 * @throws IOException - problem writing, or the response can not be represented in this format
+	 */
+	void write(OpenmlApiResponse response, OutputStream out) throws IOException;
+
+	/**
+	 * @param in - the stream to read from
+	 * @return the response
+	 * @throws IOException - problem reading, or the stream was written in an unsupported format
+	 */
+	OpenmlApiResponse read(InputStream in) throws IOException;
+}
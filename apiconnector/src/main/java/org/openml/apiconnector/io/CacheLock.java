@@ -0,0 +1,160 @@
+package org.openml.apiconnector.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a single cache entry, both within this JVM and across
+ * processes that share the cache directory. Only the holder of the lock
+ * downloads the entry; others wait and find it in the cache afterwards. The
+ * cross-process part uses a file lock on a (empty) lock file next to the entry.
+ * The lock file is removed when the last holder releases the lock. After that,
+ * it is marked as removed (it is no longer empty), so processes that opened it
+ * already and obtain the lock afterwards know to create a new one.
+ */
+public class CacheLock {
+
+	public static final String LOCK_SUFFIX = ".lock";
+
+	// file locks are held per JVM, so threads are excluded with a lock per key
+	private static final Map<String, KeyLock> keyLocks = new HashMap<String, KeyLock>();
+
+	private final String key;
+	private final KeyLock keyLock;
+	private final File lockFile;
+	private final FileChannel channel;
+	private final FileLock fileLock;
+
+	private CacheLock(String key, KeyLock keyLock, File lockFile, FileChannel channel, FileLock fileLock) {
+		this.key = key;
+		this.keyLock = keyLock;
+		this.lockFile = lockFile;
+		this.channel = channel;
+		this.fileLock = fileLock;
+	}
+
+	/**
+	 * Acquires the lock on a cache entry, waiting until it is available.
+	 *
+	 * @param cachedData - the location of the cache entry
+	 * @return the lock, to be released after the entry is stored
+	 * @throws IOException - problem creating or locking the lock file
+	 */
+	public static CacheLock acquire(File cachedData) throws IOException {
+		return acquire(cachedData, true);
+	}
+
+	/**
+	 * Acquires the lock on a cache entry, if no other thread or process holds
+	 * it (e.g., to evict the entry only when it is not being stored or read).
+	 *
+	 * @param cachedData - the location of the cache entry
+	 * @return the lock, or null if it is held already
+	 * @throws IOException - problem creating or locking the lock file
+	 */
+	public static CacheLock tryAcquire(File cachedData) throws IOException {
+		return acquire(cachedData, false);
+	}
+
+	private static CacheLock acquire(File cachedData, boolean wait) throws IOException {
+		String key = cachedData.getAbsoluteFile().toPath().normalize().toString();
+		KeyLock keyLock;
+		synchronized (keyLocks) {
+			keyLock = keyLocks.get(key);
+			if (keyLock == null) {
+				keyLock = new KeyLock();
+				keyLocks.put(key, keyLock);
+			}
+			keyLock.users += 1;
+		}
+		if (wait) {
+			keyLock.lock.lock();
+		} else if (!keyLock.lock.tryLock()) {
+			unregister(key, keyLock);
+			return null;
+		}
+		FileChannel channel = null;
+		try {
+			File lockFile = new File(cachedData.getAbsolutePath() + LOCK_SUFFIX);
+			while (true) {
+				cachedData.getAbsoluteFile().getParentFile().mkdirs();
+				channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock fileLock;
+				if (wait) {
+					fileLock = channel.lock();
+				} else {
+					try {
+						fileLock = channel.tryLock();
+					} catch (OverlappingFileLockException e) {
+						// held by this thread
+						fileLock = null;
+					}
+					if (fileLock == null) {
+						channel.close();
+						release(key, keyLock);
+						return null;
+					}
+				}
+				if (channel.size() == 0) {
+					return new CacheLock(key, keyLock, lockFile, channel, fileLock);
+				}
+				// removed by the previous holder, while we were waiting
+				channel.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			if (channel != null) {
+				channel.close();
+			}
+			release(key, keyLock);
+			throw e;
+		}
+	}
+
+	private static void release(String key, KeyLock keyLock) {
+		// before unlocking, so the next holder knows whether others are waiting
+		unregister(key, keyLock);
+		keyLock.lock.unlock();
+	}
+
+	private static void unregister(String key, KeyLock keyLock) {
+		synchronized (keyLocks) {
+			keyLock.users -= 1;
+			if (keyLock.users == 0) {
+				keyLocks.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Releases the lock. Removes the lock file if no other thread waits for it.
+	 *
+	 * @throws IOException - problem releasing the lock file
+	 */
+	public void release() throws IOException {
+		try {
+			synchronized (keyLocks) {
+				// on some platforms, files that other processes have open can not be deleted. It is used again then
+				if (keyLock.users == 1 && lockFile.delete()) {
+					channel.write(ByteBuffer.wrap(new byte[] {1}), 0);
+				}
+			}
+			fileLock.release();
+		} finally {
+			channel.close();
+			release(key, keyLock);
+		}
+	}
+
+	private static class KeyLock {
+		private final ReentrantLock lock = new ReentrantLock();
+		private int users = 0;
+	}
+}
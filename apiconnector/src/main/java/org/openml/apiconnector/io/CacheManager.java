@@ -0,0 +1,655 @@
+package org.openml.apiconnector.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.settings.Settings;
+
+/**
+ * Keeps track of the files in the cache directory, and keeps the total size of
+ * the cache within a budget. For every file, the index records its size, last
+ * access, number of accesses, source URL, checksum and the validators of the
+ * server (ETag, Last-Modified) for revalidation. The index is stored in
+ * the cache directory, so it survives restarts. When the budget is exceeded,
+ * files are evicted, least recently used (LRU) or least frequently used (LFU)
+ * first. Files can be pinned (e.g., the datasets of the study that is being
+ * run), pinned files are never evicted.
+ *
+ * Changes to the index are written to disk in the background: after a number
+ * of changes, every few seconds, and on shutdown. Other processes can share
+ * the cache directory: the index is merged with the one on disk before it is
+ * written, and files are only evicted when no other thread or process holds
+ * their lock (see CacheLock).
+ */
+public class CacheManager {
+
+	public enum EvictionPolicy { LRU, LFU }
+
+	public static final String INDEX_FILE = "cache.index";
+
+	// the index is written after this many changes, or after this interval (ms)
+	private static final int FLUSH_CHANGES = 100;
+	private static final long FLUSH_INTERVAL = 5000;
+
+	private static final Map<File, CacheManager> instances = new HashMap<File, CacheManager>();
+	private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "openml-cache-index");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final File directory;
+	private final File indexFile;
+	// in order of last access, so the least recently used entry is first. Accesses
+	// move an entry to the end explicitly (see touch), so lookups do not reorder it
+	private final LinkedHashMap<String, Entry> index = new LinkedHashMap<String, Entry>();
+	private final Set<String> pinned = new HashSet<String>();
+	private long totalSize = 0;
+	private boolean dirty = false;
+	private int changes = 0;
+
+	/**
+	 * Returns the cache manager of the cache directory that is currently
+	 * configured (Settings.CACHE_DIRECTORY). There is a single manager per
+	 * directory.
+	 *
+	 * @return the cache manager
+	 */
+	public static CacheManager getInstance() {
+		return getInstance(new File(Settings.CACHE_DIRECTORY));
+	}
+
+	/**
+	 * Returns the cache manager of a cache directory.
+	 *
+	 * @param directory - the cache directory
+	 * @return the cache manager
+	 */
+	public static synchronized CacheManager getInstance(File directory) {
+		File key = directory.getAbsoluteFile().toPath().normalize().toFile();
+		CacheManager manager = instances.get(key);
+		if (manager == null) {
+			manager = new CacheManager(key);
+			instances.put(key, manager);
+		}
+		return manager;
+	}
+
+	private CacheManager(File directory) {
+		this.directory = directory;
+		this.indexFile = new File(directory, INDEX_FILE);
+		try {
+			if (indexFile.exists()) {
+				loadIndex();
+			} else {
+				rebuildIndex();
+			}
+		} catch (IOException e) {
+			Conversion.log("Warning", "Cache", "Could not load cache index, rebuilding: " + e.getMessage());
+			index.clear();
+			totalSize = 0;
+			try {
+				rebuildIndex();
+			} catch (IOException e2) {
+				Conversion.log("Warning", "Cache", "Could not rebuild cache index: " + e2.getMessage());
+			}
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				flush();
+			} catch (IOException e) {}
+		}));
+		flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the eviction policy that is configured (Settings.CACHE_EVICTION_POLICY)
+	 *
+	 * @return the policy, LRU if the setting is not recognized
+	 */
+	public static EvictionPolicy getEvictionPolicy() {
+		try {
+			return EvictionPolicy.valueOf(Settings.CACHE_EVICTION_POLICY.toUpperCase());
+		} catch (IllegalArgumentException | NullPointerException e) {
+			return EvictionPolicy.LRU;
+		}
+	}
+
+	/**
+	 * Registers an access to a cached file. Files that exist but are not in
+	 * the index (e.g., placed by an older version) are added. Files that are in
+	 * the index but no longer exist are removed from it.
+	 *
+	 * @param file - the cached file
+	 * @return whether the file is in the cache
+	 */
+	public synchronized boolean touch(File file) {
+		String key = key(file);
+		// moves the entry to the end
+		Entry entry = index.remove(key);
+		if (!file.exists()) {
+			if (entry != null) {
+				removed(entry);
+			}
+			return false;
+		}
+		if (entry == null) {
+			entry = new Entry(file.length(), file.lastModified(), 0, null, null);
+			totalSize += entry.size;
+		}
+		index.put(key, entry);
+		entry.lastAccess = System.currentTimeMillis();
+		entry.hits += 1;
+		changed();
+		return true;
+	}
+
+	/**
+	 * Registers an access to a cached file that is known to be in the cache,
+	 * e.g., because the response it contains was served from memory. Unlike
+	 * touch, this does not check whether the file exists.
+	 *
+	 * @param file - the cached file
+	 * @return whether the file is in the index
+	 */
+	public synchronized boolean access(File file) {
+		String key = key(file);
+		Entry entry = index.remove(key);
+		if (entry == null) {
+			return false;
+		}
+		index.put(key, entry);
+		entry.lastAccess = System.currentTimeMillis();
+		entry.hits += 1;
+		changed();
+		return true;
+	}
+
+	/**
+	 * Adds a file that was just stored in the cache to the index, and evicts
+	 * other files if the cache exceeds its budget.
+	 *
+	 * @param file - the cached file
+	 * @param url - the URL it was obtained from
+	 * @param checksum - the md5 checksum of the file (e.g., computed while it was downloaded), or null if unknown
+	 */
+	public synchronized void put(File file, String url, String checksum) {
+		String key = key(file);
+		Entry previous = index.remove(key);
+		if (previous != null) {
+			totalSize -= previous.size;
+		}
+		Entry entry = new Entry(file.length(), System.currentTimeMillis(), 1, url, checksum);
+		index.put(key, entry);
+		totalSize += entry.size;
+		changed();
+		evict(key);
+	}
+
+	/**
+	 * Removes a file from the cache (and the index)
+	 *
+	 * @param file - the cached file
+	 */
+	public synchronized void remove(File file) {
+		Entry entry = index.remove(key(file));
+		if (entry != null) {
+			removed(entry);
+		}
+		file.delete();
+	}
+
+	/**
+	 * Returns the checksum of a cached file, as recorded in the index
+	 *
+	 * @param file - the cached file
+	 * @return the md5 checksum, or null if unknown
+	 */
+	public synchronized String getChecksum(File file) {
+		Entry entry = index.get(key(file));
+		return entry == null ? null : entry.checksum;
+	}
+
+	/**
+	 * Records the checksum of a cached file, e.g., after it was verified
+	 *
+	 * @param file - the cached file
+	 * @param checksum - the md5 checksum
+	 */
+	public synchronized void setChecksum(File file, String checksum) {
+		Entry entry = index.get(key(file));
+		if (entry != null) {
+			entry.checksum = checksum;
+			changed();
+		}
+	}
+
+	/**
+	 * Records the validators of a cached file (as returned by the server) and
+	 * marks it as validated now.
+	 *
+	 * @param file - the cached file
+	 * @param etag - the ETag of the file, or null
+	 * @param lastModified - the Last-Modified date of the file, or null
+	 */
+	public synchronized void setValidators(File file, String etag, String lastModified) {
+		Entry entry = index.get(key(file));
+		if (entry != null) {
+			entry.etag = etag;
+			entry.lastModified = lastModified;
+			entry.validated = System.currentTimeMillis();
+			changed();
+		}
+	}
+
+	/**
+	 * @param file - the cached file
+	 * @return the ETag of the cached file, or null if unknown
+	 */
+	public synchronized String getEtag(File file) {
+		Entry entry = index.get(key(file));
+		return entry == null ? null : entry.etag;
+	}
+
+	/**
+	 * @param file - the cached file
+	 * @return the Last-Modified date of the cached file, or null if unknown
+	 */
+	public synchronized String getLastModified(File file) {
+		Entry entry = index.get(key(file));
+		return entry == null ? null : entry.lastModified;
+	}
+
+	/**
+	 * @param file - the cached file
+	 * @return when the cached file was stored or last confirmed by the server (ms), -1 if not in the cache
+	 */
+	public synchronized long getValidationTime(File file) {
+		Entry entry = index.get(key(file));
+		return entry == null ? -1 : entry.validated;
+	}
+
+	/**
+	 * Pins all files in the cache directory that start with a certain path
+	 * (e.g., the directory of a dataset). Pinned files are not evicted.
+	 *
+	 * @param file - the file or directory to pin
+	 */
+	public synchronized void pin(File file) {
+		pinned.add(key(file));
+	}
+
+	/**
+	 * Releases a pin placed by pin(File)
+	 *
+	 * @param file - the file or directory to unpin
+	 */
+	public synchronized void unpin(File file) {
+		pinned.remove(key(file));
+	}
+
+	/**
+	 * Releases all pins
+	 */
+	public synchronized void unpinAll() {
+		pinned.clear();
+	}
+
+	/**
+	 * @return the total size (bytes) of all files in the index
+	 */
+	public synchronized long getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * @return the number of files in the index
+	 */
+	public synchronized int getEntryCount() {
+		return index.size();
+	}
+
+	/**
+	 * Evicts files until the cache is within budget (Settings.CACHE_MAX_SIZE)
+	 *
+	 * @throws IOException - problem writing the index
+	 */
+	public synchronized void trim() throws IOException {
+		evict(null);
+		flush();
+	}
+
+	/**
+	 * Writes the index to disk, if it changed. The index on disk may have been
+	 * written by another process in the meantime, it is merged first.
+	 *
+	 * @throws IOException - problem writing the index
+	 */
+	public synchronized void flush() throws IOException {
+		if (!dirty) {
+			return;
+		}
+		directory.mkdirs();
+		// excludes other processes between reading and replacing the index
+		CacheLock lock = CacheLock.acquire(indexFile);
+		try {
+			if (indexFile.exists()) {
+				try {
+					merge(readIndex());
+				} catch (IOException e) {
+					Conversion.log("Warning", "Cache", "Could not read cache index, replacing it: " + e.getMessage());
+				}
+			}
+			File temp = File.createTempFile(INDEX_FILE + ".", HttpCacheController.TEMP_SUFFIX, directory);
+			try (BufferedWriter bw = new BufferedWriter(new FileWriter(temp))) {
+				for (Map.Entry<String, Entry> e : index.entrySet()) {
+					Entry entry = e.getValue();
+					bw.append(e.getKey() + "\t" + entry.size + "\t" + entry.lastAccess + "\t" + entry.hits + "\t" +
+							  emptyIfNull(entry.checksum) + "\t" + emptyIfNull(entry.etag) + "\t" + emptyIfNull(entry.lastModified) + "\t" + 
+							  entry.validated + "\t" + emptyIfNull(entry.url) + "\n");
+				}
+			}
+			HttpCacheController.moveAtomically(temp, indexFile);
+		} finally {
+			lock.release();
+		}
+		dirty = false;
+		changes = 0;
+	}
+
+	/**
+	 * Merges the index on disk into this one. Entries that only one of both
+	 * knows are kept if the file exists (stored by the other process, or not
+	 * written yet), and dropped otherwise (removed by the other process). Of
+	 * entries both know, the most recently validated one is kept, with the
+	 * latest access and the most hits of both.
+	 */
+	private void merge(Map<String, Entry> stored) {
+		boolean reorder = false;
+		Iterator<Map.Entry<String, Entry>> iterator = index.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Entry> e = iterator.next();
+			if (!stored.containsKey(e.getKey()) && !new File(directory, e.getKey()).exists()) {
+				iterator.remove();
+				totalSize -= e.getValue().size;
+				if (e.getValue().url != null) {
+					ResponseCache.getInstance().invalidate(e.getValue().url);
+				}
+			}
+		}
+		for (Map.Entry<String, Entry> e : stored.entrySet()) {
+			Entry other = e.getValue();
+			Entry entry = index.get(e.getKey());
+			if (entry == null) {
+				if (new File(directory, e.getKey()).exists()) {
+					index.put(e.getKey(), other);
+					totalSize += other.size;
+					reorder = true;
+				}
+				continue;
+			}
+			if (other.validated > entry.validated) {
+				other.lastAccess = Math.max(other.lastAccess, entry.lastAccess);
+				other.hits = Math.max(other.hits, entry.hits);
+				index.put(e.getKey(), other);
+				totalSize += other.size - entry.size;
+				entry = other;
+			} else {
+				entry.hits = Math.max(other.hits, entry.hits);
+			}
+			if (other.lastAccess > entry.lastAccess) {
+				entry.lastAccess = other.lastAccess;
+				reorder = true;
+			}
+		}
+		if (reorder) {
+			// restores the order of last access
+			List<Map.Entry<String, Entry>> entries = new ArrayList<Map.Entry<String, Entry>>(index.entrySet());
+			entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+			index.clear();
+			for (Map.Entry<String, Entry> e : entries) {
+				index.put(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	private synchronized void flushQuietly() {
+		try {
+			flush();
+		} catch (IOException e) {
+			// written again with the next change
+			Conversion.log("Warning", "Cache", "Could not write cache index: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Accounts for an entry that left the index. The response it contains is 
+	 * no longer served from memory either.
+	 */
+	private void removed(Entry entry) {
+		totalSize -= entry.size;
+		changed();
+		if (entry.url != null) {
+			ResponseCache.getInstance().invalidate(entry.url);
+		}
+	}
+
+	/**
+	 * Marks the index as changed, and writes it once enough changes accumulated
+	 */
+	private void changed() {
+		dirty = true;
+		if (++changes >= FLUSH_CHANGES) {
+			flushQuietly();
+		}
+	}
+
+	private void evict(String keep) {
+		long budget = Settings.CACHE_MAX_SIZE;
+		if (budget <= 0 || totalSize <= budget) {
+			return;
+		}
+		// with LRU, the index is in the order of eviction already
+		Iterator<Map.Entry<String, Entry>> iterator;
+		List<Map.Entry<String, Entry>> candidates = null;
+		if (getEvictionPolicy() == EvictionPolicy.LFU) {
+			candidates = new ArrayList<Map.Entry<String, Entry>>(index.entrySet());
+			candidates.sort(Comparator.comparingLong((Map.Entry<String, Entry> e) -> e.getValue().hits).thenComparingLong(e -> e.getValue().lastAccess));
+			iterator = candidates.iterator();
+		} else {
+			iterator = index.entrySet().iterator();
+		}
+		while (totalSize > budget && iterator.hasNext()) {
+			Map.Entry<String, Entry> candidate = iterator.next();
+			if (candidate.getKey().equals(keep) || isPinned(candidate.getKey())) {
+				continue;
+			}
+			File file = new File(directory, candidate.getKey());
+			CacheLock lock;
+			try {
+				lock = CacheLock.tryAcquire(file);
+			} catch (IOException e) {
+				Conversion.log("Warning", "Cache", "Could not lock " + candidate.getKey() + " for eviction: " + e.getMessage());
+				continue;
+			}
+			if (lock == null) {
+				// being stored or verified by another thread or process
+				continue;
+			}
+			try {
+				if (candidates == null) {
+					iterator.remove();
+				} else {
+					index.remove(candidate.getKey());
+				}
+				removed(candidate.getValue());
+				file.delete();
+			} finally {
+				try {
+					lock.release();
+				} catch (IOException e) {
+					Conversion.log("Warning", "Cache", "Could not release lock of " + candidate.getKey() + ": " + e.getMessage());
+				}
+			}
+			Conversion.log("OK", "Cache", "Evicted from cache: " + candidate.getKey());
+		}
+	}
+
+	private boolean isPinned(String key) {
+		for (String prefix : pinned) {
+			if (key.equals(prefix) || key.startsWith(prefix + "/")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String key(File file) {
+		Path path = file.getAbsoluteFile().toPath().normalize();
+		return directory.toPath().relativize(path).toString().replace(File.separatorChar, '/');
+	}
+
+	private void loadIndex() throws IOException {
+		for (Map.Entry<String, Entry> e : readIndex().entrySet()) {
+			index.put(e.getKey(), e.getValue());
+			totalSize += e.getValue().size;
+		}
+	}
+
+	private LinkedHashMap<String, Entry> readIndex() throws IOException {
+		LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>();
+		try (BufferedReader br = new BufferedReader(new FileReader(indexFile))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+				Entry entry;
+				if (fields.length == 6) {
+					// written by a version without validators
+					entry = new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+									  nullIfEmpty(fields[5]), nullIfEmpty(fields[4]));
+				} else if (fields.length == 9) {
+					entry = new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+									  nullIfEmpty(fields[8]), nullIfEmpty(fields[4]));
+					entry.etag = nullIfEmpty(fields[5]);
+					entry.lastModified = nullIfEmpty(fields[6]);
+					entry.validated = Long.parseLong(fields[7]);
+				} else {
+					throw new IOException("Malformed line in cache index: " + line);
+				}
+				entries.put(fields[0], entry);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed cache index", e);
+		}
+		return entries;
+	}
+
+	/**
+	 * Creates the index from the files in the cache directory, e.g., when the
+	 * cache was created by a version without index.
+	 */
+	private void rebuildIndex() throws IOException {
+		if (!directory.exists()) {
+			return;
+		}
+		List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.filter(Files::isRegularFile).forEach(files::add);
+		}
+		files.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+		for (Path path : files) {
+			File file = path.toFile();
+			String name = file.getName();
+			if (name.startsWith(INDEX_FILE) || name.endsWith(CacheLock.LOCK_SUFFIX) || name.endsWith(HttpCacheController.TEMP_SUFFIX)
+					|| name.endsWith(FileDownloader.PART_SUFFIX) || name.endsWith(FileDownloader.VALIDATOR_SUFFIX)) {
+				continue;
+			}
+			Entry entry = new Entry(file.length(), file.lastModified(), 0, null, null);
+			index.put(key(file), entry);
+			totalSize += entry.size;
+		}
+		dirty = true;
+	}
+
+	private static String emptyIfNull(String value) {
+		// tabs and newlines would break the index
+		return value == null ? "" : value.replaceAll("[\t\r\n]", " ");
+	}
+
+	private static String nullIfEmpty(String value) {
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Computes the md5 checksum of a file
+	 *
+	 * @param file - the file
+	 * @return the checksum, as lower case hexadecimal string
+	 * @throws IOException - problem reading the file
+	 */
+	public static String md5(File file) throws IOException {
+		try (InputStream is = new FileInputStream(file)) {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			byte[] buffer = new byte[65536];
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+			return toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static class Entry {
+		private final long size;
+		private long lastAccess;
+		private long hits;
+		private final String url;
+		private String checksum;
+		private String etag;
+		private String lastModified;
+		private long validated;
+
+		private Entry(long size, long lastAccess, long hits, String url, String checksum) {
+			this.size = size;
+			this.lastAccess = lastAccess;
+			this.hits = hits;
+			this.url = url;
+			this.checksum = checksum;
+			this.validated = lastAccess;
+		}
+	}
+}
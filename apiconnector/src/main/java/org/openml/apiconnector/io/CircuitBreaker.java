@@ -0,0 +1,201 @@
+package org.openml.apiconnector.io;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.settings.Settings;
+
+/**
+ * Fails requests fast when the server keeps failing, instead of letting every
+ * request wait for a connection timeout. There is one breaker per server and
+ * endpoint family (data, task, run, flow, evaluation, study, ...), so that a
+ * broken part of the api does not block the others.
+ *
+ * The breaker opens after a number of consecutive failures (connection
+ * problems, 429, 5xx or empty results, after retries). While open, requests
+ * fail with a CircuitOpenException. After the open time it half-opens: one
+ * probe request at a time is let through. When enough probes succeed it
+ * closes, when one fails it opens again.
+ */
+public class CircuitBreaker {
+
+	/**
+	 * The states of a circuit breaker
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openTime;
+	private final int probes;
+
+	private State state = State.CLOSED;
+	private int failures;
+	private int successfulProbes;
+	private boolean probing;
+	private long openedAt;
+
+	/**
+	 * @param name - name of the breaker, for logging
+	 * @param failureThreshold - the number of consecutive failures that opens the breaker
+	 * @param openTime - how long (ms) the breaker stays open before it lets a probe through
+	 * @param probes - the number of successful probes that closes the breaker
+	 */
+	public CircuitBreaker(String name, int failureThreshold, long openTime, int probes) {
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openTime = openTime;
+		this.probes = Math.max(1, probes);
+	}
+
+	/**
+	 * Returns the breaker of the endpoint family of a URL, created with the
+	 * values from the static settings.
+	 *
+	 * @param uri - the URL of the request
+	 * @return the circuit breaker, or null if disabled (Settings.CIRCUIT_BREAKER_THRESHOLD is 0)
+	 */
+	public static CircuitBreaker get(URI uri) {
+		if (Settings.CIRCUIT_BREAKER_THRESHOLD <= 0) {
+			return null;
+		}
+		String key = uri.getAuthority() + " " + getFamily(uri);
+		return breakers.computeIfAbsent(key, name -> new CircuitBreaker(name, Settings.CIRCUIT_BREAKER_THRESHOLD,
+				Settings.CIRCUIT_BREAKER_OPEN_TIME, Settings.CIRCUIT_BREAKER_PROBES));
+	}
+
+	/**
+	 * Returns the endpoint family of a URL, e.g., data for api/v1/data/features/61
+	 * and data/v1/download/61/iris.arff, run for api/v1/run/list/task/59
+	 *
+	 * @param uri - the URL
+	 * @return the endpoint family
+	 */
+	public static String getFamily(URI uri) {
+		String endpoint = RetryPolicy.getEndpoint(uri);
+		int slash = endpoint.indexOf('/');
+		String family = slash < 0 ? endpoint : endpoint.substring(0, slash);
+		return family.equals("download") ? "data" : family;
+	}
+
+	/**
+	 * Returns whether a response shows that the server is in trouble: it failed
+	 * (5xx), refused the request (429), or returned an empty result, which it
+	 * does under high load.
+	 *
+	 * @param method - the method of the request
+	 * @param response - the response
+	 * @return whether the response counts as a failure
+	 */
+	static boolean isFailure(String method, HttpResponse response) {
+		int code = response.getStatusLine().getStatusCode();
+		HttpEntity entity = response.getEntity();
+		boolean empty = code == HttpStatus.SC_OK && (entity == null || entity.getContentLength() == 0) && !"HEAD".equals(method);
+		return empty || code == HttpStatus.SC_TOO_MANY_REQUESTS || code >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+	}
+
+	/**
+	 * @return the circuit breakers per server and endpoint family (e.g., www.openml.org task), in alphabetical order
+	 */
+	public static Map<String, CircuitBreaker> getCircuitBreakers() {
+		return Collections.unmodifiableMap(new TreeMap<String, CircuitBreaker>(breakers));
+	}
+
+	/**
+	 * Removes all circuit breakers (closing them)
+	 */
+	public static void resetAll() {
+		breakers.clear();
+	}
+
+	/**
+	 * Asks permission to send a request. Every permitted request should be
+	 * followed by a call to onSuccess, onFailure or onCancel.
+	 *
+	 * @throws CircuitOpenException - the breaker is open, or half open with a probe in flight
+	 */
+	public synchronized void acquire() throws CircuitOpenException {
+		if (state == State.CLOSED) {
+			return;
+		}
+		long remaining = openedAt + openTime - System.currentTimeMillis();
+		if (state == State.OPEN && remaining <= 0) {
+			state = State.HALF_OPEN;
+			successfulProbes = 0;
+			Conversion.log("OK", "Circuit Breaker", name + " half open, probing the server. ");
+		}
+		if (state == State.HALF_OPEN && !probing) {
+			probing = true;
+			return;
+		}
+		throw new CircuitOpenException("Circuit breaker " + name + " is open after " + failures + " failures, " +
+				"not sending requests for " + Math.max(0, remaining) + " ms. ", Math.max(0, remaining));
+	}
+
+	/**
+	 * Reports that the server handled a permitted request
+	 */
+	public synchronized void onSuccess() {
+		failures = 0;
+		if (state == State.HALF_OPEN) {
+			probing = false;
+			if (++successfulProbes >= probes) {
+				state = State.CLOSED;
+				Conversion.log("OK", "Circuit Breaker", name + " closed. ");
+			}
+		}
+	}
+
+	/**
+	 * Reports that a permitted request failed because of the server or the connection
+	 */
+	public synchronized void onFailure() {
+		++failures;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+			state = State.OPEN;
+			probing = false;
+			openedAt = System.currentTimeMillis();
+			Conversion.log("Warning", "Circuit Breaker", name + " opened after " + failures + " failures, failing fast for " + openTime + " ms. ");
+		}
+	}
+
+	/**
+	 * Reports that a permitted request ended without telling anything about the server (e.g., it was interrupted)
+	 */
+	public synchronized void onCancel() {
+		probing = false;
+	}
+
+	/**
+	 * @return the state of the breaker
+	 */
+	public synchronized State getState() {
+		if (state == State.OPEN && System.currentTimeMillis() >= openedAt + openTime) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/**
+	 * @return the number of consecutive failures
+	 */
+	public synchronized int getFailures() {
+		return failures;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CircuitBreaker " + name + " [" + getState() + ", failures=" + failures + "]";
+	}
+}
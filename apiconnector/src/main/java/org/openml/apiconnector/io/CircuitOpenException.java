@@ -0,0 +1,30 @@
+package org.openml.apiconnector.io;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request, when the circuit breaker of its
+ * endpoint family is open (the server failed repeatedly).
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 4470381935720146287L;
+
+	private final long retryIn;
+
+	/**
+	 * @param message - the message
+	 * @param retryIn - time (ms) until the breaker lets a probe request through
+	 */
+	public CircuitOpenException(String message, long retryIn) {
+		super(message);
+		this.retryIn = retryIn;
+	}
+
+	/**
+	 * @return time (ms) until the breaker lets a probe request through
+	 */
+	public long getRetryIn() {
+		return retryIn;
+	}
+}
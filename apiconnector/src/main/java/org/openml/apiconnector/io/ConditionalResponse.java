@@ -0,0 +1,49 @@
+package org.openml.apiconnector.io;
+
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+
+/**
+ * Result of a conditional get request: either the (new) response, or the
+ * notice that the cached version is still up to date. Carries the validators
+ * (ETag, Last-Modified) the server returned, to be used for the next request.
+ */
+public class ConditionalResponse {
+
+	private final OpenmlApiResponse response;
+	private final String etag;
+	private final String lastModified;
+
+	public ConditionalResponse(OpenmlApiResponse response, String etag, String lastModified) {
+		this.response = response;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @return whether the server responded with 304 (Not Modified)
+	 */
+	public boolean isNotModified() {
+		return response == null;
+	}
+
+	/**
+	 * @return the response, or null if it was not modified
+	 */
+	public OpenmlApiResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * @return the ETag header of the response, or null if absent
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * @return the Last-Modified header of the response, or null if absent
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+}
@@ -0,0 +1,193 @@
+package org.openml.apiconnector.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.openml.apiconnector.settings.Settings;
+
+/**
+ * A pool of persistent HTTP connections, shared by all requests of a
+ * connector. Reusing connections avoids a new TCP and TLS handshake for
+ * every call to the server.
+ *
+ * The requests of a pool are limited in rate (Settings.HTTP_RATE_LIMIT) and,
+ * optionally, in concurrency (Settings.HTTP_ADAPTIVE_CONCURRENCY). These
+ * limits apply per pool, or to all pools together when
+ * Settings.HTTP_LIMITS_SHARED is set.
+ */
+public class ConnectionPool implements Closeable {
+
+	private static ConnectionPool defaultPool = null;
+	private static RateLimiter sharedRateLimiter = null;
+	private static AdaptiveConcurrencyLimit sharedConcurrencyLimit = null;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private final IdleConnectionEvictor evictor;
+	private final RateLimiter rateLimiter;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+	/**
+	 * Creates a connection pool with the values from the static settings.
+	 */
+	public ConnectionPool() {
+		this(Settings.HTTP_MAX_CONNECTIONS_TOTAL, Settings.HTTP_MAX_CONNECTIONS_PER_ROUTE,
+			Settings.HTTP_KEEP_ALIVE, Settings.HTTP_IDLE_EVICTION, Settings.HTTP_CONNECT_TIMEOUT,
+			Settings.HTTP_SOCKET_TIMEOUT, Settings.HTTP_CONNECTION_REQUEST_TIMEOUT);
+	}
+
+	/**
+	 * Creates a connection pool
+	 *
+	 * @param maxTotal - maximum number of open connections
+	 * @param maxPerRoute - maximum number of open connections to a single host
+	 * @param keepAlive - how long (ms) a connection is kept alive if the server does not specify it
+	 * @param idleEviction - connections that are idle longer than this (ms) are closed. 0 to disable
+	 * @param connectTimeout - timeout (ms) for establishing a connection. 0 for infinite
+	 * @param socketTimeout - timeout (ms) of waiting for data. 0 for infinite
+	 * @param connectionRequestTimeout - timeout (ms) of waiting for a connection from the pool. 0 for infinite
+	 */
+	public ConnectionPool(int maxTotal, int maxPerRoute, long keepAlive, long idleEviction,
+			int connectTimeout, int socketTimeout, int connectionRequestTimeout) {
+		connectionManager = new PoolingHttpClientConnectionManager(keepAlive, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeout)
+				.setSocketTimeout(socketTimeout)
+				.setConnectionRequestTimeout(connectionRequestTimeout)
+				.build();
+
+		HttpClientBuilder builder = HttpClients.custom();
+		if (!Settings.HTTP_COMPRESSION) {
+			builder.disableContentCompression();
+		}
+		// retries are up to the RetryPolicy (see HttpConnector), so requests are not retried twice
+		builder.disableAutomaticRetries();
+		CloseableHttpClient client = builder
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy((response, context) -> {
+					long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+					return serverKeepAlive > 0 ? serverKeepAlive : keepAlive;
+				})
+				.build();
+
+		synchronized (ConnectionPool.class) {
+			if (Settings.HTTP_LIMITS_SHARED) {
+				if (sharedRateLimiter == null) {
+					sharedRateLimiter = createRateLimiter();
+				}
+				if (sharedConcurrencyLimit == null) {
+					sharedConcurrencyLimit = createConcurrencyLimit(maxPerRoute);
+				}
+				rateLimiter = sharedRateLimiter;
+				concurrencyLimit = sharedConcurrencyLimit;
+			} else {
+				rateLimiter = createRateLimiter();
+				concurrencyLimit = createConcurrencyLimit(maxPerRoute);
+			}
+		}
+		if (rateLimiter != null || concurrencyLimit != null) {
+			httpClient = new ThrottledHttpClient(client, rateLimiter, concurrencyLimit);
+		} else {
+			httpClient = client;
+		}
+
+		if (idleEviction > 0) {
+			evictor = new IdleConnectionEvictor(connectionManager, idleEviction, TimeUnit.MILLISECONDS);
+			evictor.start();
+		} else {
+			evictor = null;
+		}
+	}
+
+	private static RateLimiter createRateLimiter() {
+		return Settings.HTTP_RATE_LIMIT > 0 ? new RateLimiter(Settings.HTTP_RATE_LIMIT, Settings.HTTP_RATE_LIMIT_BURST) : null;
+	}
+
+	// starts halfway, to find the right limit from both sides
+	private static AdaptiveConcurrencyLimit createConcurrencyLimit(int maxPerRoute) {
+		if (!Settings.HTTP_ADAPTIVE_CONCURRENCY) {
+			return null;
+		}
+		return new AdaptiveConcurrencyLimit(maxPerRoute / 2, 1, Math.max(1, maxPerRoute), Settings.HTTP_LATENCY_TOLERANCE);
+	}
+
+	/**
+	 * Returns the pool that is used by the static methods of the HttpConnector
+	 * (i.e., calls that are not done through a connector object)
+	 *
+	 * @return the default connection pool
+	 */
+	public static synchronized ConnectionPool getDefault() {
+		if (defaultPool == null) {
+			defaultPool = new ConnectionPool();
+		}
+		return defaultPool;
+	}
+
+	/**
+	 * @return the http client that leases its connections from this pool
+	 */
+	public CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	/**
+	 * @return the rate limiter of the requests of this pool, or null if the rate is unlimited
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * @return the adaptive concurrency limit of the requests of this pool, or null if not enabled
+	 */
+	public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	/**
+	 * @return statistics of the pool (leased, pending, available and max connections)
+	 */
+	public PoolStats getStatistics() {
+		return connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Closes all connections that are expired or idle longer than the given time
+	 *
+	 * @param idleTime - the idle time (ms)
+	 */
+	public void closeIdleConnections(long idleTime) {
+		connectionManager.closeExpiredConnections();
+		connectionManager.closeIdleConnections(idleTime, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Shuts down the pool, all connections will be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (evictor != null) {
+			evictor.shutdown();
+		}
+		httpClient.close();
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool " + getStatistics();
+	}
+}
@@ -0,0 +1,19 @@
+package org.openml.apiconnector.io;
+
+import java.net.URL;
+
+/**
+ * Receives the progress of file downloads (datasets, splits), e.g., to show a
+ * progress bar. Called from the downloading thread(s), possibly concurrently for
+ * a parallel download, so it should return quickly and be thread safe.
+ */
+public interface DownloadListener {
+
+	/**
+	 * @param url - the URL that is being downloaded
+	 * @param transferred - the number of bytes of the file that are on disk, including the resumed part
+	 * @param total - the size of the file, or -1 if the server did not report it
+	 * @param bytesPerSecond - the throughput of this download so far
+	 */
+	void progress(URL url, long transferred, long total, double bytesPerSecond);
+}
@@ -0,0 +1,587 @@
+package org.openml.apiconnector.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.settings.Settings;
+
+/**
+ * Downloads (large) files into a FileChannel, through a direct buffer of
+ * Settings.DOWNLOAD_BUFFER_SIZE bytes. A partially downloaded file is resumed
+ * with a HTTP Range request, both when the connection drops during the
+ * download and when a download that was interrupted earlier (e.g., a
+ * <code>.part</code> file in the cache) is continued. Servers that do not
+ * support ranges send the complete file, which then replaces the partial one.
+ *
+ * Ranges are requested with If-Range and the validator (strong ETag, or
+ * Last-Modified) of the response the download started with, so a file that
+ * changed on the server in the meantime is sent completely and replaces the
+ * partial one. For downloads that can be resumed later, the validator is kept
+ * in a <code>.validator</code> file next to the partial file; a partial file
+ * without validator is downloaded again from the start.
+ *
+ * Optionally (Settings.DOWNLOAD_PARALLEL_CONNECTIONS), files that are larger
+ * than a single chunk (Settings.DOWNLOAD_CHUNK_SIZE) are split into byte ranges
+ * that are fetched concurrently over pooled connections, and written at their
+ * position in the preallocated file. The request for the first chunk tells
+ * whether the server supports ranges; if not, its response is the complete
+ * file, and the download continues as a single stream. The other chunks are
+ * requested with the validator of the first; when the file changed, the
+ * download starts over as a single stream.
+ *
+ * When a MessageDigest is given, it is updated with the bytes while they are
+ * written, so the file does not need to be read again to verify its checksum.
+ * Only the parts that were not received in order (a resumed prefix, or the
+ * chunks of a parallel download after the first) are read back from disk.
+ *
+ * Complete files are requested with compression (gzip, deflate; see
+ * Settings.HTTP_COMPRESSION) and decompressed while they are received. Byte
+ * ranges are requested uncompressed, as they refer to positions in the file.
+ */
+public class FileDownloader {
+
+	/**
+	 * Suffix of cache entries that are still being downloaded
+	 */
+	public static final String PART_SUFFIX = ".part";
+
+	/**
+	 * Suffix of the file next to a partial download that holds the validator
+	 * (ETag or Last-Modified) of the version that is being downloaded
+	 */
+	public static final String VALIDATOR_SUFFIX = ".validator";
+
+	private static volatile DownloadListener downloadListener = null;
+
+	private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+
+	/**
+	 * Sets the listener that receives the progress of all downloads
+	 *
+	 * @param listener - the listener, or null to not report progress
+	 */
+	public static void setDownloadListener(DownloadListener listener) {
+		downloadListener = listener;
+	}
+
+	/**
+	 * @return the listener that receives the progress of all downloads, or null
+	 */
+	public static DownloadListener getDownloadListener() {
+		return downloadListener;
+	}
+
+	/**
+	 * Downloads a file. When the connection drops, the download is resumed
+	 * from where it stopped, at most Settings.DOWNLOAD_RESUME_ATTEMPTS times.
+	 *
+	 * @param httpClient - The (pooled) client to execute the requests with
+	 * @param url - The URL to obtain
+	 * @param file - The file to save it to
+	 * @param resume - whether to continue an existing (partial) file, rather than overwriting it
+	 * @return the size of the downloaded file
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static long download(CloseableHttpClient httpClient, URL url, File file, boolean resume) throws Exception {
+		return download(httpClient, url, file, resume, null);
+	}
+
+	/**
+	 * Downloads a file, and computes its digest (e.g., md5) on the fly. When 
+	 * the connection drops, the download is resumed from where it stopped, at 
+	 * most Settings.DOWNLOAD_RESUME_ATTEMPTS times.
+	 *
+	 * @param httpClient - The (pooled) client to execute the requests with
+	 * @param url - The URL to obtain
+	 * @param file - The file to save it to
+	 * @param resume - whether to continue an existing (partial) file, rather than overwriting it
+	 * @param messageDigest - the digest to update with the contents of the complete file, or null
+	 * @return the size of the downloaded file
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static long download(CloseableHttpClient httpClient, URL url, File file, boolean resume, MessageDigest messageDigest) throws Exception {
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			if (!resume) {
+				channel.truncate(0);
+			}
+			File validatorFile = resume ? new File(file.getAbsolutePath() + VALIDATOR_SUFFIX) : null;
+			String validator = null;
+			if (channel.size() > 0) {
+				validator = readValidator(validatorFile);
+				if (validator == null) {
+					Conversion.log("Warning", "Download", "Partial download of " + url + " can not be validated, starting over. ");
+					channel.truncate(0);
+				}
+			}
+			Progress progress = new Progress(url, channel.size(), messageDigest == null ? null : new Digest(messageDigest), validatorFile);
+			progress.validator = validator;
+			if (Settings.DOWNLOAD_PARALLEL_CONNECTIONS > 1 && channel.size() == 0) {
+				try {
+					if (downloadParallel(httpClient, url, channel, progress)) {
+						return complete(channel, progress);
+					}
+				} catch (HttpResponseException | ApiException e) {
+					throw e;
+				} catch (ChangedException e) {
+					Conversion.log("Warning", "Download", e.getMessage() + ", starting over. ");
+					channel.truncate(0);
+					progress.aborted = false;
+				} catch (IOException e) {
+					if (channel.size() == 0) {
+						throw e;
+					}
+					Conversion.log("Warning", "Download", "Parallel download of " + url + " failed after " + channel.size() + " bytes, resuming: " + e.getMessage());
+				}
+			}
+			int attempts = 0;
+			while (true) {
+				long before = channel.size();
+				try {
+					transfer(httpClient, url, channel, progress);
+					return complete(channel, progress);
+				} catch (HttpResponseException | ApiException e) {
+					throw e;
+				} catch (IOException e) {
+					// only resumes when the attempt made progress; otherwise the server is unreachable
+					if (attempts >= Settings.DOWNLOAD_RESUME_ATTEMPTS || channel.size() <= before) {
+						throw e;
+					}
+					attempts += 1;
+					Conversion.log("Warning", "Download", "Connection lost after " + channel.size() + " bytes of " + url + ", resuming: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static long complete(FileChannel channel, Progress progress) throws IOException {
+		if (progress.digest != null) {
+			progress.digest.catchUp(channel, channel.size());
+		}
+		if (progress.validatorFile != null) {
+			progress.validatorFile.delete();
+		}
+		return channel.size();
+	}
+
+	private static void transfer(CloseableHttpClient httpClient, URL url, FileChannel channel, Progress progress) throws Exception {
+		Chunk chunk = new Chunk(channel.size(), -1);
+		try (CloseableHttpResponse response = HttpConnector.execute(httpClient, request(url, chunk, progress.validator))) {
+			int code = response.getStatusLine().getStatusCode();
+			if (chunk.position > 0 && code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+				if (getTotalSize(response) == chunk.position) {
+					// the partial file was complete already
+					progress.reset(chunk.position, chunk.position);
+					progress.add(0);
+					return;
+				}
+				Conversion.log("Warning", "Download", "Could not resume " + url + ", starting over. ");
+				channel.truncate(0);
+				response.close();
+				transfer(httpClient, url, channel, progress);
+				return;
+			} else if (code == HttpStatus.SC_PARTIAL_CONTENT && chunk.position > 0) {
+				if (isChanged(response, progress.validator)) {
+					// the server ignored If-Range
+					Conversion.log("Warning", "Download", url + " changed on the server, starting over. ");
+					channel.truncate(0);
+					response.close();
+					transfer(httpClient, url, channel, progress);
+					return;
+				}
+				checkContentRange(response, url, chunk);
+			} else if (code == HttpStatus.SC_OK) {
+				if (chunk.position > 0) {
+					// the server ignored the range, or the file changed since the partial download
+					channel.truncate(0);
+					chunk.position = 0;
+				}
+				progress.setValidator(response);
+			} else {
+				throw toException(response, url, code);
+			}
+			if (progress.digest != null) {
+				// digests the part that was downloaded before
+				progress.digest.catchUp(channel, chunk.position);
+			}
+			receive(response, url, channel, chunk, progress);
+		}
+	}
+
+	/**
+	 * Downloads a file in parallel chunks. Returns false when the download
+	 * should be continued as a single stream, i.e., when the size of the file is
+	 * unknown. When a chunk fails, the file is truncated to the part that was
+	 * downloaded contiguously, so it can be resumed.
+	 */
+	private static boolean downloadParallel(CloseableHttpClient httpClient, URL url, FileChannel channel, Progress progress) throws Exception {
+		long chunkSize = Settings.DOWNLOAD_CHUNK_SIZE;
+		Chunk first = new Chunk(0, chunkSize - 1);
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		chunks.add(first);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		ExecutorService executor = null;
+		try (CloseableHttpResponse response = HttpConnector.execute(httpClient, request(url, first, null))) {
+			int code = response.getStatusLine().getStatusCode();
+			long total = getTotalSize(response);
+			if (code == HttpStatus.SC_OK || code == HttpStatus.SC_PARTIAL_CONTENT) {
+				// the other chunks have to be of the same version
+				progress.setValidator(response);
+			}
+			if (code == HttpStatus.SC_OK) {
+				// the server does not support ranges, so this is the complete file
+				first.end = -1;
+				receive(response, url, channel, first, progress);
+				return true;
+			} else if (code != HttpStatus.SC_PARTIAL_CONTENT) {
+				throw toException(response, url, code);
+			}
+			checkContentRange(response, url, first);
+			progress.reset(0, total);
+			if (total < 0 || total <= chunkSize) {
+				// a single chunk, or the size is unknown
+				receive(response, url, channel, first, progress);
+				return total >= 0;
+			}
+
+			// preallocates the file, so the chunks can be written in any order
+			channel.write(ByteBuffer.wrap(new byte[1]), total - 1);
+			for (long start = chunkSize; start < total; start += chunkSize) {
+				chunks.add(new Chunk(start, Math.min(start + chunkSize, total) - 1));
+			}
+			int threads = Math.min(Settings.DOWNLOAD_PARALLEL_CONNECTIONS - 1, chunks.size() - 1);
+			executor = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "openml-download");
+				thread.setDaemon(true);
+				return thread;
+			});
+			for (Chunk chunk : chunks.subList(1, chunks.size())) {
+				futures.add(executor.submit(() -> {
+					fetch(httpClient, url, channel, chunk, progress);
+					return null;
+				}));
+			}
+			// meanwhile, this thread receives the first chunk
+			try {
+				receive(response, url, channel, first, progress);
+			} catch (IOException e) {
+				response.close();
+				fetch(httpClient, url, channel, first, progress);
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+			return true;
+		} catch (Exception e) {
+			// stops the other chunks, and waits until they no longer write
+			progress.aborted = true;
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException ignored) {}
+			}
+			truncateToContiguous(channel, chunks);
+			throw e;
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	// downloads the remainder of a chunk, resuming when the connection drops
+	private static void fetch(CloseableHttpClient httpClient, URL url, FileChannel channel, Chunk chunk, Progress progress) throws Exception {
+		int attempts = 0;
+		while (chunk.position <= chunk.end && !progress.aborted) {
+			long before = chunk.position;
+			try (CloseableHttpResponse response = HttpConnector.execute(httpClient, request(url, chunk, progress.validator))) {
+				int code = response.getStatusLine().getStatusCode();
+				if ((code == HttpStatus.SC_OK && progress.validator != null) || (code == HttpStatus.SC_PARTIAL_CONTENT && isChanged(response, progress.validator))) {
+					// the complete file, as it no longer matches If-Range
+					throw new ChangedException(url);
+				} else if (code != HttpStatus.SC_PARTIAL_CONTENT) {
+					throw toException(response, url, code);
+				}
+				checkContentRange(response, url, chunk);
+				receive(response, url, channel, chunk, progress);
+			} catch (IOException e) {
+				if (e instanceof HttpResponseException || e instanceof ChangedException || attempts >= Settings.DOWNLOAD_RESUME_ATTEMPTS || chunk.position <= before) {
+					throw e;
+				}
+				attempts += 1;
+			}
+		}
+	}
+
+	private static void truncateToContiguous(FileChannel channel, List<Chunk> chunks) throws IOException {
+		long contiguous = 0;
+		for (Chunk chunk : chunks) {
+			contiguous = chunk.position;
+			if (chunk.end < 0 || chunk.position <= chunk.end) {
+				break;
+			}
+		}
+		channel.truncate(contiguous);
+	}
+
+	// copies the response body to the file, at the position of the chunk
+	private static void receive(CloseableHttpResponse response, URL url, FileChannel channel, Chunk chunk, Progress progress) throws Exception {
+		HttpEntity entity = response.getEntity();
+		if (entity == null || (chunk.position == 0 && entity.getContentLength() == 0)) {
+			throw new ApiException(1, "Webserver returned empty result (possibly due to temporarily high load). Please try again. ");
+		}
+		long end = entity.getContentLength() < 0 ? -1 : chunk.position + entity.getContentLength();
+		if (chunk.end < 0) {
+			progress.reset(chunk.position, end);
+		}
+		ByteBuffer buffer = getBuffer();
+		try (ReadableByteChannel in = Channels.newChannel(entity.getContent())) {
+			boolean eof = false;
+			while (!eof) {
+				if (progress.aborted) {
+					throw new IOException("Download of " + url + " was aborted");
+				}
+				buffer.clear();
+				try {
+					while (buffer.hasRemaining()) {
+						if (in.read(buffer) < 0) {
+							eof = true;
+							break;
+						}
+					}
+				} finally {
+					// also keeps what was received before the connection dropped
+					buffer.flip();
+					int received = buffer.remaining();
+					if (progress.digest != null) {
+						progress.digest.update(buffer.duplicate(), chunk.position);
+					}
+					while (buffer.hasRemaining()) {
+						chunk.position += channel.write(buffer, chunk.position);
+					}
+					progress.add(received);
+				}
+			}
+		}
+		if (end >= 0 && chunk.position < end) {
+			throw new IOException("Premature end of download of " + url + ": " + chunk.position + " of " + end + " bytes");
+		}
+	}
+
+	private static HttpGet request(URL url, Chunk chunk, String validator) throws Exception {
+		// Compared to FileUtils.copyURLToFile this can handle http -> https redirects
+		HttpGet httpget = new HttpGet(url.toURI());
+		// TODO: JvR: would be cool to add to also add a version number, but this is hard.
+		httpget.addHeader("User-Agent", "OpenML-Java");
+		if (chunk.position > 0 || chunk.end >= 0) {
+			httpget.addHeader(HttpHeaders.RANGE, "bytes=" + chunk.position + "-" + (chunk.end >= 0 ? chunk.end : ""));
+			// ranges of a compressed response would not correspond to positions in the file
+			httpget.addHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+			if (validator != null) {
+				// the complete file instead, if it changed
+				httpget.addHeader(HttpHeaders.IF_RANGE, validator);
+			}
+		}
+		return httpget;
+	}
+
+	// the validator of a response: its ETag (weak ones can not be used in If-Range), or its Last-Modified date
+	private static String getValidator(CloseableHttpResponse response) {
+		Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+		if (etag != null && !etag.getValue().startsWith("W/")) {
+			return etag.getValue();
+		}
+		Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+		return lastModified == null ? null : lastModified.getValue();
+	}
+
+	// whether a partial response is of another version than the one being downloaded
+	private static boolean isChanged(CloseableHttpResponse response, String validator) {
+		String current = getValidator(response);
+		return validator != null && current != null && !current.equals(validator);
+	}
+
+	private static String readValidator(File validatorFile) {
+		if (validatorFile == null || !validatorFile.exists()) {
+			return null;
+		}
+		try {
+			String validator = new String(Files.readAllBytes(validatorFile.toPath()), StandardCharsets.UTF_8).trim();
+			return validator.isEmpty() ? null : validator;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void checkContentRange(CloseableHttpResponse response, URL url, Chunk chunk) throws IOException {
+		Header range = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+		if (range == null || !range.getValue().startsWith("bytes " + chunk.position + "-")) {
+			throw new IOException("Unexpected content range for " + url + ": " + (range == null ? null : range.getValue()));
+		}
+	}
+
+	private static HttpResponseException toException(CloseableHttpResponse response, URL url, int code) throws Exception {
+		String responseString = HttpConnector.readHttpResponse(response, url, "get File", 0);
+		return new HttpResponseException(code, responseString);
+	}
+
+	// the total size in a Content-Range header (e.g., bytes 0-99/1234), or -1
+	private static long getTotalSize(CloseableHttpResponse response) {
+		Header range = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+		if (range == null || range.getValue().indexOf('/') < 0) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(range.getValue().substring(range.getValue().indexOf('/') + 1).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static ByteBuffer getBuffer() {
+		ByteBuffer buffer = buffers.get();
+		if (buffer == null || buffer.capacity() != Settings.DOWNLOAD_BUFFER_SIZE) {
+			buffer = ByteBuffer.allocateDirect(Settings.DOWNLOAD_BUFFER_SIZE);
+			buffers.set(buffer);
+		}
+		return buffer;
+	}
+
+	// a digest of the file, as far as it was received in order
+	private static class Digest {
+		private final MessageDigest messageDigest;
+		private long position = 0;
+
+		private Digest(MessageDigest messageDigest) {
+			this.messageDigest = messageDigest;
+			messageDigest.reset();
+		}
+
+		private synchronized void update(ByteBuffer bytes, long at) {
+			if (at == position) {
+				position += bytes.remaining();
+				messageDigest.update(bytes);
+			}
+		}
+
+		// reads the bytes up to the given position that were not received in order
+		private synchronized void catchUp(FileChannel channel, long until) throws IOException {
+			if (position > until) {
+				messageDigest.reset();
+				position = 0;
+			}
+			ByteBuffer buffer = getBuffer();
+			while (position < until) {
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), until - position));
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					throw new IOException("Unexpected end of file at " + position);
+				}
+				buffer.flip();
+				update(buffer, position);
+			}
+		}
+	}
+
+	// thrown when a chunk of a parallel download is of another version than the first
+	private static class ChangedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private ChangedException(URL url) {
+			super(url + " changed on the server during the download");
+		}
+	}
+
+	// a byte range of the file; end is inclusive, -1 for the end of the file
+	private static class Chunk {
+		private volatile long position;
+		private long end;
+
+		private Chunk(long position, long end) {
+			this.position = position;
+			this.end = end;
+		}
+	}
+
+	private static class Progress {
+		private final URL url;
+		private final long start = System.nanoTime();
+		private final long initial;
+		private final AtomicLong transferred;
+		private final Digest digest;
+		// where the validator is kept for a later resume, or null
+		private final File validatorFile;
+		private volatile long total = -1;
+		// set when a parallel download failed
+		private volatile boolean aborted = false;
+		// of the version that is being downloaded, or null if unknown
+		private volatile String validator;
+
+		private Progress(URL url, long initial, Digest digest, File validatorFile) {
+			this.url = url;
+			this.initial = initial;
+			this.digest = digest;
+			this.validatorFile = validatorFile;
+			this.transferred = new AtomicLong(initial);
+		}
+
+		// records the validator of a response that starts the download (again)
+		private void setValidator(CloseableHttpResponse response) throws IOException {
+			validator = getValidator(response);
+			if (validatorFile == null) {
+				return;
+			}
+			if (validator == null) {
+				validatorFile.delete();
+			} else {
+				Files.write(validatorFile.toPath(), validator.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		private void reset(long transferred, long total) {
+			this.transferred.set(transferred);
+			this.total = total;
+		}
+
+		private void add(long bytes) {
+			long value = transferred.addAndGet(bytes);
+			DownloadListener listener = downloadListener;
+			if (listener != null) {
+				double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+				listener.progress(url, value, total, Math.max(value - initial, 0) / seconds);
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package org.openml.apiconnector.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.settings.Settings;
+
+/**
+ * Persistent map from the name and external version of a flow to its id on
+ * a server, such that resolving the flow of a learner (flowExists, or
+ * flowUpload if it did not exist) costs a request only the first time. The
+ * map is stored in the cache directory, per server.
+ */
+class FlowIdCache {
+
+	private static final String CACHE_SUFFIX = "flows/ids.properties";
+
+	private static final Map<File, FlowIdCache> caches = new ConcurrentHashMap<File, FlowIdCache>();
+
+	private final File file;
+	private final Properties ids = new Properties();
+
+	private FlowIdCache(File file) {
+		this.file = file;
+		if (file.exists()) {
+			try (InputStream is = new FileInputStream(file)) {
+				ids.load(is);
+			} catch (IOException | IllegalArgumentException e) {
+				Conversion.log("Warning", "Flow Cache", "Could not read " + file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @param server - the url of the server
+	 * @return the flow ids of the server, or null if the cache is not allowed
+	 * @throws IOException - problem with the url
+	 */
+	static FlowIdCache get(URL server) throws IOException {
+		if (!Settings.CACHE_ALLOWED) {
+			return null;
+		}
+		File file = HttpCacheController.getCacheLocation(server, CACHE_SUFFIX).getCanonicalFile();
+		return caches.computeIfAbsent(file, FlowIdCache::new);
+	}
+
+	/**
+	 * @return the id of the flow, or null if not known
+	 */
+	synchronized Integer get(String name, String externalVersion) {
+		String id = ids.getProperty(getKey(name, externalVersion));
+		return id == null ? null : Integer.valueOf(id);
+	}
+
+	synchronized void put(String name, String externalVersion, int id) {
+		if (!Integer.toString(id).equals(ids.setProperty(getKey(name, externalVersion), Integer.toString(id)))) {
+			store();
+		}
+	}
+
+	/**
+	 * Forgets a flow, e.g., after it was deleted
+	 */
+	synchronized void remove(int id) {
+		if (ids.values().removeIf(value -> value.equals(Integer.toString(id)))) {
+			store();
+		}
+	}
+
+	private static String getKey(String name, String externalVersion) {
+		return name + "\t" + externalVersion;
+	}
+
+	// replaces the file at once, such that concurrent readers never see half of it
+	private void store() {
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			File temp = new File(file.getPath() + HttpCacheController.TEMP_SUFFIX);
+			try (OutputStream os = new FileOutputStream(temp)) {
+				ids.store(os, "name and external version to flow id");
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// only costs requests
+			Conversion.log("Warning", "Flow Cache", "Could not store " + file + ": " + e.getMessage());
+		}
+	}
+}
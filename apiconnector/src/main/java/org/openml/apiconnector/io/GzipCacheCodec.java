@@ -0,0 +1,58 @@
+package org.openml.apiconnector.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+
+/**
+ * Stores api responses in the format of another codec, compressed with gzip
+ * (at the fastest level). Used when Settings.CACHE_COMPRESSION is set; reading
+ * decompresses while the other codec parses the stream.
+ */
+public class GzipCacheCodec implements CacheCodec {
+
+	public static final String EXTENSION = ".gz";
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final CacheCodec codec;
+
+	/**
+	 * @param codec - the codec of which the output is compressed
+	 */
+	public GzipCacheCodec(CacheCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	public String getName() {
+		return codec.getName() + "+gzip";
+	}
+
+	@Override
+	public File getLocation(File cachedData) {
+		return new File(codec.getLocation(cachedData).getPath() + EXTENSION);
+	}
+
+	@Override
+	public void write(OpenmlApiResponse response, OutputStream out) throws IOException {
+		GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE) {
+			{
+				def.setLevel(Deflater.BEST_SPEED);
+			}
+		};
+		codec.write(response, gzip);
+		gzip.finish();
+	}
+
+	@Override
+	public OpenmlApiResponse read(InputStream in) throws IOException {
+		return codec.read(new GZIPInputStream(in, BUFFER_SIZE));
+	}
+}
@@ -1,24 +1,65 @@
 package org.openml.apiconnector.io;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.openml.apiconnector.algorithms.Conversion;
 import org.openml.apiconnector.settings.Config;
 import org.openml.apiconnector.settings.Settings;
 import org.openml.apiconnector.xml.OpenmlApiResponse;
-import org.openml.apiconnector.xstream.XstreamXmlMapping;
-
-import com.thoughtworks.xstream.XStream;
 
 public class HttpCacheController extends HttpConnector {
 	
 	private static final long serialVersionUID = 1257139667469866906L;
-	private static XStream xstream = XstreamXmlMapping.getInstance();
+	
+	private static final Map<String, CacheCodec> cacheCodecs = new ConcurrentHashMap<String, CacheCodec>();
+	private static final Map<String, CacheCodec> compressedCodecs = new ConcurrentHashMap<String, CacheCodec>();
+	static {
+		registerCacheCodec(new XmlCacheCodec());
+		registerCacheCodec(new BinaryCacheCodec());
+	}
+	
+	private static final RequestCoalescer<OpenmlApiResponse> misses = new RequestCoalescer<OpenmlApiResponse>();
+	
+	private static final int REVALIDATION_THREADS = 2;
+	private static final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+	private static final ExecutorService revalidator = Executors.newFixedThreadPool(REVALIDATION_THREADS, runnable -> {
+		Thread thread = new Thread(runnable, "openml-revalidate");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// cached files whose contents were verified (or are being verified) in this session
+	private static final Set<String> verified = ConcurrentHashMap.newKeySet();
+	private static final ExecutorService verifier = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "openml-verify");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Suffix of files that are being written to the cache
+	 */
+	public static final String TEMP_SUFFIX = ".tmp";
 	
 	/**
 	 * Performs a HTTP get call, and caches it locally, if allowed
@@ -32,26 +73,329 @@ public class HttpCacheController extends HttpConnector {
 	 *             - Can be: server down, problem with URL, etc
 	 */
 	public static OpenmlApiResponse doApiGetRequest(URL url, String cacheSuffix, String ash, int apiVerboseLevel) throws Exception {
+		return doApiGetRequest(ConnectionPool.getDefault().getHttpClient(), url, cacheSuffix, ash, apiVerboseLevel);
+	}
+	
+	/**
+	 * Performs a HTTP get call, and caches it locally, if allowed
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param cacheSuffix - where to store this file in the cache tree
+	 * @param apiVerboseLevel - for verbosity
+	 * @param ash - api key to authenticate
+	 * @return Object - string response wrapped as object
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static OpenmlApiResponse doApiGetRequest(CloseableHttpClient httpclient, URL url, String cacheSuffix, String ash, int apiVerboseLevel) throws Exception {
+		return doApiGetRequest(httpclient, url, cacheSuffix, ash, apiVerboseLevel, Settings.CACHE_MAX_AGE);
+	}
+	
+	/**
+	 * Performs a HTTP get call, and caches it locally, if allowed. The cached 
+	 * response is revalidated with the server once it is older than a 
+	 * maximum age, e.g., for responses that are known to change. 
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param cacheSuffix - where to store this file in the cache tree
+	 * @param apiVerboseLevel - for verbosity
+	 * @param ash - api key to authenticate
+	 * @param maxAge - age (ms) after which the cached response is revalidated. -1 to never revalidate
+	 * @return Object - string response wrapped as object
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static OpenmlApiResponse doApiGetRequest(CloseableHttpClient httpclient, URL url, String cacheSuffix, String ash, int apiVerboseLevel, long maxAge) throws Exception {
+		if (!Settings.CACHE_ALLOWED) {
+			return HttpConnector.doApiGetRequest(httpclient, url, ash, apiVerboseLevel);
+		}
 		File cachedData = getCacheLocation(url, cacheSuffix);
-		if (cachedData.exists() && Settings.CACHE_ALLOWED) {
-			Conversion.log("OK", "Cache", "Obtained from cache: " + cacheSuffix);
-			return (OpenmlApiResponse) xstream.fromXML(cachedData);
-		} else {
-			// do request
-			OpenmlApiResponse apiResult = HttpConnector.doApiGetRequest(url, ash, apiVerboseLevel);
+		OpenmlApiResponse cached = readFromCache(url, cachedData, cacheSuffix);
+		if (cached != null) {
+			if (!isStale(cachedData, maxAge)) {
+				return cached;
+			}
+			if (Settings.CACHE_STALE_WHILE_REVALIDATE) {
+				revalidateInBackground(httpclient, url, cachedData, cacheSuffix, ash, apiVerboseLevel, cached, maxAge);
+				return cached;
+			}
+			return revalidate(httpclient, url, cachedData, cacheSuffix, ash, apiVerboseLevel, cached, maxAge);
+		}
+		if (!Settings.HTTP_COALESCE_REQUESTS) {
+			return fetch(httpclient, url, cachedData, cacheSuffix, ash, apiVerboseLevel);
+		}
+		// concurrent threads that miss the same entry share the request
+		return misses.execute(cachedData.getAbsolutePath() + " " + ash, 
+				() -> fetch(httpclient, url, cachedData, cacheSuffix, ash, apiVerboseLevel));
+	}
+	
+	/**
+	 * Requests a response that is not in the cache, and stores it. 
+	 */
+	private static OpenmlApiResponse fetch(CloseableHttpClient httpclient, URL url, File cachedData, String cacheSuffix, 
+			String ash, int apiVerboseLevel) throws Exception {
+		CacheLock lock = CacheLock.acquire(cachedData);
+		try {
+			// another thread or process might have stored it while we were waiting
+			OpenmlApiResponse cached = readFromCache(url, cachedData, cacheSuffix);
+			if (cached != null) {
+				return cached;
+			}
 			
-			if (Settings.CACHE_ALLOWED) {
-				// make directories
-				cachedData.getParentFile().mkdirs();
-				
-				// save to file
-				BufferedWriter bw = new BufferedWriter(new FileWriter(cachedData));
-				bw.append(xstream.toXML(apiResult));
-				bw.close();
-				Conversion.log("OK", "Cache", "Stored to cache: " + cacheSuffix);
+			// do request
+			ConditionalResponse response = HttpConnector.doConditionalApiGetRequest(httpclient, url, ash, apiVerboseLevel, null, null);
+			storeInCache(url, cachedData, cacheSuffix, response);
+			return response.getResponse();
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Returns a response from the cache, without contacting the server
+	 * 
+	 * @param url - The URL of the request
+	 * @param cacheSuffix - where the response is stored in the cache tree
+	 * @return the response, or null if it is not in the cache, or stale
+	 * @throws IOException - problem reading the cache
+	 */
+	public static OpenmlApiResponse getCachedResponse(URL url, String cacheSuffix) throws IOException {
+		if (!Settings.CACHE_ALLOWED) {
+			return null;
+		}
+		File cachedData = getCacheLocation(url, cacheSuffix);
+		OpenmlApiResponse cached = readFromCache(url, cachedData, cacheSuffix);
+		return cached != null && !isStale(cachedData, Settings.CACHE_MAX_AGE) ? cached : null;
+	}
+	
+	/**
+	 * Removes a response from the cache (memory and disk), e.g., after the 
+	 * entity was changed on the server. 
+	 * 
+	 * @param url - The URL of the request
+	 * @param cacheSuffix - where the response is stored in the cache tree
+	 * @throws IOException - problem locking the cache entry
+	 */
+	public static void removeCachedResponse(URL url, String cacheSuffix) throws IOException {
+		if (Settings.CACHE_ALLOWED) {
+			File cachedData = getCacheLocation(url, cacheSuffix);
+			List<File> locations = new ArrayList<File>();
+			for (CacheCodec codec : getCacheCodecs()) {
+				File location = codec.getLocation(cachedData);
+				if (location.exists()) {
+					locations.add(location);
+				}
+			}
+			if (!locations.isEmpty()) {
+				// not while it is being read, or revalidated
+				CacheLock lock = CacheLock.acquire(cachedData);
+				try {
+					for (File location : locations) {
+						CacheManager.getInstance().remove(location);
+					}
+				} finally {
+					lock.release();
+				}
+				Conversion.log("OK", "Cache", "Removed from cache: " + cacheSuffix);
 			}
-			return apiResult;
 		}
+		ResponseCache.getInstance().invalidate(url.toString());
+	}
+	
+	/**
+	 * Returns whether a cache entry was validated longer than maxAge (ms) ago
+	 */
+	private static boolean isStale(File cachedData, long maxAge) {
+		if (maxAge < 0) {
+			return false;
+		}
+		File location = getStoredLocation(cachedData);
+		if (location == null) {
+			return false;
+		}
+		return System.currentTimeMillis() - CacheManager.getInstance().getValidationTime(location) > maxAge;
+	}
+	
+	/**
+	 * @return the file a cache entry is stored in (which depends on the codec), or null if not stored
+	 */
+	private static File getStoredLocation(File cachedData) {
+		for (CacheCodec codec : getCacheCodecs()) {
+			File location = codec.getLocation(cachedData);
+			if (CacheManager.getInstance().getValidationTime(location) >= 0) {
+				return location;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Asks the server whether a stale cache entry is still up to date, using the 
+	 * validators of the entry (conditional get). Stores the new version if it is not. 
+	 * 
+	 * @return the up to date response
+	 */
+	private static OpenmlApiResponse revalidate(CloseableHttpClient httpclient, URL url, File cachedData, String cacheSuffix, 
+			String ash, int apiVerboseLevel, OpenmlApiResponse cached, long maxAge) throws Exception {
+		CacheLock lock = CacheLock.acquire(cachedData);
+		try {
+			// another thread might have revalidated it while we were waiting
+			if (!isStale(cachedData, maxAge)) {
+				OpenmlApiResponse current = readFromCache(url, cachedData, cacheSuffix);
+				return current != null ? current : cached;
+			}
+			CacheManager cache = CacheManager.getInstance();
+			File location = getStoredLocation(cachedData);
+			ConditionalResponse response;
+			try {
+				response = HttpConnector.doConditionalApiGetRequest(httpclient, url, ash, apiVerboseLevel, 
+						cache.getEtag(location), cache.getLastModified(location));
+			} catch (CircuitOpenException e) {
+				// the server is failing, a stale response is better than none
+				if (!Settings.CIRCUIT_BREAKER_SERVE_STALE) {
+					throw e;
+				}
+				Conversion.log("Warning", "Cache", "Serving stale entry " + cacheSuffix + ": " + e.getMessage());
+				return cached;
+			}
+			if (response.isNotModified()) {
+				cache.setValidators(location, response.getEtag(), response.getLastModified());
+				Conversion.log("OK", "Cache", "Revalidated: " + cacheSuffix);
+				return cached;
+			}
+			storeInCache(url, cachedData, cacheSuffix, response);
+			return response.getResponse();
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Revalidates a stale cache entry on a background thread, unless that is 
+	 * already happening. 
+	 */
+	private static void revalidateInBackground(CloseableHttpClient httpclient, URL url, File cachedData, String cacheSuffix, 
+			String ash, int apiVerboseLevel, OpenmlApiResponse cached, long maxAge) {
+		final String key = cachedData.getAbsolutePath();
+		if (!revalidating.add(key)) {
+			return;
+		}
+		revalidator.execute(() -> {
+			try {
+				revalidate(httpclient, url, cachedData, cacheSuffix, ash, apiVerboseLevel, cached, maxAge);
+			} catch (Exception e) {
+				Conversion.log("Warning", "Cache", "Could not revalidate " + cacheSuffix + ": " + e.getMessage());
+			} finally {
+				revalidating.remove(key);
+			}
+		});
+	}
+	
+	/**
+	 * Reads a response from the cache: from memory, or from disk, trying the 
+	 * codecs in order of preference. 
+	 * Entries that can not be read (e.g., written by an incompatible version) are 
+	 * removed. 
+	 * 
+	 * @return the response, or null if it is not (readable) in the cache
+	 */
+	private static OpenmlApiResponse readFromCache(URL url, File cachedData, String cacheSuffix) throws IOException {
+		if (ResponseCache.isEnabled()) {
+			OpenmlApiResponse cached = ResponseCache.getInstance().get(url.toString());
+			if (cached != null) {
+				// counts as an access of the disk entry, so it is not evicted for being idle
+				for (CacheCodec codec : getCacheCodecs()) {
+					if (CacheManager.getInstance().access(codec.getLocation(cachedData))) {
+						return cached;
+					}
+				}
+				// not in the disk cache (anymore), e.g., because the cache directory changed
+				ResponseCache.getInstance().invalidate(url.toString());
+			}
+		}
+		for (CacheCodec codec : getCacheCodecs()) {
+			File location = codec.getLocation(cachedData);
+			if (!CacheManager.getInstance().touch(location)) {
+				continue;
+			}
+			try (InputStream in = new FileInputStream(location)) {
+				OpenmlApiResponse apiResult = codec.read(in);
+				ResponseCache.getInstance().put(url.toString(), apiResult, location.length());
+				Conversion.log("OK", "Cache", "Obtained from cache: " + cacheSuffix);
+				return apiResult;
+			} catch (IOException e) {
+				Conversion.log("Warning", "Cache", "Could not read " + codec.getName() + " cache entry " + cacheSuffix + ": " + e.getMessage());
+				CacheManager.getInstance().remove(location);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Stores a response in the cache, with the preferred codec. Falls back on 
+	 * the next codec if the response can not be represented in its format. 
+	 */
+	private static void storeInCache(URL url, File cachedData, String cacheSuffix, ConditionalResponse response) throws IOException {
+		OpenmlApiResponse apiResult = response.getResponse();
+		for (CacheCodec codec : getCacheCodecs()) {
+			File location = codec.getLocation(cachedData);
+			File temp = createTempFile(location);
+			try {
+				try (OutputStream out = new FileOutputStream(temp)) {
+					codec.write(apiResult, out);
+				}
+				moveAtomically(temp, location);
+			} catch (IOException e) {
+				Conversion.log("Warning", "Cache", "Could not store " + cacheSuffix + " with " + codec.getName() + " codec: " + e.getMessage());
+				continue;
+			} finally {
+				temp.delete();
+			}
+			CacheManager.getInstance().put(location, url.toString(), null);
+			CacheManager.getInstance().setValidators(location, response.getEtag(), response.getLastModified());
+			ResponseCache.getInstance().put(url.toString(), apiResult, location.length());
+			Conversion.log("OK", "Cache", "Stored to cache: " + cacheSuffix);
+			return;
+		}
+	}
+	
+	/**
+	 * Registers a format in which responses can be cached. It is used when its 
+	 * name is configured as cache codec (Settings.CACHE_CODEC). 
+	 * 
+	 * @param codec - the codec
+	 */
+	public static void registerCacheCodec(CacheCodec codec) {
+		cacheCodecs.put(codec.getName(), codec);
+		compressedCodecs.remove(codec.getName());
+	}
+	
+	/**
+	 * @return the codecs in order of preference: the configured one, then xml. 
+	 * With compression, the compressed version of the configured one comes first, 
+	 * otherwise last (so entries stored before remain readable). 
+	 */
+	static List<CacheCodec> getCacheCodecs() {
+		CacheCodec xml = cacheCodecs.get(XmlCacheCodec.NAME);
+		CacheCodec preferred = cacheCodecs.get(Settings.CACHE_CODEC);
+		if (preferred == null) {
+			preferred = xml;
+		}
+		CacheCodec compressed = compressedCodecs.computeIfAbsent(preferred.getName(), name -> new GzipCacheCodec(cacheCodecs.get(name)));
+		List<CacheCodec> codecs = new ArrayList<CacheCodec>();
+		if (Settings.CACHE_COMPRESSION) {
+			codecs.add(compressed);
+		}
+		codecs.add(preferred);
+		if (preferred != xml) {
+			codecs.add(xml);
+		}
+		if (!Settings.CACHE_COMPRESSION) {
+			codecs.add(compressed);
+		}
+		return codecs;
 	}
 	
 	/**
@@ -65,18 +409,202 @@ public class HttpCacheController extends HttpConnector {
 	 *             - Can be: server down, problem with URL, etc
 	 */
 	public static File getCachedFileFromUrl(URL url, String cacheSuffix) throws Exception {
+		return getCachedFileFromUrl(ConnectionPool.getDefault().getHttpClient(), url, cacheSuffix);
+	}
+	
+	/**
+	 * Returns a file from the openml server and if allowed, caches it locally (otherwise
+	 * returns a temp file)
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to obtain
+	 * @param cacheSuffix - path to save the file
+	 * @return File - a pointer to the file that was saved.
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static File getCachedFileFromUrl(CloseableHttpClient httpclient, URL url, String cacheSuffix) throws Exception {
+		return getCachedFileFromUrl(httpclient, url, cacheSuffix, null);
+	}
+	
+	/**
+	 * Returns a file from the openml server and if allowed, caches it locally (otherwise
+	 * returns a temp file). When its md5 checksum is given, the download is 
+	 * verified against it (and downloaded again if it does not match), as 
+	 * is the cached file (see Settings.CACHE_LAZY_VERIFICATION). 
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to obtain
+	 * @param cacheSuffix - path to save the file
+	 * @param md5 - the expected md5 checksum of the file, or null if unknown
+	 * @return File - a pointer to the file that was saved.
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, checksum mismatch, etc
+	 */
+	public static File getCachedFileFromUrl(CloseableHttpClient httpclient, URL url, String cacheSuffix, String md5) throws Exception {
 		File cachedData = getCacheLocation(url, cacheSuffix);
-		if (cachedData.exists() && Settings.CACHE_ALLOWED) {
+		if (!Settings.CACHE_ALLOWED) {
+			// returns a temp file
+			File file = File.createTempFile("openml-", FilenameUtils.getExtension(cachedData.getName()));
+			file.deleteOnExit();
+			downloadVerified(httpclient, url, file, false, md5);
+			return file;
+		}
+		// without the lock, only when the index confirms the file
+		if (CacheManager.getInstance().touch(cachedData) && verifyCached(cachedData, cacheSuffix, md5, false)) {
 			Conversion.log("OK", "Cache", "Obtained from cache: " + cacheSuffix);
 			return cachedData;
-		} else {
-			if (Settings.CACHE_ALLOWED) {
-				// saves it to file
-				return HttpConnector.getFileFromUrl(url, cachedData.getAbsolutePath(), null);
-			} else {
-				// returns a temp file
-				return HttpConnector.getFileFromUrl(url, null, FilenameUtils.getExtension(cachedData.getName()));
+		}
+		CacheLock lock = CacheLock.acquire(cachedData);
+		try {
+			// another thread or process might have downloaded it while we were waiting
+			if (CacheManager.getInstance().touch(cachedData) && verifyCached(cachedData, cacheSuffix, md5, true)) {
+				Conversion.log("OK", "Cache", "Obtained from cache: " + cacheSuffix);
+				return cachedData;
+			}
+			// saves it to a part file, that only becomes visible when complete. 
+			// An interrupted download is resumed by the next attempt
+			File part = new File(cachedData.getAbsolutePath() + FileDownloader.PART_SUFFIX);
+			String checksum;
+			try {
+				checksum = downloadVerified(httpclient, url, part, true, md5);
+			} catch (Exception e) {
+				if (part.length() == 0) {
+					part.delete();
+				}
+				throw e;
+			}
+			moveAtomically(part, cachedData);
+			CacheManager.getInstance().put(cachedData, url.toString(), checksum);
+			verified.add(cachedData.getAbsolutePath());
+			return cachedData;
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Downloads a file while computing its md5 checksum. When it does not match
+	 * the expected checksum, the file is downloaded once more (from scratch). 
+	 * 
+	 * @return the md5 checksum of the file
+	 */
+	private static String downloadVerified(CloseableHttpClient httpclient, URL url, File file, boolean resume, String md5) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("MD5");
+		for (int attempt = 0; ; ++attempt) {
+			FileDownloader.download(httpclient, url, file, resume, digest);
+			String checksum = CacheManager.toHex(digest.digest());
+			if (md5 == null || !Settings.CACHE_VERIFY_CHECKSUMS || checksum.equalsIgnoreCase(md5)) {
+				return checksum;
+			}
+			if (attempt > 0) {
+				file.delete();
+				throw new IOException("Checksum mismatch for " + url + ": expected " + md5 + ", obtained " + checksum);
+			}
+			Conversion.log("Warning", "Download", "Checksum mismatch for " + url + ", downloading again. ");
+			resume = false;
+		}
+	}
+	
+	/**
+	 * Checks a cached file against its expected checksum. A file with a 
+	 * different checksum in the index (e.g., of an older version) is removed. 
+	 * Otherwise, its contents are verified: in the background when lazy
+	 * verification is enabled, or right away if the index does not know its 
+	 * checksum (e.g., placed by an older version). 
+	 * 
+	 * Files are only read and removed while the lock of the entry is held;
+	 * without it, a file that can not be confirmed from the index is reported
+	 * as unusable, so the caller checks it again under the lock.
+	 * 
+	 * @return whether the cached file can be used
+	 */
+	private static boolean verifyCached(File cachedData, String cacheSuffix, String md5, boolean locked) throws IOException {
+		if (md5 == null || !Settings.CACHE_VERIFY_CHECKSUMS) {
+			return true;
+		}
+		CacheManager cache = CacheManager.getInstance();
+		String checksum = cache.getChecksum(cachedData);
+		if (checksum != null && !checksum.equalsIgnoreCase(md5)) {
+			if (!locked) {
+				return false;
+			}
+			Conversion.log("Warning", "Cache", "Checksum of " + cacheSuffix + " does not match, downloading again. ");
+			cache.remove(cachedData);
+			return false;
+		}
+		if (Settings.CACHE_LAZY_VERIFICATION) {
+			verifyInBackground(cachedData, cacheSuffix, md5);
+			return true;
+		}
+		if (checksum == null) {
+			if (!locked) {
+				return false;
+			}
+			checksum = CacheManager.md5(cachedData);
+			if (!checksum.equalsIgnoreCase(md5)) {
+				Conversion.log("Warning", "Cache", "Checksum of " + cacheSuffix + " does not match, downloading again. ");
+				cache.remove(cachedData);
+				return false;
+			}
+			cache.setChecksum(cachedData, checksum);
+		}
+		return true;
+	}
+	
+	/**
+	 * Verifies the contents of a cached file on a background thread, once per
+	 * session. A corrupted file is removed, so it will be downloaded again the 
+	 * next time it is requested. 
+	 */
+	private static void verifyInBackground(File cachedData, String cacheSuffix, String md5) {
+		if (!verified.add(cachedData.getAbsolutePath())) {
+			return;
+		}
+		verifier.execute(() -> {
+			try {
+				CacheLock lock = CacheLock.acquire(cachedData);
+				try {
+					if (!cachedData.exists()) {
+						return;
+					}
+					String checksum = CacheManager.md5(cachedData);
+					if (checksum.equalsIgnoreCase(md5)) {
+						CacheManager.getInstance().setChecksum(cachedData, checksum);
+					} else {
+						Conversion.log("Warning", "Cache", "Checksum of " + cacheSuffix + " does not match, removed it from the cache. ");
+						CacheManager.getInstance().remove(cachedData);
+						verified.remove(cachedData.getAbsolutePath());
+					}
+				} finally {
+					lock.release();
+				}
+			} catch (IOException e) {
+				Conversion.log("Warning", "Cache", "Could not verify " + cacheSuffix + ": " + e.getMessage());
+				verified.remove(cachedData.getAbsolutePath());
 			}
+		});
+	}
+	
+	/**
+	 * Creates a temp file in the directory of a cache entry, so it can be
+	 * renamed to the entry atomically. 
+	 */
+	private static File createTempFile(File cachedData) throws IOException {
+		File directory = cachedData.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		return File.createTempFile(cachedData.getName() + ".", TEMP_SUFFIX, directory);
+	}
+	
+	/**
+	 * Moves a file in place, such that other readers either see no file or the 
+	 * complete file. 
+	 */
+	static void moveAtomically(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
 	
@@ -31,7 +31,6 @@
 package org.openml.apiconnector.io;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
@@ -39,21 +38,23 @@ import java.io.StringWriter;
 import java.net.URL;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
 import org.openml.apiconnector.settings.Constants;
+import org.openml.apiconnector.settings.Settings;
 import org.openml.apiconnector.xml.ApiError;
 import org.openml.apiconnector.xml.OpenmlApiResponse;
+import org.openml.apiconnector.xstream.StreamingListReader;
 import org.openml.apiconnector.xstream.XstreamXmlMapping;
 
 import com.thoughtworks.xstream.XStream;
@@ -61,6 +62,12 @@ import com.thoughtworks.xstream.XStream;
 public class HttpConnector implements Serializable {
 
 	private static final long serialVersionUID = -8589069573065947493L;
+	
+	private static final XStream xstream = XstreamXmlMapping.getInstance();
+	
+	private static volatile RetryPolicy retryPolicy = null;
+	
+	private static final RequestCoalescer<OpenmlApiResponse> getRequests = new RequestCoalescer<OpenmlApiResponse>();
 
 	/**
 	 * Performs a HTTP post call
@@ -75,14 +82,30 @@ public class HttpConnector implements Serializable {
 	 */
 	public static OpenmlApiResponse doApiPostRequest(URL url, MultipartEntity entity, String ash, int apiVerboseLevel)
 			throws Exception {
+		return doApiPostRequest(ConnectionPool.getDefault().getHttpClient(), url, entity, ash, apiVerboseLevel);
+	}
+
+	/**
+	 * Performs a HTTP post call
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param entity - The post variables
+	 * @param ash - api key to authenticate
+	 * @param apiVerboseLevel - for verbosity
+	 * @return Object - string response wrapped as object
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static OpenmlApiResponse doApiPostRequest(CloseableHttpClient httpclient, URL url, MultipartEntity entity, String ash, int apiVerboseLevel)
+			throws Exception {
 		if (ash == null) {
 			throw new Exception("Api key not set. ");
 		}
 		entity.addPart("api_key", new StringBody(ash));
-		CloseableHttpClient httpclient = HttpClients.createDefault();
 		HttpPost httppost = new HttpPost(url.toString());
 		httppost.setEntity(entity);
-		CloseableHttpResponse response = httpclient.execute(httppost);
+		CloseableHttpResponse response = execute(httpclient, httppost);
 		return wrapHttpResponse(response, url, "POST", apiVerboseLevel);
 	}
 
@@ -97,13 +120,125 @@ public class HttpConnector implements Serializable {
 	 *             - Can be: server down, problem with URL, etc
 	 */
 	public static OpenmlApiResponse doApiGetRequest(URL url, String ash, int apiVerboseLevel) throws Exception {
+		return doApiGetRequest(ConnectionPool.getDefault().getHttpClient(), url, ash, apiVerboseLevel);
+	}
+
+	/**
+	 * Performs a HTTP get call. Threads that do the same call at the same 
+	 * time share a single request, and receive the same response object 
+	 * (or exception), unless disabled (Settings.HTTP_COALESCE_REQUESTS). 
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param ash - api key to authenticate
+	 * @param apiVerboseLevel - for verbosity
+	 * @return Object - string response wrapped as object
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static OpenmlApiResponse doApiGetRequest(CloseableHttpClient httpclient, URL url, String ash, int apiVerboseLevel) throws Exception {
+		final URL requestUrl = ash != null ? new URL(url + "?api_key=" + ash) : url;
+		if (!Settings.HTTP_COALESCE_REQUESTS) {
+			return doGet(httpclient, requestUrl, apiVerboseLevel);
+		}
+		return getRequests.execute(requestUrl.toString(), () -> doGet(httpclient, requestUrl, apiVerboseLevel));
+	}
+	
+	private static OpenmlApiResponse doGet(CloseableHttpClient httpclient, URL url, int apiVerboseLevel) throws Exception {
+		HttpGet httpget = new HttpGet(url.toString());
+		CloseableHttpResponse response = execute(httpclient, httpget);
+		return wrapHttpResponse(response, url, "GET", apiVerboseLevel);
+	}
+	
+	/**
+	 * Performs a conditional HTTP get call: when the validators of the cached 
+	 * version are given, the server can respond that it was not modified, 
+	 * without sending it again. 
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param ash - api key to authenticate
+	 * @param apiVerboseLevel - for verbosity
+	 * @param etag - the ETag of the cached version (If-None-Match), or null
+	 * @param lastModified - the Last-Modified date of the cached version (If-Modified-Since), or null
+	 * @return the response (or the notice that it was not modified) and its validators
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static ConditionalResponse doConditionalApiGetRequest(CloseableHttpClient httpclient, URL url, String ash, int apiVerboseLevel, 
+			String etag, String lastModified) throws Exception {
 		if (ash != null) {
 			url = new URL(url + "?api_key=" + ash);
 		}
-		CloseableHttpClient httpclient = HttpClients.createDefault();
 		HttpGet httpget = new HttpGet(url.toString());
-		CloseableHttpResponse response = httpclient.execute(httpget);
-		return wrapHttpResponse(response, url, "GET", apiVerboseLevel);
+		if (etag != null) {
+			httpget.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		}
+		if (lastModified != null) {
+			httpget.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		}
+		CloseableHttpResponse response = execute(httpclient, httpget);
+		String newEtag = getHeader(response, HttpHeaders.ETAG);
+		String newLastModified = getHeader(response, HttpHeaders.LAST_MODIFIED);
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+			// releases the connection back to the pool
+			response.close();
+			if (apiVerboseLevel >= Constants.VERBOSE_LEVEL_XML) {
+				System.out.println("===== REQUEST URI (GET): " + url + " (Status Code: 304) =====\n");
+			}
+			return new ConditionalResponse(null, newEtag != null ? newEtag : etag, newLastModified != null ? newLastModified : lastModified);
+		}
+		return new ConditionalResponse(wrapHttpResponse(response, url, "GET", apiVerboseLevel), newEtag, newLastModified);
+	}
+	
+	private static String getHeader(CloseableHttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header == null ? null : header.getValue();
+	}
+	
+	/**
+	 * Performs a HTTP get call on a list endpoint, and parses the list elements 
+	 * directly from the response stream, one at a time. The reader holds on to 
+	 * the connection until it is closed. 
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param ash - api key to authenticate
+	 * @param apiVerboseLevel - for verbosity
+	 * @param elementName - the name of the list elements (e.g., oml:evaluation)
+	 * @param elementClass - the class the list elements are mapped to
+	 * @param <T> - the type of the list elements
+	 * @return a reader over the list elements, that should be closed after use
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static <T> StreamingListReader<T> doApiGetListRequest(CloseableHttpClient httpclient, URL url, String ash, int apiVerboseLevel, 
+			String elementName, Class<T> elementClass) throws Exception {
+		if (ash != null) {
+			url = new URL(url + "?api_key=" + ash);
+		}
+		HttpGet httpget = new HttpGet(url.toString());
+		CloseableHttpResponse response = execute(httpclient, httpget);
+		StreamingListReader<T> reader;
+		try {
+			HttpEntity entity = response.getEntity();
+			if (entity == null || entity.getContentLength() == 0) {
+				throw new ApiException(1, "Webserver returned empty result (possibly due to temporarily high load). Please try again. ");
+			}
+			if (apiVerboseLevel >= Constants.VERBOSE_LEVEL_XML) {
+				System.out.println("===== REQUEST URI (GET, streaming): " + url + " (Status Code: " + response.getStatusLine().getStatusCode() 
+						+ ", Content Length: " + entity.getContentLength() + ") =====\n");
+			}
+			reader = new StreamingListReader<T>(entity.getContent(), elementName, elementClass, response);
+		} catch (Exception e) {
+			response.close();
+			throw e;
+		}
+		if (reader.getError() != null) {
+			reader.close();
+			throw toApiException(reader.getError());
+		}
+		return reader;
 	}
 	
 	/**
@@ -117,13 +252,27 @@ public class HttpConnector implements Serializable {
 	 *             - Can be: server down, problem with URL, etc
 	 */
 	public static OpenmlApiResponse doApiDeleteRequest(URL url, String ash, int apiVerboseLevel) throws Exception {
+		return doApiDeleteRequest(ConnectionPool.getDefault().getHttpClient(), url, ash, apiVerboseLevel);
+	}
+
+	/**
+	 * Performs a HTTP delete call
+	 * 
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param url - The URL to do the request on
+	 * @param ash - api key to authenticate
+	 * @param apiVerboseLevel - for verbosity
+	 * @return Object - string response wrapped as object
+	 * @throws Exception
+	 *             - Can be: server down, problem with URL, etc
+	 */
+	public static OpenmlApiResponse doApiDeleteRequest(CloseableHttpClient httpclient, URL url, String ash, int apiVerboseLevel) throws Exception {
 		if (ash == null) {
 			throw new Exception("Api key not set. ");
 		}
 
-		CloseableHttpClient httpclient = HttpClients.createDefault();
 		HttpDelete httpdelete = new HttpDelete(url + "?api_key=" + ash);
-		CloseableHttpResponse response = httpclient.execute(httpdelete);
+		CloseableHttpResponse response = execute(httpclient, httpdelete);
 		return wrapHttpResponse(response, url, "DELETE", apiVerboseLevel);
 	}
 	
@@ -139,10 +288,10 @@ public class HttpConnector implements Serializable {
 	 *             - Can be: server down, problem with URL, etc
 	 */
 	public static File getTempFileFromUrl(URL url, String extension) throws Exception {
-		return getFileFromUrl(url, null, extension);
+		return getFileFromUrl(ConnectionPool.getDefault().getHttpClient(), url, null, extension);
 	}
 	
-	protected static File getFileFromUrl(URL url, String filepath, String extension) throws Exception {
+	protected static File getFileFromUrl(CloseableHttpClient httpClient, URL url, String filepath, String extension) throws Exception {
 		File file;
 		if (filepath == null && extension != null) {
 			file = File.createTempFile("openml-", extension);
@@ -152,30 +301,54 @@ public class HttpConnector implements Serializable {
 		} else {
 			throw new Exception("set filepath xor extension argument");
 		}
-        CloseableHttpClient httpClient = HttpClientBuilder.create().build();
-        // Compared to FileUtils.copyURLToFile this can handle http -> https redirects
-        HttpGet httpget = new HttpGet(url.toURI());
-        // TODO: JvR: would be cool to add to also add a version number, but this is hard. 
-        httpget.addHeader("User-Agent", "OpenML-Java");
-        CloseableHttpResponse response = httpClient.execute(httpget);
-        
-        int code = response.getStatusLine().getStatusCode();
-		if (code != HttpStatus.SC_OK) {
-			String responseString = readHttpResponse(response, url, "get File", 0);
-			throw new HttpResponseException(code, responseString);
-		}
-        HttpEntity entity = response.getEntity();
-        if (entity.getContentLength() == 0) {
-        	throw new ApiException(1, "Webserver returned empty result (possibly due to temporarily high load). Please try again. ");
-        }
-        file.getParentFile().mkdirs();
-        FileOutputStream fos = new java.io.FileOutputStream(file);
-        entity.writeTo(fos);
-        fos.close();
-        
+		FileDownloader.download(httpClient, url, file, false);
 		return file;
 	}
 
+	/**
+	 * Sets the policy for retrying requests that failed because of a transient problem
+	 * 
+	 * @param policy - the policy, or null to use the one configured in the settings
+	 */
+	public static void setRetryPolicy(RetryPolicy policy) {
+		retryPolicy = policy;
+	}
+	
+	/**
+	 * Executes a request, with retries according to the retry policy, unless 
+	 * the circuit breaker of its endpoint family is open
+	 * 
+	 * @throws CircuitOpenException - the server failed repeatedly, the request is not sent
+	 */
+	static CloseableHttpResponse execute(CloseableHttpClient httpclient, HttpRequestBase request) throws IOException {
+		RetryPolicy policy = retryPolicy != null ? retryPolicy : RetryPolicy.fromSettings();
+		CircuitBreaker breaker = CircuitBreaker.get(request.getURI());
+		if (breaker == null) {
+			return policy.execute(httpclient, request);
+		}
+		breaker.acquire();
+		CloseableHttpResponse response;
+		try {
+			response = policy.execute(httpclient, request);
+		} catch (IOException e) {
+			if (Thread.currentThread().isInterrupted()) {
+				breaker.onCancel();
+			} else {
+				breaker.onFailure();
+			}
+			throw e;
+		} catch (RuntimeException e) {
+			breaker.onCancel();
+			throw e;
+		}
+		if (CircuitBreaker.isFailure(request.getMethod(), response)) {
+			breaker.onFailure();
+		} else {
+			breaker.onSuccess();
+		}
+		return response;
+	}
+
 	private static OpenmlApiResponse wrapHttpResponse(CloseableHttpResponse response, URL url, String requestType,
 			int apiVerboseLevel) throws Exception {
 		String result = readHttpResponse(response, url, requestType, apiVerboseLevel);
@@ -183,20 +356,22 @@ public class HttpConnector implements Serializable {
 			throw new ApiException(1,
 					"Webserver returned empty result (possibly due to temporarily high load). Please try again. ");
 		}
-		XStream xstreamClient = XstreamXmlMapping.getInstance();
-		OpenmlApiResponse apiResult = (OpenmlApiResponse) xstreamClient.fromXML(result);
+		OpenmlApiResponse apiResult = (OpenmlApiResponse) xstream.fromXML(result);
 		if (apiResult instanceof ApiError) {
-			ApiError apiError = (ApiError) apiResult;
-			String message = apiError.getMessage();
-			if (apiError.getAdditional_information() != null) {
-				message += ": " + apiError.getAdditional_information();
-			}
-			throw new ApiException(Integer.parseInt(apiError.getCode()), message);
+			throw toApiException((ApiError) apiResult);
 		}
 		return apiResult;
 	}
+	
+	private static ApiException toApiException(ApiError apiError) {
+		String message = apiError.getMessage();
+		if (apiError.getAdditional_information() != null) {
+			message += ": " + apiError.getAdditional_information();
+		}
+		return new ApiException(Integer.parseInt(apiError.getCode()), message);
+	}
 
-	private static String readHttpResponse(CloseableHttpResponse response, URL url, String requestType,
+	static String readHttpResponse(CloseableHttpResponse response, URL url, String requestType,
 			int apiVerboseLevel) throws Exception {
 		String result = "";
 		HttpEntity resEntity = response.getEntity();
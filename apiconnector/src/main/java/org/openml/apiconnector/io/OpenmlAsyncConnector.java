@@ -0,0 +1,450 @@
+package org.openml.apiconnector.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Data;
+import org.openml.apiconnector.xml.DataFeature;
+import org.openml.apiconnector.xml.DataQuality;
+import org.openml.apiconnector.xml.DataQualityList;
+import org.openml.apiconnector.xml.DataSetDescription;
+import org.openml.apiconnector.xml.DataUnprocessed;
+import org.openml.apiconnector.xml.EstimationProcedure;
+import org.openml.apiconnector.xml.EstimationProcedures;
+import org.openml.apiconnector.xml.EvaluationList;
+import org.openml.apiconnector.xml.EvaluationRequest;
+import org.openml.apiconnector.xml.FileUpload;
+import org.openml.apiconnector.xml.Flow;
+import org.openml.apiconnector.xml.FlowExists;
+import org.openml.apiconnector.xml.Run;
+import org.openml.apiconnector.xml.RunEvaluation;
+import org.openml.apiconnector.xml.RunList;
+import org.openml.apiconnector.xml.RunTrace;
+import org.openml.apiconnector.xml.SetupDifferences;
+import org.openml.apiconnector.xml.SetupExists;
+import org.openml.apiconnector.xml.SetupParameters;
+import org.openml.apiconnector.xml.Study;
+import org.openml.apiconnector.xml.StudyList;
+import org.openml.apiconnector.xml.Task;
+import org.openml.apiconnector.xml.TaskInputs;
+import org.openml.apiconnector.xml.Tasks;
+
+/**
+ * Non-blocking counterpart of the OpenmlConnector. Every call is executed on
+ * an executor and immediately returns a CompletableFuture, which completes
+ * with the result of the call or exceptionally with the exception that the
+ * blocking call would have thrown. At most a fixed number of requests is in
+ * flight at the same time; additional requests wait for a free slot. 
+ * 
+ * All calls are done by the wrapped connector, and thus share its connection
+ * pool and cache. 
+ */
+public class OpenmlAsyncConnector implements Closeable {
+	
+	private final OpenmlConnector connector;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final Semaphore inFlight;
+	private final int maxInFlight;
+	
+	/**
+	 * Creates an asynchronous connector, allowing as many requests in flight
+	 * as the connection pool allows connections per host. 
+	 * 
+	 * @param connector - the connector that executes the calls
+	 */
+	public OpenmlAsyncConnector(OpenmlConnector connector) {
+		this(connector, Settings.HTTP_MAX_CONNECTIONS_PER_ROUTE);
+	}
+	
+	/**
+	 * Creates an asynchronous connector, backed by virtual threads where 
+	 * available (Java 21+) and a fixed thread pool otherwise. 
+	 * 
+	 * @param connector - the connector that executes the calls
+	 * @param maxInFlight - maximum number of requests that are executed concurrently
+	 */
+	public OpenmlAsyncConnector(OpenmlConnector connector, int maxInFlight) {
+		this(connector, defaultExecutor(maxInFlight), maxInFlight, true);
+	}
+	
+	/**
+	 * Creates an asynchronous connector with a user provided executor. The 
+	 * executor is not shut down when this connector is closed. 
+	 * 
+	 * @param connector - the connector that executes the calls
+	 * @param executor - the executor on which the calls are executed
+	 * @param maxInFlight - maximum number of requests that are executed concurrently
+	 */
+	public OpenmlAsyncConnector(OpenmlConnector connector, ExecutorService executor, int maxInFlight) {
+		this(connector, executor, maxInFlight, false);
+	}
+	
+	private OpenmlAsyncConnector(OpenmlConnector connector, ExecutorService executor, int maxInFlight, boolean ownsExecutor) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight should be at least 1");
+		}
+		this.connector = connector;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight, true);
+	}
+	
+	private static ExecutorService defaultExecutor(int maxInFlight) {
+		try {
+			// virtual threads are only available from Java 21 onwards
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(maxInFlight, runnable -> {
+				Thread thread = new Thread(runnable, "openml-async");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * @return the blocking connector that executes the calls
+	 */
+	public OpenmlConnector getConnector() {
+		return connector;
+	}
+	
+	/**
+	 * @return the number of requests that is currently executed
+	 */
+	public int getInFlight() {
+		return maxInFlight - inFlight.availablePermits();
+	}
+	
+	/**
+	 * @return the number of requests that waits for a free slot
+	 */
+	public int getQueued() {
+		return inFlight.getQueueLength();
+	}
+	
+	/**
+	 * Executes an arbitrary call asynchronously, respecting the in-flight limit. 
+	 * Can be used for connector functions that have no asynchronous counterpart. 
+	 * 
+	 * @param call - the call, typically a lambda invoking the blocking connector
+	 * @param <T> - the result type of the call
+	 * @return a future that completes with the result of the call
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call) {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		executor.execute(() -> {
+			try {
+				inFlight.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.completeExceptionally(e);
+				return;
+			}
+			try {
+				future.complete(call.call());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			} finally {
+				inFlight.release();
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataGet(int)}
+	 */
+	public CompletableFuture<DataSetDescription> dataGet(int did) {
+		return submit(() -> connector.dataGet(did));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#datasetGet(DataSetDescription)}
+	 */
+	public CompletableFuture<File> datasetGet(DataSetDescription dsd) {
+		return submit(() -> connector.datasetGet(dsd));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#datasetGetCsv(DataSetDescription)}
+	 */
+	public CompletableFuture<File> datasetGetCsv(DataSetDescription dsd) {
+		return submit(() -> connector.datasetGetCsv(dsd));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataFeatures(int)}
+	 */
+	public CompletableFuture<DataFeature> dataFeatures(int did) {
+		return submit(() -> connector.dataFeatures(did));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataList(Map)}
+	 */
+	public CompletableFuture<Data> dataList(Map<String, String> filters) {
+		return submit(() -> connector.dataList(filters));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataQualities(int, Integer)}
+	 */
+	public CompletableFuture<DataQuality> dataQualities(int did, Integer evalEngine) {
+		return submit(() -> connector.dataQualities(did, evalEngine));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataQualitiesCached(int, Integer)}
+	 */
+	public CompletableFuture<DataQuality> dataQualitiesCached(int did, Integer evalEngine) {
+		return submit(() -> connector.dataQualitiesCached(did, evalEngine));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataQualitiesList()}
+	 */
+	public CompletableFuture<DataQualityList> dataQualitiesList() {
+		return submit(() -> connector.dataQualitiesList());
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#dataUnprocessed(int, String)}
+	 */
+	public CompletableFuture<DataUnprocessed> dataUnprocessed(int evaluationEngineId, String mode) {
+		return submit(() -> connector.dataUnprocessed(evaluationEngineId, mode));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#estimationProcedureGet(int)}
+	 */
+	public CompletableFuture<EstimationProcedure> estimationProcedureGet(int id) {
+		return submit(() -> connector.estimationProcedureGet(id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#estimationProcedureList()}
+	 */
+	public CompletableFuture<EstimationProcedures> estimationProcedureList() {
+		return submit(() -> connector.estimationProcedureList());
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#taskGet(int)}
+	 */
+	public CompletableFuture<Task> taskGet(int task_id) {
+		return submit(() -> connector.taskGet(task_id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#taskSplitsGet(Task)}
+	 */
+	public CompletableFuture<File> taskSplitsGet(Task task) {
+		return submit(() -> connector.taskSplitsGet(task));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#taskInputs(int)}
+	 */
+	public CompletableFuture<TaskInputs> taskInputs(int task_id) {
+		return submit(() -> connector.taskInputs(task_id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#taskList(Map)}
+	 */
+	public CompletableFuture<Tasks> taskList(Map<String, String> filters) {
+		return submit(() -> connector.taskList(filters));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#flowGet(int)}
+	 */
+	public CompletableFuture<Flow> flowGet(int flow_id) {
+		return submit(() -> connector.flowGet(flow_id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#flowExists(String, String)}
+	 */
+	public CompletableFuture<FlowExists> flowExists(String name, String external_version) {
+		return submit(() -> connector.flowExists(name, external_version));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#runList(Map, Integer, Integer)}
+	 */
+	public CompletableFuture<RunList> runList(Map<String, List<Integer>> filters, Integer limit, Integer offset) {
+		return submit(() -> connector.runList(filters, limit, offset));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#runGet(int)}
+	 */
+	public CompletableFuture<Run> runGet(int runId) {
+		return submit(() -> connector.runGet(runId));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#runTrace(int)}
+	 */
+	public CompletableFuture<RunTrace> runTrace(int trace_id) {
+		return submit(() -> connector.runTrace(trace_id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#evaluationList(List, List, String, Integer)}
+	 */
+	public CompletableFuture<EvaluationList> evaluationList(List<Integer> task_id, List<Integer> setup_id, String function, Integer limit) {
+		return submit(() -> connector.evaluationList(task_id, setup_id, function, limit));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#evaluationRequest(int, String, int, Map)}
+	 */
+	public CompletableFuture<EvaluationRequest> evaluationRequest(int evaluationEngineId, String mode, int numRequests, Map<String, String> additionalFilters) {
+		return submit(() -> connector.evaluationRequest(evaluationEngineId, mode, numRequests, additionalFilters));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#setupParameters(int)}
+	 */
+	public CompletableFuture<SetupParameters> setupParameters(int setup_id) {
+		return submit(() -> connector.setupParameters(setup_id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#setupExists(File)}
+	 */
+	public CompletableFuture<SetupExists> setupExists(File description) {
+		return submit(() -> connector.setupExists(description));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#setupDifferences(Integer, Integer, Integer)}
+	 */
+	public CompletableFuture<SetupDifferences> setupDifferences(Integer setupA, Integer setupB, Integer task_id) {
+		return submit(() -> connector.setupDifferences(setupA, setupB, task_id));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#studyGet(String, String)}
+	 */
+	public CompletableFuture<Study> studyGet(String studyAlias, String dataType) {
+		return submit(() -> connector.studyGet(studyAlias, dataType));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#studyGet(int)}
+	 */
+	public CompletableFuture<Study> studyGet(int studyId) {
+		return submit(() -> connector.studyGet(studyId));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#studyGet(int, String)}
+	 */
+	public CompletableFuture<Study> studyGet(int studyId, String dataType) {
+		return submit(() -> connector.studyGet(studyId, dataType));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#studyList(Map)}
+	 */
+	public CompletableFuture<StudyList> studyList(Map<String, String> filters) {
+		return submit(() -> connector.studyList(filters));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlBasicConnector#fileUpload(File)}
+	 */
+	public CompletableFuture<FileUpload> fileUpload(File file) {
+		return submit(() -> connector.fileUpload(file));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#dataUpload(DataSetDescription, File)}
+	 */
+	public CompletableFuture<Integer> dataUpload(DataSetDescription dsd, File dataset) {
+		return submit(() -> connector.dataUpload(dsd, dataset));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#dataFeaturesUpload(DataFeature)}
+	 */
+	public CompletableFuture<Integer> dataFeaturesUpload(DataFeature features) {
+		return submit(() -> connector.dataFeaturesUpload(features));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#dataQualitiesUpload(DataQuality)}
+	 */
+	public CompletableFuture<Integer> dataQualitiesUpload(DataQuality qualities) {
+		return submit(() -> connector.dataQualitiesUpload(qualities));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#flowUpload(Flow)}
+	 */
+	public CompletableFuture<Integer> flowUpload(Flow flow) {
+		return submit(() -> connector.flowUpload(flow));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#runUpload(Run, Map)}
+	 */
+	public CompletableFuture<Integer> runUpload(Run run, Map<String, File> outputFiles) {
+		return submit(() -> connector.runUpload(run, outputFiles));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#runEvaluate(RunEvaluation)}
+	 */
+	public CompletableFuture<Integer> runEvaluate(RunEvaluation runEvaluation) {
+		return submit(() -> connector.runEvaluate(runEvaluation));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#runTraceUpload(RunTrace)}
+	 */
+	public CompletableFuture<Integer> runTraceUpload(RunTrace trace) {
+		return submit(() -> connector.runTraceUpload(trace));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#studyUpload(Study)}
+	 */
+	public CompletableFuture<Integer> studyUpload(Study study) {
+		return submit(() -> connector.studyUpload(study));
+	}
+
+	/**
+	 * Asynchronous version of {@link OpenmlConnector#taskUpload(TaskInputs)}
+	 */
+	public CompletableFuture<Integer> taskUpload(TaskInputs task) {
+		return submit(() -> connector.taskUpload(task));
+	}
+	
+	/**
+	 * Shuts down the executor, if it was created by this connector. Requests 
+	 * that are already submitted are still executed. 
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+}
@@ -32,27 +32,58 @@ package org.openml.apiconnector.io;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntity;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.StringBody;
+import org.apache.http.pool.PoolStats;
 import org.openml.apiconnector.algorithms.Conversion;
 import org.openml.apiconnector.algorithms.TaskInformation;
 import org.openml.apiconnector.settings.Constants;
 import org.openml.apiconnector.settings.Settings;
 import org.openml.apiconnector.xml.*;
 import org.openml.apiconnector.xml.Task.Input.Estimation_procedure;
+import org.openml.apiconnector.xstream.StreamingListReader;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.DataFormatException;
 
-public class OpenmlBasicConnector implements Serializable {
+public class OpenmlBasicConnector implements Serializable, Closeable {
 	private static final long serialVersionUID = 7362620508675762264L;
+	
+	/**
+	 * Error codes the server uses to indicate that a list has no (more) results
+	 */
+	private static final int RUN_LIST_NO_RESULTS = 512;
+	private static final int EVALUATION_LIST_NO_RESULTS = 542;
+	private static final ContentType GZIP = ContentType.create("application/gzip");
 
 	/**
 	 * When set to true, API will output information.
@@ -65,6 +96,17 @@ public class OpenmlBasicConnector implements Serializable {
 	
 	protected String apiPart = "api/v1/";
 	
+	/**
+	 * Pool of http connections, shared by all requests of this connector. 
+	 * Created on first use, unless set explicitly. 
+	 */
+	private transient ConnectionPool connectionPool = null;
+	
+	/**
+	 * Whether the connection pool was created by (and should be closed by) this connector
+	 */
+	private transient boolean ownsConnectionPool = false;
+	
 	/**
 	 * @return Return the api key that is used to authenticate with
 	 */
@@ -120,6 +162,188 @@ public class OpenmlBasicConnector implements Serializable {
 	}
 
 
+	/**
+	 * Returns the pool of http connections that is used by this connector
+	 * 
+	 * @return the connection pool
+	 */
+	public synchronized ConnectionPool getConnectionPool() {
+		if (connectionPool == null) {
+			connectionPool = new ConnectionPool();
+			ownsConnectionPool = true;
+		}
+		return connectionPool;
+	}
+	
+	/**
+	 * Sets the pool of http connections to be used by this connector. Can be
+	 * used to share a pool between several connectors. A pool that is set
+	 * this way is not closed by this connector. 
+	 * 
+	 * @param connectionPool - the connection pool
+	 */
+	public synchronized void setConnectionPool(ConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+		this.ownsConnectionPool = false;
+	}
+	
+	/**
+	 * Returns statistics of the connection pool
+	 * 
+	 * @return the number of leased, pending, available and max connections
+	 */
+	public PoolStats getConnectionPoolStatistics() {
+		return getConnectionPool().getStatistics();
+	}
+	
+	/**
+	 * Closes the connection pool, if it was created by this connector
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (connectionPool != null && ownsConnectionPool) {
+			connectionPool.close();
+		}
+		connectionPool = null;
+	}
+	
+	protected OpenmlApiResponse doApiGetRequest(URL request) throws Exception {
+		return HttpConnector.doApiGetRequest(getConnectionPool().getHttpClient(), request, getApiKey(), verboseLevel);
+	}
+	
+	protected <T> Stream<T> doApiGetListRequest(URL request, String elementName, Class<T> elementClass) throws Exception {
+		StreamingListReader<T> reader = HttpConnector.doApiGetListRequest(getConnectionPool().getHttpClient(), request, getApiKey(), verboseLevel, elementName, elementClass);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+	
+	protected <T> Stream<T> doApiGetPagedListRequest(PagedListIterator.PageLoader<T> loader, int pageSize, int concurrentPages, Integer total) {
+		PagedListIterator<T> pager = new PagedListIterator<T>(loader, pageSize, concurrentPages, total);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pager, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(pager::close);
+	}
+	
+	/**
+	 * Obtains a single page of a list, as used by the paged list requests. An
+	 * error with the code that the server uses to indicate that there are no
+	 * (more) results yields an empty page.
+	 */
+	private <T> List<T> getListPage(URL request, String elementName, Class<T> elementClass, int noResultsCode) throws Exception {
+		try (Stream<T> stream = doApiGetListRequest(request, elementName, elementClass)) {
+			return stream.collect(Collectors.toList());
+		} catch (ApiException e) {
+			if (e.getCode() == noResultsCode) {
+				return new ArrayList<T>();
+			}
+			throw e;
+		}
+	}
+	
+	protected OpenmlApiResponse doCachedApiGetRequest(URL request, String cacheSuffix) throws Exception {
+		return HttpCacheController.doApiGetRequest(getConnectionPool().getHttpClient(), request, cacheSuffix, getApiKey(), verboseLevel);
+	}
+	
+	protected OpenmlApiResponse doCachedApiGetRequest(URL request, String cacheSuffix, long maxAge) throws Exception {
+		return HttpCacheController.doApiGetRequest(getConnectionPool().getHttpClient(), request, cacheSuffix, getApiKey(), verboseLevel, maxAge);
+	}
+	
+	protected OpenmlApiResponse doApiPostRequest(URL request, MultipartEntity params) throws Exception {
+		return HttpConnector.doApiPostRequest(getConnectionPool().getHttpClient(), request, params, getApiKey(), verboseLevel);
+	}
+	
+	// the content of an upload part, for verbose output
+	private static String bodyToString(ContentBody body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		body.writeTo(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+	
+	protected OpenmlApiResponse doApiDeleteRequest(URL request) throws Exception {
+		return HttpConnector.doApiDeleteRequest(getConnectionPool().getHttpClient(), request, getApiKey(), verboseLevel);
+	}
+	
+	protected File getCachedFileFromUrl(URL url, String cacheSuffix) throws Exception {
+		return getCachedFileFromUrl(url, cacheSuffix, null);
+	}
+	
+	protected File getCachedFileFromUrl(URL url, String cacheSuffix, String md5) throws Exception {
+		return HttpCacheController.getCachedFileFromUrl(getConnectionPool().getHttpClient(), url, cacheSuffix, md5);
+	}
+	
+	protected OpenmlApiResponse getFromCache(URL request, String cacheSuffix) throws IOException {
+		return HttpCacheController.getCachedResponse(request, cacheSuffix);
+	}
+	
+	/**
+	 * Obtains the entities of a collection of ids. Every id is obtained once. 
+	 * Entities that are in the cache are returned from there, the others are 
+	 * loaded concurrently (at most Settings.BULK_PARALLELISM at a time). An id 
+	 * that can not be obtained gets an error in the result. 
+	 * 
+	 * @param ids - the ids
+	 * @param cached - looks up an entity in the cache, returns null if absent. Null if not cached
+	 * @param loader - loads an entity
+	 * @return the entities and errors per id
+	 * @throws InterruptedException - interrupted while waiting for the entities
+	 */
+	protected <T> BulkResult<T> doBulkGetRequest(Collection<Integer> ids, BulkResult.Loader<T> cached, BulkResult.Loader<T> loader) throws InterruptedException {
+		Set<Integer> unique = new LinkedHashSet<Integer>(ids);
+		unique.remove(null);
+		Map<Integer, T> found = new HashMap<Integer, T>();
+		Map<Integer, Exception> errors = new LinkedHashMap<Integer, Exception>();
+		List<Integer> misses = new ArrayList<Integer>();
+		for (int id : unique) {
+			T entity = null;
+			if (cached != null) {
+				try {
+					entity = cached.load(id);
+				} catch (Exception e) {
+					// loaded from the server instead
+				}
+			}
+			if (entity != null) {
+				found.put(id, entity);
+			} else {
+				misses.add(id);
+			}
+		}
+		if (!misses.isEmpty()) {
+			int threads = Math.max(1, Math.min(Settings.BULK_PARALLELISM, misses.size()));
+			ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "openml-bulk");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				Map<Integer, Future<T>> futures = new LinkedHashMap<Integer, Future<T>>();
+				for (int id : misses) {
+					futures.put(id, executor.submit(() -> loader.load(id)));
+				}
+				for (Map.Entry<Integer, Future<T>> future : futures.entrySet()) {
+					try {
+						found.put(future.getKey(), future.getValue().get());
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						errors.put(future.getKey(), cause instanceof Exception ? (Exception) cause : e);
+					}
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		Map<Integer, T> results = new LinkedHashMap<Integer, T>();
+		for (int id : unique) {
+			if (found.containsKey(id)) {
+				results.put(id, found.get(id));
+			}
+		}
+		return new BulkResult<T>(results, errors);
+	}
+
 	/**
 	 * Returns an XSD file
 	 * 
@@ -137,6 +361,8 @@ public class OpenmlBasicConnector implements Serializable {
 
 	/**
 	 * Retrieves the description of a specified data set. Uses cache, if allowed. 
+	 * The description may be shared with other callers (see ResponseCache), 
+	 * so it should not be modified. 
 	 * 
 	 * @param did - The data_id of the data description to download.
 	 * @return DataSetDescription - An object containing the description of the data
@@ -147,10 +373,24 @@ public class OpenmlBasicConnector implements Serializable {
 	public DataSetDescription dataGet(int did) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "data/" + did);
 		String cacheSuffix = "datasets/" + did + "/description.xml";
-		Object apiResult = HttpCacheController.doApiGetRequest(request, cacheSuffix, getApiKey(), verboseLevel);
+		Object apiResult = doCachedApiGetRequest(request, cacheSuffix);
 		return (DataSetDescription) apiResult;
 	}
 
+	/**
+	 * Retrieves the descriptions of multiple data sets, concurrently. Uses 
+	 * cache, if allowed. 
+	 * 
+	 * @param dids - The data_ids of the data descriptions to download (duplicates are obtained once)
+	 * @return the descriptions per data_id, and the errors of the data_ids that could not be obtained
+	 * @throws InterruptedException - interrupted while waiting for the descriptions
+	 */
+	public BulkResult<DataSetDescription> dataGet(Collection<Integer> dids) throws InterruptedException {
+		return doBulkGetRequest(dids, 
+				did -> (DataSetDescription) getFromCache(new URL(openmlUrl + apiPart + "data/" + did), "datasets/" + did + "/description.xml"), 
+				this::dataGet);
+	}
+
 	/**
 	 * Retrieves a dataset in ARFF format. Uses cache, if allowed. 
 	 * 
@@ -163,7 +403,8 @@ public class OpenmlBasicConnector implements Serializable {
 	public File datasetGet(DataSetDescription dsd) throws Exception {
 		String cacheSuffix = "datasets/" + dsd.getId() + "/dataset.arff";
 		URL fileUrl = getOpenmlFileUrl(dsd.getFile_id(), dsd.getName());
-		return HttpCacheController.getCachedFileFromUrl(fileUrl, cacheSuffix);
+		// the checksum is of the arff file
+		return getCachedFileFromUrl(fileUrl, cacheSuffix, dsd.getMd5_checksum());
 	}
 	
 	/**
@@ -178,17 +419,21 @@ public class OpenmlBasicConnector implements Serializable {
 	public File datasetGetCsv(DataSetDescription dsd) throws Exception {
 		String cacheSuffix = "datasets/" + dsd.getId() + "/dataset.csv";
 		URL fileUrl = getOpenmlFileUrl(dsd.getFile_id(), dsd.getName(), "get_csv");
-		return HttpCacheController.getCachedFileFromUrl(fileUrl, cacheSuffix);
+		return getCachedFileFromUrl(fileUrl, cacheSuffix);
 	}
 	
 	protected UploadDataSet dataUpload(File description, File dataset) throws Exception {
+		return dataUpload(new FileBody(description), dataset);
+	}
+	
+	protected UploadDataSet dataUpload(ContentBody description, File dataset) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 		if (dataset != null) {
 			params.addPart("dataset", new FileBody(dataset));
 		}
 		URL request = new URL(openmlUrl + apiPart + "data/");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (UploadDataSet) apiResult;
 	}
 	
@@ -203,7 +448,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public DataDelete dataDelete(int did) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "data/" + did);
-		Object apiResult = HttpConnector.doApiDeleteRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiDeleteRequest(request);
 		return (DataDelete) apiResult;
 	}
 	
@@ -219,7 +464,7 @@ public class OpenmlBasicConnector implements Serializable {
 	public DataReset dataReset(int did) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "data/reset/" + did);
 		MultipartEntity params = new MultipartEntity();
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (DataReset) apiResult;
 	}
 	
@@ -239,7 +484,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("status", new StringBody(status));
 		
 		URL request = new URL(openmlUrl + apiPart + "data/status/update");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (DataStatusUpdate) apiResult;
 	}
 	
@@ -259,7 +504,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "data/tag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (DataTag) apiResult;
 	}
 	
@@ -279,7 +524,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "data/untag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		
 		return (DataUntag) apiResult;
 	}
@@ -297,7 +542,7 @@ public class OpenmlBasicConnector implements Serializable {
 	public DataFeature dataFeatures(int did) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "data/features/" + did);
 		String cacheSuffix = "datasets/" + did + "/features.xml";
-		Object apiResult = HttpCacheController.doApiGetRequest(request, cacheSuffix, getApiKey(), verboseLevel);
+		Object apiResult = doCachedApiGetRequest(request, cacheSuffix);
 		return (DataFeature) apiResult;
 	}
 	
@@ -311,19 +556,38 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	public Data dataList(Map<String, String> filters) throws Exception {
+		Object apiResult = doApiGetRequest(dataListUrl(filters));
+		return (Data) apiResult;
+	}
+	
+	/**
+	 * Returns a stream of datasets that corresponds to a set of filters. The
+	 * datasets are parsed one at a time while the response is read, so memory 
+	 * usage does not depend on the size of the list. The stream holds on to a 
+	 * connection, and should be closed after use.
+	 * 
+	 * @param filters - map of filters, see OpenML docs for an exhaustive list
+	 * @return a stream of dataset objects
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation)
+	 */
+	public Stream<Data.DataSet> dataListStream(Map<String, String> filters) throws Exception {
+		return doApiGetListRequest(dataListUrl(filters), "oml:dataset", Data.DataSet.class);
+	}
+	
+	private URL dataListUrl(Map<String, String> filters) throws MalformedURLException {
 		String suffix = "";
 		if (filters != null) {
 			for (String filter : filters.keySet()) {
 				suffix += filter + "/" + filters.get(filter) + "/";
 			}
 		}
-		URL request = new URL(openmlUrl + apiPart + "data/list/" + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
-		return (Data) apiResult;
+		return new URL(openmlUrl + apiPart + "data/list/" + suffix);
 	}
 	
 	/**
-	 * Retrieves the qualities (meta-features) of a specified data set.
+	 * Retrieves the qualities (meta-features) of a specified data set. 
 	 * 
 	 * @param did - The id of the data qualities to download.
 	 * @param evalEngine - id of the evaluation engine responsible for qualities
@@ -339,31 +603,73 @@ public class OpenmlBasicConnector implements Serializable {
 		}
 		
 		URL request = new URL(openmlUrl + apiPart + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
+
+		return (DataQuality) apiResult;
+	}
+	
+	/**
+	 * Retrieves the qualities (meta-features) of a specified data set. Uses cache, if allowed 
+	 * (e.g., for qualities that were prefetched with the StudyPrefetcher). As the server 
+	 * computes the qualities after a data set is uploaded, the cached qualities might be 
+	 * incomplete: they are revalidated with the server once they are older than 
+	 * Settings.CACHE_QUALITIES_MAX_AGE (or Settings.CACHE_MAX_AGE, if that is shorter), 
+	 * and meanwhile served as they are if Settings.CACHE_STALE_WHILE_REVALIDATE is set. 
+	 * Use dataQualities(int, Integer) for the current qualities. 
+	 * 
+	 * @param did - The id of the data qualities to download.
+	 * @param evalEngine - id of the evaluation engine responsible for qualities
+	 * @return DataQuality - An object containing the qualities of the data
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation)
+	 */
+	public DataQuality dataQualitiesCached(int did, Integer evalEngine) throws Exception {
+		String suffix = "data/qualities/" + did;
+		String cacheSuffix = "datasets/" + did + "/qualities";
+		if (evalEngine != null) {
+			suffix += "/" + evalEngine;
+			cacheSuffix += "_" + evalEngine;
+		}
+		
+		URL request = new URL(openmlUrl + apiPart + suffix);
+		long maxAge = Settings.CACHE_QUALITIES_MAX_AGE;
+		if (maxAge < 0 || (Settings.CACHE_MAX_AGE >= 0 && Settings.CACHE_MAX_AGE < maxAge)) {
+			maxAge = Settings.CACHE_MAX_AGE;
+		}
+		Object apiResult = doCachedApiGetRequest(request, cacheSuffix + ".xml", maxAge);
 
 		return (DataQuality) apiResult;
 	}
 	
 	protected DataFeatureUpload dataFeaturesUpload(File description) throws Exception {
+		return dataFeaturesUpload(new FileBody(description));
+	}
+	
+	protected DataFeatureUpload dataFeaturesUpload(ContentBody description) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 
 		if (verboseLevel >= Constants.VERBOSE_LEVEL_ARFF) {
-			System.out.println(Conversion.fileToString(description) + "\n==========\n");
+			System.out.println(bodyToString(description) + "\n==========\n");
 		}
 
 		URL request = new URL(openmlUrl + apiPart + "data/features");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		
 		return (DataFeatureUpload) apiResult;
 	}
 	
 	protected DataQualityUpload dataQualitiesUpload(File description) throws Exception {
+		return dataQualitiesUpload(new FileBody(description));
+	}
+	
+	protected DataQualityUpload dataQualitiesUpload(ContentBody description) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 
 		URL request = new URL(openmlUrl + apiPart + "data/qualities");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (DataQualityUpload) apiResult;
 	}
 
@@ -377,7 +683,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public DataQualityList dataQualitiesList() throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "data/qualities/list");
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (DataQualityList) apiResult;
 	}
 	
@@ -395,7 +701,7 @@ public class OpenmlBasicConnector implements Serializable {
 	public DataUnprocessed dataUnprocessed(int evaluationEngineId, String mode) throws Exception {
 		String suffix = "data/unprocessed/" + evaluationEngineId + "/" + mode;
 		URL request = new URL(openmlUrl + apiPart + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (DataUnprocessed) apiResult;
 	}
 
@@ -431,7 +737,7 @@ public class OpenmlBasicConnector implements Serializable {
 		}
 		
 		URL request = new URL(openmlUrl + apiPart + suffix);
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (DataUnprocessed) apiResult;
 	}
 	
@@ -447,7 +753,7 @@ public class OpenmlBasicConnector implements Serializable {
 	public EstimationProcedure estimationProcedureGet(int id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "estimationprocedure/" + id);
 		String cacheSuffix = "estimationprocedure/" + id + "/estimationprocedure.xml";
-		Object apiResult = HttpCacheController.doApiGetRequest(request, cacheSuffix, getApiKey(), verboseLevel);
+		Object apiResult = doCachedApiGetRequest(request, cacheSuffix);
 		return (EstimationProcedure) apiResult;
 	}
 	
@@ -459,12 +765,13 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public EstimationProcedures estimationProcedureList() throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "estimationprocedure/list");
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (EstimationProcedures) apiResult;
 	}
 	
 	/**
-	 * Downloads the task description
+	 * Downloads the task description. Uses cache, if allowed. The task may be 
+	 * shared with other callers (see ResponseCache), so it should not be modified. 
 	 * 
 	 * @param task_id - The numeric id of the task to be obtained.
 	 * @return Task - An object describing the task
@@ -475,10 +782,23 @@ public class OpenmlBasicConnector implements Serializable {
 	public Task taskGet(int task_id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "task/" + task_id);
 		String cacheSuffix = "tasks/" + task_id + "/task.xml";
-		Object apiResult = HttpCacheController.doApiGetRequest(request, cacheSuffix, getApiKey(), verboseLevel);
+		Object apiResult = doCachedApiGetRequest(request, cacheSuffix);
 		return (Task) apiResult;
 	}
 
+	/**
+	 * Retrieves multiple tasks, concurrently. Uses cache, if allowed. 
+	 * 
+	 * @param task_ids - the task ids (duplicates are obtained once)
+	 * @return the tasks per task id, and the errors of the task ids that could not be obtained
+	 * @throws InterruptedException - interrupted while waiting for the tasks
+	 */
+	public BulkResult<Task> taskGet(Collection<Integer> task_ids) throws InterruptedException {
+		return doBulkGetRequest(task_ids, 
+				task_id -> (Task) getFromCache(new URL(openmlUrl + apiPart + "task/" + task_id), "tasks/" + task_id + "/task.xml"), 
+				this::taskGet);
+	}
+
 	/**
 	 * Downloads the data splits
 	 * 
@@ -491,7 +811,7 @@ public class OpenmlBasicConnector implements Serializable {
 	public File taskSplitsGet(Task task) throws Exception {
 		String cacheSuffix = "tasks/" + task.getTask_id() + "/datasplits.arff";
 		Estimation_procedure ep = TaskInformation.getEstimationProcedure(task);
-		return HttpCacheController.getCachedFileFromUrl(ep.getData_splits_url(), cacheSuffix);
+		return getCachedFileFromUrl(ep.getData_splits_url(), cacheSuffix);
 	}
 	
 	/**
@@ -505,7 +825,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public TaskInputs taskInputs(int task_id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "task/inputs/" + task_id);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (TaskInputs) apiResult;
 	}
 	
@@ -518,15 +838,33 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	public Tasks taskList(Map<String, String> filters) throws Exception {
+		Object apiResult = doApiGetRequest(taskListUrl(filters));
+		return (Tasks) apiResult;
+	}
+	
+	/**
+	 * Returns a stream of all of the tasks given a set of filters. The tasks 
+	 * are parsed one at a time while the response is read. The stream holds on
+	 * to a connection, and should be closed after use.
+	 * 
+	 * @param filters - optional, a map of filters
+	 * @return a stream of tasks
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation)
+	 */
+	public Stream<Tasks.Task> taskListStream(Map<String, String> filters) throws Exception {
+		return doApiGetListRequest(taskListUrl(filters), "oml:task", Tasks.Task.class);
+	}
+	
+	private URL taskListUrl(Map<String, String> filters) throws MalformedURLException {
 		String suffix = "task/list/";
 		if (filters != null) {
 			for (String filter : filters.keySet()) {
 				suffix += filter + "/" + filters.get(filter) + "/";
 			}
 		}
-		URL request = new URL(openmlUrl + apiPart + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
-		return (Tasks) apiResult;
+		return new URL(openmlUrl + apiPart + suffix);
 	}
 	
 	/**
@@ -540,16 +878,20 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public TaskDelete taskDelete(int task_id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "task/" + task_id);
-		Object apiResult = HttpConnector.doApiDeleteRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiDeleteRequest(request);
 		return (TaskDelete) apiResult;
 	}
 	
 	protected UploadTask taskUpload(File description) throws Exception {
+		return taskUpload(new FileBody(description));
+	}
+	
+	protected UploadTask taskUpload(ContentBody description) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 		
 		URL request = new URL(openmlUrl + apiPart + "task/");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (UploadTask) apiResult;
 	}
 	
@@ -569,7 +911,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "task/tag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		
 		return (TaskTag) apiResult;
 	}
@@ -590,13 +932,15 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "task/untag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		
 		return (TaskUntag) apiResult;
 	}
 	
 	/**
-	 * Flow description
+	 * Flow description (including its components). Uses cache, if allowed. 
+	 * If the server does not know the flow, its id is no longer used by 
+	 * flowExists. 
 	 * 
 	 * @param flow_id - the id of the flow. 
 	 * @return the flow object
@@ -606,8 +950,27 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public Flow flowGet(int flow_id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "flow/" + flow_id);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
-		return (Flow) apiResult;
+		String cacheSuffix = "flows/" + flow_id + "/flow.xml";
+		try {
+			Object apiResult = doCachedApiGetRequest(request, cacheSuffix);
+			return (Flow) apiResult;
+		} catch (ApiException e) {
+			forgetFlowId(flow_id);
+			throw e;
+		}
+	}
+
+	/**
+	 * Retrieves multiple flow descriptions, concurrently. 
+	 * 
+	 * @param flow_ids - the flow ids (duplicates are obtained once)
+	 * @return the flows per flow id, and the errors of the flow ids that could not be obtained
+	 * @throws InterruptedException - interrupted while waiting for the flows
+	 */
+	public BulkResult<Flow> flowGet(Collection<Integer> flow_ids) throws InterruptedException {
+		return doBulkGetRequest(flow_ids, 
+				flow_id -> (Flow) getFromCache(new URL(openmlUrl + apiPart + "flow/" + flow_id), "flows/" + flow_id + "/flow.xml"), 
+				this::flowGet);
 	}
 
 	
@@ -627,7 +990,8 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "flow/tag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
+		removeCachedFlow(id);
 		
 		return (FlowTag) apiResult;
 	}
@@ -648,7 +1012,8 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "flow/untag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
+		removeCachedFlow(id);
 		
 		return (FlowUntag) apiResult;
 	}
@@ -666,19 +1031,58 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public FlowDelete flowDelete(int id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "flow/" + id);
-		Object apiResult = HttpConnector.doApiDeleteRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiDeleteRequest(request);
+		forgetFlowId(id);
 		return (FlowDelete) apiResult;
 	}
 	
 	public FlowDelete flowForceDelete(int id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "flow/" + id + "/force");
-		Object apiResult = HttpConnector.doApiDeleteRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiDeleteRequest(request);
+		forgetFlowId(id);
 		return (FlowDelete) apiResult;
 	}
 	
+	private void forgetFlowId(int id) throws IOException {
+		FlowIdCache flowIds = FlowIdCache.get(new URL(openmlUrl));
+		if (flowIds != null) {
+			flowIds.remove(id);
+		}
+		removeCachedFlow(id);
+	}
+	
+	// the cached description (with its tags) is outdated once the flow changed on the server
+	private void removeCachedFlow(int id) throws IOException {
+		HttpCacheController.removeCachedResponse(new URL(openmlUrl + apiPart + "flow/" + id), "flows/" + id + "/flow.xml");
+	}
+	
+	/**
+	 * Asks the server whether a flow still exists (bypassing the cache), e.g., 
+	 * after it rejected a run of the flow. If it does not, its id is no longer
+	 * used by flowExists, so the flow is uploaded again, and its cached 
+	 * description is removed.
+	 * 
+	 * @param flow_id - the id of the flow
+	 * @return whether the flow exists
+	 * @throws Exception - IOException (problem with connection, server)
+	 */
+	protected boolean flowRevalidate(int flow_id) throws Exception {
+		try {
+			doApiGetRequest(new URL(openmlUrl + apiPart + "flow/" + flow_id));
+			return true;
+		} catch (ApiException e) {
+			Conversion.log("Warning", "Flow Cache", "Flow " + flow_id + " does not exist (anymore): " + e.getMessage());
+			forgetFlowId(flow_id);
+			return false;
+		}
+	}
+	
 
 	/**
-	 * Checks whether a flow exists, by name/external_version combination
+	 * Checks whether a flow exists, by name/external_version combination. 
+	 * Uses cache (of existing and uploaded flows), if allowed. A cached id is 
+	 * dropped when the server turns out not to know it (flowGet, or a run 
+	 * that the server rejects). 
 	 * 
 	 * @param name
 	 *            - The name of the implementation to be checked
@@ -693,21 +1097,49 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	public FlowExists flowExists(String name, String external_version) throws Exception {
+		FlowIdCache flowIds = FlowIdCache.get(new URL(openmlUrl));
+		Integer flow_id = flowIds == null ? null : flowIds.get(name, external_version);
+		if (flow_id != null) {
+			return new FlowExists(true, flow_id);
+		}
 		URL request = new URL(openmlUrl + apiPart + "flow/exists/" + name + "/" + external_version);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
-		return (FlowExists) apiResult;
+		FlowExists result = (FlowExists) doApiGetRequest(request);
+		if (flowIds != null && result.exists()) {
+			flowIds.put(name, external_version, result.getId());
+		}
+		return result;
+	}
+	
+	/**
+	 * Stores the id of an uploaded flow, such that flowExists does not need
+	 * to ask the server. 
+	 * 
+	 * @param name - the name of the flow
+	 * @param external_version - the external version of the flow
+	 * @param flow_id - the id the server gave the flow
+	 * @throws IOException - problem with the server url
+	 */
+	protected void flowUploaded(String name, String external_version, int flow_id) throws IOException {
+		FlowIdCache flowIds = FlowIdCache.get(new URL(openmlUrl));
+		if (flowIds != null) {
+			flowIds.put(name, external_version, flow_id);
+		}
 	}
 	
 	protected UploadFlow flowUpload(File description, File binary, File source) throws Exception {
+		return flowUpload(new FileBody(description), binary, source);
+	}
+	
+	protected UploadFlow flowUpload(ContentBody description, File binary, File source) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 		if (source != null)
 			params.addPart("source", new FileBody(source));
 		if (binary != null)
 			params.addPart("binary", new FileBody(binary));
 
 		URL request = new URL(openmlUrl + apiPart + "flow");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (UploadFlow) apiResult;
 	}
 	
@@ -721,7 +1153,8 @@ public class OpenmlBasicConnector implements Serializable {
 	 * @param output_files
 	 *            - A Map&gt;String,File&lt; containing all relevant output files. Key
 	 *            "predictions" usually contains the predictions that were
-	 *            generated by this run.
+	 *            generated by this run. Files may be gzip compressed (see 
+	 *            Settings.UPLOAD_COMPRESSION). 
 	 * @return UploadRun - An object containing information on the
 	 *         implementation upload.
 	 * @throws Exception - Can be: IOException (problem with connection, server),
@@ -729,22 +1162,34 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	protected UploadRun runUpload(File description, Map<String, File> output_files) throws Exception {
+		return runUpload(new FileBody(description), output_files);
+	}
+	
+	protected UploadRun runUpload(ContentBody description, Map<String, File> output_files) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		if (verboseLevel >= Constants.VERBOSE_LEVEL_ARFF) {
+		if (verboseLevel >= Constants.VERBOSE_LEVEL_ARFF && output_files != null && output_files.containsKey("predictions") 
+				&& !Conversion.isGzipped(output_files.get("predictions"))) {
 			System.out.println(Conversion.fileToString(output_files.get("predictions")) + "\n==========\n");
 		}
 		if (verboseLevel >= Constants.VERBOSE_LEVEL_XML) {
-			System.out.println(Conversion.fileToString(description) + "\n==========");
+			System.out.println(bodyToString(description) + "\n==========");
 		}
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 		if (output_files != null) {
 			for (String s : output_files.keySet()) {
-				params.addPart(s, new FileBody(output_files.get(s)));
+				File file = output_files.get(s);
+				if (Conversion.isGzipped(file)) {
+					// compressed output files are flagged, such that the server decompresses them
+					params.addPart(s, new FileBody(file, GZIP, file.getName()));
+					params.addPart(s + "_compression", new StringBody("gzip"));
+				} else {
+					params.addPart(s, new FileBody(file));
+				}
 			}
 		}
 		
 		URL request = new URL(openmlUrl + apiPart + "run/");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (UploadRun) apiResult;
 	}
 	
@@ -760,6 +1205,58 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	public RunList runList(Map<String, List<Integer>> filters, Integer limit, Integer offset) throws Exception {
+		Object apiResult = doApiGetRequest(runListUrl(filters, limit, offset));
+		return (RunList) apiResult;
+	}
+	
+	/**
+	 * Returns a stream with run results. Must be restricted with tasks, setups or both. 
+	 * The runs are parsed one at a time while the response is read, so memory usage 
+	 * does not depend on the size of the list. The stream holds on to a connection, 
+	 * and should be closed after use.
+	 * 
+	 * @param filters - filters to limit the number of results
+	 * @param limit - maximal number of results allowed
+	 * @param offset - number of results to ignore (from the beginning)
+	 * @return a stream with runs
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation)
+	 */
+	public Stream<Run> runListStream(Map<String, List<Integer>> filters, Integer limit, Integer offset) throws Exception {
+		return doApiGetListRequest(runListUrl(filters, limit, offset), "oml:run", Run.class);
+	}
+	
+	/**
+	 * Returns a stream with all run results, obtained page by page. While a page
+	 * is consumed, the next page is already requested. Must be restricted with 
+	 * tasks, setups or both. Should be closed after use.
+	 * 
+	 * @param filters - filters to limit the number of results
+	 * @param pageSize - number of runs that is requested at once
+	 * @return a stream with runs
+	 */
+	public Stream<Run> runListPaged(Map<String, List<Integer>> filters, int pageSize) {
+		return runListPaged(filters, pageSize, 1, null);
+	}
+	
+	/**
+	 * Returns a stream with all run results, obtained page by page. While a page
+	 * is consumed, the next pages are already requested. Must be restricted with 
+	 * tasks, setups or both. Should be closed after use.
+	 * 
+	 * @param filters - filters to limit the number of results
+	 * @param pageSize - number of runs that is requested at once
+	 * @param concurrentPages - number of pages that is requested concurrently
+	 * @param total - the total number of runs, if known (e.g., from a previous request). 
+	 *                Prevents requesting pages beyond the end. Null if unknown
+	 * @return a stream with runs
+	 */
+	public Stream<Run> runListPaged(Map<String, List<Integer>> filters, int pageSize, int concurrentPages, Integer total) {
+		return doApiGetPagedListRequest((offset, limit) -> getListPage(runListUrl(filters, limit, offset), "oml:run", Run.class, RUN_LIST_NO_RESULTS), pageSize, concurrentPages, total);
+	}
+	
+	private URL runListUrl(Map<String, List<Integer>> filters, Integer limit, Integer offset) throws MalformedURLException {
 		String suffix = "";
 		
 		for (String name : filters.keySet()) {
@@ -774,9 +1271,7 @@ public class OpenmlBasicConnector implements Serializable {
 			suffix += "/offset/" + offset;
 		}
 		
-		URL request = new URL(openmlUrl + apiPart + "run/list" + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
-		return (RunList) apiResult;
+		return new URL(openmlUrl + apiPart + "run/list" + suffix);
 	}
 	
 	/**
@@ -792,6 +1287,80 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	public EvaluationList evaluationList(List<Integer> task_id, List<Integer> setup_id, String function, Integer limit) throws Exception {
+		return evaluationList(task_id, setup_id, function, limit, null);
+	}
+	
+	/**
+	 * Returns a list with evaluation results. Must be restricted with tasks, setups or both. 
+	 * 
+	 * @param task_id - a list with task ids to include (null to not restrict on tasks)
+	 * @param setup_id - a list with setup ids to include (null to not restrict on setups)
+	 * @param function - the evaluation measure interested in
+	 * @param limit - the maximal result size
+	 * @param offset - number of results to ignore (from the beginning)
+	 * @return a list with evaluations
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation)
+	 */
+	public EvaluationList evaluationList(List<Integer> task_id, List<Integer> setup_id, String function, Integer limit, Integer offset) throws Exception {
+		Object apiResult = doApiGetRequest(evaluationListUrl(task_id, setup_id, function, limit, offset));
+		return (EvaluationList) apiResult;
+	}
+	
+	/**
+	 * Returns a stream with evaluation results. Must be restricted with tasks, setups or both. 
+	 * The evaluations are parsed one at a time while the response is read, so memory usage 
+	 * does not depend on the size of the list. The stream holds on to a connection, and 
+	 * should be closed after use.
+	 * 
+	 * @param task_id - a list with task ids to include (null to not restrict on tasks)
+	 * @param setup_id - a list with setup ids to include (null to not restrict on setups)
+	 * @param function - the evaluation measure interested in
+	 * @param limit - the maximal result size
+	 * @return a stream with evaluations
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation)
+	 */
+	public Stream<EvaluationList.Evaluation> evaluationListStream(List<Integer> task_id, List<Integer> setup_id, String function, Integer limit) throws Exception {
+		return doApiGetListRequest(evaluationListUrl(task_id, setup_id, function, limit, null), "oml:evaluation", EvaluationList.Evaluation.class);
+	}
+	
+	/**
+	 * Returns a stream with all evaluation results, obtained page by page. While a 
+	 * page is consumed, the next page is already requested. Must be restricted with 
+	 * tasks, setups or both. Should be closed after use.
+	 * 
+	 * @param task_id - a list with task ids to include (null to not restrict on tasks)
+	 * @param setup_id - a list with setup ids to include (null to not restrict on setups)
+	 * @param function - the evaluation measure interested in
+	 * @param pageSize - number of evaluations that is requested at once
+	 * @return a stream with evaluations
+	 */
+	public Stream<EvaluationList.Evaluation> evaluationListPaged(List<Integer> task_id, List<Integer> setup_id, String function, int pageSize) {
+		return evaluationListPaged(task_id, setup_id, function, pageSize, 1, null);
+	}
+	
+	/**
+	 * Returns a stream with all evaluation results, obtained page by page. While a 
+	 * page is consumed, the next pages are already requested. Must be restricted with 
+	 * tasks, setups or both. Should be closed after use.
+	 * 
+	 * @param task_id - a list with task ids to include (null to not restrict on tasks)
+	 * @param setup_id - a list with setup ids to include (null to not restrict on setups)
+	 * @param function - the evaluation measure interested in
+	 * @param pageSize - number of evaluations that is requested at once
+	 * @param concurrentPages - number of pages that is requested concurrently
+	 * @param total - the total number of evaluations, if known. Prevents requesting 
+	 *                pages beyond the end. Null if unknown
+	 * @return a stream with evaluations
+	 */
+	public Stream<EvaluationList.Evaluation> evaluationListPaged(List<Integer> task_id, List<Integer> setup_id, String function, int pageSize, int concurrentPages, Integer total) {
+		return doApiGetPagedListRequest((offset, limit) -> getListPage(evaluationListUrl(task_id, setup_id, function, limit, offset), "oml:evaluation", EvaluationList.Evaluation.class, EVALUATION_LIST_NO_RESULTS), pageSize, concurrentPages, total);
+	}
+	
+	private URL evaluationListUrl(List<Integer> task_id, List<Integer> setup_id, String function, Integer limit, Integer offset) throws MalformedURLException {
 		String suffix = "";
 		
 		if (task_id != null) {
@@ -806,10 +1375,11 @@ public class OpenmlBasicConnector implements Serializable {
 		if (limit != null) {
 			suffix += "/limit/" + limit;
 		}
+		if (offset != null) {
+			suffix += "/offset/" + offset;
+		}
 		
-		URL request = new URL(openmlUrl + apiPart + "evaluation/list" + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
-		return (EvaluationList) apiResult;
+		return new URL(openmlUrl + apiPart + "evaluation/list" + suffix);
 	}
 	
 	public EvaluationRequest evaluationRequest(int evaluationEngineId, String mode, int numRequests, Map<String, String> additionalFilters) throws Exception {
@@ -821,7 +1391,7 @@ public class OpenmlBasicConnector implements Serializable {
 		}
 		
 		URL request = new URL(openmlUrl + apiPart + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (EvaluationRequest) apiResult;
 	}
 
@@ -840,7 +1410,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("run_id", new StringBody("" + id));
 		params.addPart("tag", new StringBody(tag));
 		URL request = new URL(openmlUrl + apiPart + "run/tag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (RunTag) apiResult;
 	}
 
@@ -861,16 +1431,20 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "run/untag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (RunUntag) apiResult;
 	}
 	
 	protected RunEvaluate runEvaluate(File description) throws Exception {
+		return runEvaluate(new FileBody(description));
+	}
+	
+	protected RunEvaluate runEvaluate(ContentBody description) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 
 		URL request = new URL(openmlUrl + apiPart + "run/evaluate");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (RunEvaluate) apiResult;
 	}
 
@@ -884,11 +1458,15 @@ public class OpenmlBasicConnector implements Serializable {
 	 *                   documentation)
 	 */
 	protected RunTraceUpload runTraceUpload(File trace) throws Exception {
+		return runTraceUpload(new FileBody(trace));
+	}
+	
+	protected RunTraceUpload runTraceUpload(ContentBody trace) throws Exception {
 		MultipartEntity params = new MultipartEntity();
-		params.addPart("trace", new FileBody(trace));
+		params.addPart("trace", trace);
 
 		URL request = new URL(openmlUrl + apiPart + "run/trace");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (RunTraceUpload) apiResult;
 	}
 
@@ -904,7 +1482,7 @@ public class OpenmlBasicConnector implements Serializable {
 	public RunTrace runTrace(int trace_id) throws Exception {
 
 		URL request = new URL(openmlUrl + apiPart + "run/trace/" + trace_id);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (RunTrace) apiResult;
 	}
 
@@ -919,7 +1497,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public Run runGet(int runId) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "run/" + runId);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (Run) apiResult;
 	}
 
@@ -935,7 +1513,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public RunDelete runDelete(int id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "run/" + id);
-		Object apiResult = HttpConnector.doApiDeleteRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiDeleteRequest(request);
 		return (RunDelete) apiResult;
 	}
 
@@ -951,7 +1529,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public RunReset runReset(int run_id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "run/reset/" + run_id);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (RunReset) apiResult;
 	}
 
@@ -971,7 +1549,7 @@ public class OpenmlBasicConnector implements Serializable {
 		}
 		params.addPart("description", new FileBody(description));
 		URL request = new URL(openmlUrl + apiPart + "setup/exists");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (SetupExists) apiResult;
 	}
 	
@@ -986,10 +1564,21 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public SetupParameters setupParameters(int setup_id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "setup/" + setup_id);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		return (SetupParameters) apiResult;
 	}
 
+	/**
+	 * Retrieves the parameter settings of multiple setups, concurrently. 
+	 * 
+	 * @param setup_ids - the setup ids (duplicates are obtained once)
+	 * @return the parameters per setup id, and the errors of the setup ids that could not be obtained
+	 * @throws InterruptedException - interrupted while waiting for the parameters
+	 */
+	public BulkResult<SetupParameters> setupParameters(Collection<Integer> setup_ids) throws InterruptedException {
+		return doBulkGetRequest(setup_ids, null, this::setupParameters);
+	}
+
 	/**
 	 * Tags a setup
 	 * 
@@ -1006,7 +1595,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "setup/tag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (SetupTag) apiResult;
 	}
 
@@ -1026,7 +1615,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("tag", new StringBody(tag));
 		
 		URL request = new URL(openmlUrl + apiPart + "setup/untag");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		return (SetupUntag) apiResult;
 	}
 
@@ -1043,7 +1632,7 @@ public class OpenmlBasicConnector implements Serializable {
 	 */
 	public SetupDelete setupDelete(int id) throws Exception {
 		URL request = new URL(openmlUrl + apiPart + "setup/" + id);
-		Object apiResult = HttpConnector.doApiDeleteRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiDeleteRequest(request);
 		return (SetupDelete) apiResult;
 	}
 	
@@ -1065,7 +1654,7 @@ public class OpenmlBasicConnector implements Serializable {
 		}
 		
 		URL request = new URL(openmlUrl + apiPart + "setup/differences/" + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		if (apiResult instanceof SetupDifferences) {
 			return (SetupDifferences) apiResult;
 		} else {
@@ -1093,7 +1682,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("differences", new StringBody("" + differences));
 
 		URL request = new URL(openmlUrl + apiPart + "setup/differences/" + setupA + "/" + setupB);
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		if (apiResult instanceof SetupDifferences) {
 			return (SetupDifferences) apiResult;
 		} else {
@@ -1109,7 +1698,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("file", new FileBody(file));
 
 		URL request = new URL(openmlUrl + apiPart + "file/upload");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		if (apiResult instanceof FileUpload) {
 			return (FileUpload) apiResult;
 		} else {
@@ -1122,7 +1711,7 @@ public class OpenmlBasicConnector implements Serializable {
 		if (dataType != null) { suffix += "/" + dataType; }
 		
 		URL request = new URL(openmlUrl + apiPart + "study/" + studyAlias + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		if (apiResult instanceof Study) {
 			return (Study) apiResult;
 		} else {
@@ -1131,13 +1720,17 @@ public class OpenmlBasicConnector implements Serializable {
 	}
 	
 	protected StudyUpload studyUpload(File description) throws Exception {
+		return studyUpload(new FileBody(description));
+	}
+	
+	protected StudyUpload studyUpload(ContentBody description) throws Exception {
 		MultipartEntity params = new MultipartEntity();
 		if (verboseLevel >= Constants.VERBOSE_LEVEL_ARFF) {
-			System.out.println(Conversion.fileToString(description) + "\n==========\n");
+			System.out.println(bodyToString(description) + "\n==========\n");
 		}
-		params.addPart("description", new FileBody(description));
+		params.addPart("description", description);
 		URL request = new URL(openmlUrl + apiPart + "study/");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		if (apiResult instanceof StudyUpload) {
 			return (StudyUpload) apiResult;
 		} else {
@@ -1153,7 +1746,7 @@ public class OpenmlBasicConnector implements Serializable {
 		}
 		
 		URL request = new URL(openmlUrl + apiPart + "study/list" + suffix);
-		Object apiResult = HttpConnector.doApiGetRequest(request, getApiKey(), verboseLevel);
+		Object apiResult = doApiGetRequest(request);
 		if (apiResult instanceof StudyList) {
 			return (StudyList) apiResult;
 		} else {
@@ -1166,7 +1759,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("ids", new StringBody(StringUtils.join(entity_ids, ',')));
 		
 		URL request = new URL(openmlUrl + apiPart + "study/" + id + "/attach");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		if (apiResult instanceof StudyAttach) {
 			return (StudyAttach) apiResult;
 		} else {
@@ -1179,7 +1772,7 @@ public class OpenmlBasicConnector implements Serializable {
 		params.addPart("ids", new StringBody(StringUtils.join(entity_ids, ',')));
 		
 		URL request = new URL(openmlUrl + apiPart + "study/" + id + "/detach");
-		Object apiResult = HttpConnector.doApiPostRequest(request, params, getApiKey(), verboseLevel);
+		Object apiResult = doApiPostRequest(request, params);
 		if (apiResult instanceof StudyDetach) {
 			return (StudyDetach) apiResult;
 		} else {
@@ -1195,6 +1788,49 @@ public class OpenmlBasicConnector implements Serializable {
 		return studyGet("" + studyId, dataType);
 	}
 
+	/**
+	 * Pins the cached datasets and tasks of a study, so they are not evicted
+	 * from the cache while the study is being run.
+	 *
+	 * @param study - the study (obtained with studyGet)
+	 * @throws MalformedURLException - problem with the server URL
+	 */
+	public void cachePinStudy(Study study) throws MalformedURLException {
+		CacheManager cache = CacheManager.getInstance();
+		for (File location : studyCacheLocations(study)) {
+			cache.pin(location);
+		}
+	}
+
+	/**
+	 * Releases the pins placed by cachePinStudy
+	 *
+	 * @param study - the study (obtained with studyGet)
+	 * @throws MalformedURLException - problem with the server URL
+	 */
+	public void cacheUnpinStudy(Study study) throws MalformedURLException {
+		CacheManager cache = CacheManager.getInstance();
+		for (File location : studyCacheLocations(study)) {
+			cache.unpin(location);
+		}
+	}
+
+	private List<File> studyCacheLocations(Study study) throws MalformedURLException {
+		URL server = new URL(openmlUrl);
+		List<File> locations = new ArrayList<File>();
+		if (study.getDataset() != null) {
+			for (Integer did : study.getDataset()) {
+				locations.add(HttpCacheController.getCacheLocation(server, "datasets/" + did));
+			}
+		}
+		if (study.getTasks() != null) {
+			for (Integer task_id : study.getTasks()) {
+				locations.add(HttpCacheController.getCacheLocation(server, "tasks/" + task_id));
+			}
+		}
+		return locations;
+	}
+
 
 	public URL getOpenmlFileUrl(Integer file_id, String filename) throws Exception {
 		return getOpenmlFileUrl(file_id, filename, "download");
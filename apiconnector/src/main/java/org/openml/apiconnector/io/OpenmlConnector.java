@@ -3,7 +3,6 @@ package org.openml.apiconnector.io;
 import java.io.File;
 import java.util.Map;
 
-import org.openml.apiconnector.algorithms.Conversion;
 import org.openml.apiconnector.settings.Settings;
 import org.openml.apiconnector.xml.DataFeature;
 import org.openml.apiconnector.xml.DataQuality;
@@ -14,16 +13,11 @@ import org.openml.apiconnector.xml.RunEvaluation;
 import org.openml.apiconnector.xml.RunTrace;
 import org.openml.apiconnector.xml.Study;
 import org.openml.apiconnector.xml.TaskInputs;
-import org.openml.apiconnector.xstream.XstreamXmlMapping;
-
-import com.thoughtworks.xstream.XStream;
 
 public class OpenmlConnector extends OpenmlBasicConnector {
 
 	private static final long serialVersionUID = -2063937610741462487L;
 
-	private static final XStream xstream = XstreamXmlMapping.getInstance();
-	
 	public OpenmlConnector() {
 		this.openmlUrl = Settings.BASE_URL;
 		this.apiKey = null;
@@ -57,9 +51,7 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int dataUpload(DataSetDescription dsd, File dataset) throws Exception {
-		String dsdXML = xstream.toXML(dsd);
-		File description = Conversion.stringToTempFile(dsdXML, "dataset", "xml");
-		return super.dataUpload(description, dataset).getId();
+		return super.dataUpload(new XmlBody(dsd, "dataset.xml"), dataset).getId();
 	}
 
 	/**
@@ -72,9 +64,7 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int dataFeaturesUpload(DataFeature features) throws Exception {
-		String featuresXML = xstream.toXML(features);
-		File description = Conversion.stringToTempFile(featuresXML, "features", "xml");
-		return super.dataFeaturesUpload(description).getDid();
+		return super.dataFeaturesUpload(new XmlBody(features, "features.xml")).getDid();
 	}
 
 	/**
@@ -87,9 +77,7 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int dataQualitiesUpload(DataQuality qualities) throws Exception {
-		String featuresXML = xstream.toXML(qualities);
-		File description = Conversion.stringToTempFile(featuresXML, "features", "xml");
-		return super.dataQualitiesUpload(description).getDid();
+		return super.dataQualitiesUpload(new XmlBody(qualities, "qualities.xml")).getDid();
 	}
 	
 
@@ -104,9 +92,9 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int flowUpload(Flow flow) throws Exception {
-		String flowXML = xstream.toXML(flow);
-		File description = Conversion.stringToTempFile(flowXML, "flow", "xml");
-		return super.flowUpload(description, null, null).getId();
+		int flow_id = super.flowUpload(new XmlBody(flow, "flow.xml"), null, null).getId();
+		flowUploaded(flow.getName(), flow.getExternal_version(), flow_id);
+		return flow_id;
 	}
 	
 
@@ -120,9 +108,7 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int runEvaluate(RunEvaluation runEvaluation) throws Exception {
-		String evalXML = xstream.toXML(runEvaluation);
-		File description = Conversion.stringToTempFile(evalXML, "run", "xml");
-		return super.runEvaluate(description).getRun_id();
+		return super.runEvaluate(new XmlBody(runEvaluation, "run.xml")).getRun_id();
 	}
 	
 	/**
@@ -134,16 +120,24 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 * @param outputFiles
 	 *            - A Map&gt;String,File&lt; containing all relevant output files. Key
 	 *            "predictions" usually contains the predictions that were
-	 *            generated by this run.
+	 *            generated by this run. Files may be gzip compressed.
 	 * @return the id of the uploaded run
 	 * @throws Exception - Can be: IOException (problem with connection, server),
 	 *                   ApiException (contains error code, see OpenML
 	 *                   documentation)
 	 */
 	public int runUpload(Run run, Map<String, File> outputFiles) throws Exception {
-		String runXML = xstream.toXML(run);
-		File description = Conversion.stringToTempFile(runXML, "run", "xml");
-		return super.runUpload(description, outputFiles).getRun_id();
+		try {
+			return super.runUpload(new XmlBody(run, "run.xml"), outputFiles).getRun_id();
+		} catch (ApiException e) {
+			// the flow might have been deleted while flowExists still knew its id
+			try {
+				flowRevalidate(run.getFlow_id());
+			} catch (Exception f) {
+				e.addSuppressed(f);
+			}
+			throw e;
+		}
 	}
 	
 
@@ -157,9 +151,7 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int runTraceUpload(RunTrace trace) throws Exception {
-		String traceXML = xstream.toXML(trace);
-		File description = Conversion.stringToTempFile(traceXML, "trace", "xml");
-		return super.runTraceUpload(description).getRun_id();
+		return super.runTraceUpload(new XmlBody(trace, "trace.xml")).getRun_id();
 	}
 
 	/**
@@ -172,9 +164,7 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int studyUpload(Study study) throws Exception {
-		String studyXML = xstream.toXML(study);
-		File description = Conversion.stringToTempFile(studyXML, "study", "xml");
-		return super.studyUpload(description).getId();
+		return super.studyUpload(new XmlBody(study, "study.xml")).getId();
 	}
 
 	/**
@@ -187,8 +177,6 @@ public class OpenmlConnector extends OpenmlBasicConnector {
 	 *                   documentation)
 	 */
 	public int taskUpload(TaskInputs task) throws Exception {
-		String taskXML = xstream.toXML(task);
-		File description = Conversion.stringToTempFile(taskXML, "task", "xml");
-		return super.taskUpload(description).getId();
+		return super.taskUpload(new XmlBody(task, "task.xml")).getId();
 	}
 }
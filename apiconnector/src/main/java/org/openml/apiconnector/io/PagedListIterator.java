@@ -0,0 +1,135 @@
+package org.openml.apiconnector.io;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates over a list that the server returns in pages (limit/offset). Pages
+ * are requested in the background: while the current page is consumed, the
+ * next page(s) are already being downloaded. The iteration ends with the first
+ * page that is not full, or when the total number of results is reached (if
+ * known).
+ *
+ * @param <T> - the type of the list elements
+ */
+public class PagedListIterator<T> implements Iterator<T>, Closeable {
+
+	/**
+	 * Loads a single page of results
+	 */
+	public interface PageLoader<T> {
+		/**
+		 * @param offset - number of results to skip
+		 * @param limit - maximum number of results to return
+		 * @return the page, empty if there are no results at this offset
+		 * @throws Exception - problem obtaining the page
+		 */
+		List<T> load(int offset, int limit) throws Exception;
+	}
+
+	private final PageLoader<T> loader;
+	private final int pageSize;
+	private final int concurrentPages;
+	private final Integer total;
+	private final ExecutorService executor;
+	private final Deque<Future<List<T>>> pages = new ArrayDeque<Future<List<T>>>();
+
+	private int nextOffset = 0;
+	private boolean lastPageSeen = false;
+	private Iterator<T> current = Collections.emptyIterator();
+
+	/**
+	 * @param loader - loads a page of results
+	 * @param pageSize - number of results per page
+	 * @param concurrentPages - number of pages that is requested ahead, concurrently (at least 1)
+	 * @param total - total number of results, if known. Null otherwise
+	 */
+	public PagedListIterator(PageLoader<T> loader, int pageSize, int concurrentPages, Integer total) {
+		if (pageSize < 1 || concurrentPages < 1) {
+			throw new IllegalArgumentException("pageSize and concurrentPages should be at least 1");
+		}
+		this.loader = loader;
+		this.pageSize = pageSize;
+		this.concurrentPages = concurrentPages;
+		this.total = total;
+		this.executor = Executors.newFixedThreadPool(concurrentPages, runnable -> {
+			Thread thread = new Thread(runnable, "openml-pager");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private void requestPages() {
+		while (!lastPageSeen && pages.size() < concurrentPages && (total == null || nextOffset < total)) {
+			final int offset = nextOffset;
+			final int limit = total == null ? pageSize : Math.min(pageSize, total - offset);
+			pages.add(executor.submit(() -> loader.load(offset, limit)));
+			nextOffset += limit;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext()) {
+			requestPages();
+			if (pages.isEmpty()) {
+				close();
+				return false;
+			}
+			List<T> page;
+			try {
+				page = pages.poll().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new IllegalStateException("Interrupted while waiting for page", e);
+			} catch (ExecutionException e) {
+				close();
+				throw new IllegalStateException("Problem obtaining page: " + e.getCause().getMessage(), e.getCause());
+			}
+			if (page.size() < pageSize) {
+				// this was the last page; pages that were requested speculatively are obsolete
+				lastPageSeen = true;
+				cancelPages();
+			}
+			current = page.iterator();
+		}
+		// makes sure the next pages are downloaded while this one is consumed
+		requestPages();
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return current.next();
+	}
+
+	private void cancelPages() {
+		for (Future<List<T>> page : pages) {
+			page.cancel(true);
+		}
+		pages.clear();
+	}
+
+	/**
+	 * Stops requesting pages and cancels pages that are still loading
+	 */
+	@Override
+	public void close() {
+		lastPageSeen = true;
+		cancelPages();
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,71 @@
+package org.openml.apiconnector.io;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of requests with a token bucket: the bucket refills at a
+ * fixed rate up to its capacity, and every request takes a token. Requests
+ * are let through immediately while there are tokens (a burst), and spaced
+ * evenly afterwards. Waiting requests are served in the order they arrived.
+ */
+public class RateLimiter {
+
+	private final double rate;
+	private final double capacity;
+
+	private double tokens;
+	private long refilled;
+
+	/**
+	 * @param rate - the number of requests per second
+	 * @param burst - the number of requests that can be sent at once (the capacity of the bucket)
+	 */
+	public RateLimiter(double rate, int burst) {
+		if (rate <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst should be positive. ");
+		}
+		this.rate = rate;
+		this.capacity = burst;
+		this.tokens = burst;
+		this.refilled = System.nanoTime();
+	}
+
+	/**
+	 * Waits until a request can be sent
+	 *
+	 * @throws InterruptedIOException - the thread was interrupted while waiting
+	 */
+	public void acquire() throws InterruptedIOException {
+		long wait = reserve();
+		if (wait > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+			}
+		}
+	}
+
+	// takes a token (possibly one that is not there yet), returns how long (ns) to wait for it
+	private synchronized long reserve() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - refilled) * rate / 1e9);
+		refilled = now;
+		tokens -= 1;
+		return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+	}
+
+	/**
+	 * @return the number of requests per second
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimiter [rate=" + rate + "/s, burst=" + (int) capacity + "]";
+	}
+}
@@ -0,0 +1,57 @@
+package org.openml.apiconnector.io;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Table of requests that are in flight. A thread that asks for a request that
+ * another thread is already doing waits for that one, instead of doing it
+ * again, and receives the same result (or exception). Requests that arrive
+ * after it finished are done anew.
+ *
+ * @param <T> - the type of the result
+ */
+class RequestCoalescer<T> {
+
+	private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<String, CompletableFuture<T>>();
+
+	/**
+	 * Does a request, or waits for the identical one that is in flight
+	 *
+	 * @param key - identifies the request (e.g., its URL)
+	 * @param request - does the request
+	 * @return the result of the request
+	 * @throws Exception - the exception of the request, or InterruptedException while waiting
+	 */
+	T execute(String key, Callable<T> request) throws Exception {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		CompletableFuture<T> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			try {
+				return existing.get();
+			} catch (ExecutionException e) {
+				throw rethrow(e.getCause());
+			}
+		}
+		try {
+			T result = request.call();
+			future.complete(result);
+			return result;
+		} catch (Exception | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	private static Exception rethrow(Throwable cause) {
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return (Exception) cause;
+	}
+}
@@ -0,0 +1,195 @@
+package org.openml.apiconnector.io;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+
+/**
+ * In-memory cache of deserialized api responses, keyed by URL, in front of the
+ * disk cache. Repeated requests for the same task or dataset description do not
+ * need to read and parse the cache entry again. The least recently used responses are
+ * evicted when the number of entries (Settings.MEMORY_CACHE_MAX_ENTRIES) or
+ * their total weight (Settings.MEMORY_CACHE_MAX_WEIGHT, the size of the cache
+ * entry they were read from) exceeds the limit. Optionally, responses are held by
+ * soft references, so the garbage collector can reclaim them under memory
+ * pressure.
+ *
+ * Note that the same object is returned to every caller, so responses obtained
+ * from the cache should not be modified. This includes the tasks, datasets, etc.
+ * returned by the connectors. Responses are removed from memory when their
+ * entry is removed from the disk cache.
+ */
+public class ResponseCache {
+
+	private static final ResponseCache instance = new ResponseCache();
+
+	// in access order, so the least recently used entry is first
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @return the cache that is used by the connectors
+	 */
+	public static ResponseCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return whether responses are kept in memory at all
+	 */
+	public static boolean isEnabled() {
+		return Settings.MEMORY_CACHE_MAX_ENTRIES > 0;
+	}
+
+	/**
+	 * Returns a cached response. This is the same instance for every caller
+	 * (no copy), so it must not be modified.
+	 *
+	 * @param url - the URL the response was obtained from
+	 * @return the response, or null if it is not in the cache
+	 */
+	public synchronized OpenmlApiResponse get(String url) {
+		Entry entry = entries.get(url);
+		OpenmlApiResponse response = entry == null ? null : entry.get();
+		if (response == null) {
+			if (entry != null) {
+				// reclaimed by the garbage collector
+				remove(url, entry);
+			}
+			misses += 1;
+		} else {
+			hits += 1;
+		}
+		return response;
+	}
+
+	/**
+	 * Adds a response to the cache, and evicts the least recently used ones
+	 * when the cache exceeds its limits.
+	 *
+	 * @param url - the URL the response was obtained from
+	 * @param response - the response
+	 * @param weight - the weight of the response, e.g., the size of its cache entry
+	 */
+	public synchronized void put(String url, OpenmlApiResponse response, long weight) {
+		if (!isEnabled() || (Settings.MEMORY_CACHE_MAX_WEIGHT > 0 && weight > Settings.MEMORY_CACHE_MAX_WEIGHT)) {
+			return;
+		}
+		Entry previous = entries.get(url);
+		if (previous != null) {
+			remove(url, previous);
+		}
+		entries.put(url, new Entry(response, weight, Settings.MEMORY_CACHE_SOFT_REFERENCES));
+		this.weight += weight;
+		evict();
+	}
+
+	/**
+	 * Removes a response from the cache
+	 *
+	 * @param url - the URL the response was obtained from
+	 */
+	public synchronized void invalidate(String url) {
+		Entry entry = entries.get(url);
+		if (entry != null) {
+			remove(url, entry);
+		}
+	}
+
+	/**
+	 * Removes all responses, and resets the statistics
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	private void remove(String url, Entry entry) {
+		entries.remove(url);
+		weight -= entry.weight;
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext() && (entries.size() > Settings.MEMORY_CACHE_MAX_ENTRIES ||
+				(Settings.MEMORY_CACHE_MAX_WEIGHT > 0 && weight > Settings.MEMORY_CACHE_MAX_WEIGHT))) {
+			Entry entry = iterator.next().getValue();
+			iterator.remove();
+			weight -= entry.weight;
+			evictions += 1;
+		}
+	}
+
+	/**
+	 * @return the number of requests that were answered from memory
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests that were not in memory
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the fraction of requests that were answered from memory
+	 */
+	public synchronized double getHitRate() {
+		return hits + misses == 0 ? 0.0 : hits / (double) (hits + misses);
+	}
+
+	/**
+	 * @return the number of responses that were evicted because of the limits
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * @return the number of responses in memory
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the total weight of the responses in memory
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "[entries: " + entries.size() + "; weight: " + weight + "; hits: " + hits + "; misses: " + misses + "; evictions: " + evictions + "]";
+	}
+
+	private static class Entry {
+		private final OpenmlApiResponse strong;
+		private final SoftReference<OpenmlApiResponse> soft;
+		private final long weight;
+
+		private Entry(OpenmlApiResponse response, long weight, boolean softReference) {
+			this.strong = softReference ? null : response;
+			this.soft = softReference ? new SoftReference<OpenmlApiResponse>(response) : null;
+			this.weight = weight;
+		}
+
+		private OpenmlApiResponse get() {
+			return soft == null ? strong : soft.get();
+		}
+	}
+}
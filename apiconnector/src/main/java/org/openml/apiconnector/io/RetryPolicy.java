@@ -0,0 +1,232 @@
+package org.openml.apiconnector.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.settings.Settings;
+
+/**
+ * Retries requests that failed because of a transient problem: the connection
+ * failed, the server was overloaded (429, 502, 503, 504) or returned an empty
+ * result. The retries are delayed with exponential backoff and (full) jitter,
+ * or by the time the server asks for in its Retry-After header.
+ *
+ * Get and delete requests are idempotent, and retried by default. Post
+ * requests are only retried when enabled (Settings.HTTP_RETRY_POSTS), when
+ * their entity can be sent again, and only when the server certainly did not
+ * process them: the connection could not be established, or the server
+ * refused the request (429, 503).
+ */
+public class RetryPolicy {
+
+	private static final Set<Integer> RETRYABLE_STATUS_CODES = new HashSet<Integer>(Arrays.asList(
+			HttpStatus.SC_TOO_MANY_REQUESTS, HttpStatus.SC_BAD_GATEWAY, HttpStatus.SC_SERVICE_UNAVAILABLE, HttpStatus.SC_GATEWAY_TIMEOUT));
+	// the server did not process requests that were answered with these
+	private static final Set<Integer> REFUSED_STATUS_CODES = new HashSet<Integer>(Arrays.asList(
+			HttpStatus.SC_TOO_MANY_REQUESTS, HttpStatus.SC_SERVICE_UNAVAILABLE));
+
+	private static final Map<String, RetryStatistics> statistics = new ConcurrentHashMap<String, RetryStatistics>();
+
+	private final int maxRetries;
+	private final long baseDelay;
+	private final long maxDelay;
+	private final boolean retryPosts;
+
+	/**
+	 * @param maxRetries - how often a request is retried at most
+	 * @param baseDelay - the delay (ms) before the first retry, doubled for every next one
+	 * @param maxDelay - the maximum delay (ms) before a retry
+	 * @param retryPosts - whether post requests are retried (when that is safe)
+	 */
+	public RetryPolicy(int maxRetries, long baseDelay, long maxDelay, boolean retryPosts) {
+		this.maxRetries = maxRetries;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.retryPosts = retryPosts;
+	}
+
+	/**
+	 * @return the policy as configured in the settings
+	 */
+	public static RetryPolicy fromSettings() {
+		return new RetryPolicy(Settings.HTTP_MAX_RETRIES, Settings.HTTP_RETRY_BASE_DELAY, Settings.HTTP_RETRY_MAX_DELAY, Settings.HTTP_RETRY_POSTS);
+	}
+
+	/**
+	 * Executes a request, and retries it when it failed because of a transient
+	 * problem. When the retries are exhausted, the last response is returned
+	 * (or the last exception is thrown), to be handled by the caller.
+	 *
+	 * @param httpclient - The (pooled) client to execute the request with
+	 * @param request - the request
+	 * @return the response
+	 * @throws IOException - problem with the connection, after all retries
+	 */
+	public CloseableHttpResponse execute(CloseableHttpClient httpclient, HttpRequestBase request) throws IOException {
+		RetryStatistics endpoint = statistics.computeIfAbsent(request.getMethod() + " " + getEndpoint(request.getURI()), key -> new RetryStatistics());
+		endpoint.requests.incrementAndGet();
+		for (int attempt = 0; ; ++attempt) {
+			CloseableHttpResponse response;
+			try {
+				response = httpclient.execute(request);
+			} catch (IOException e) {
+				if (attempt >= maxRetries || !canRetry(request, e)) {
+					if (attempt > 0) {
+						endpoint.exhausted.incrementAndGet();
+					}
+					throw e;
+				}
+				backoff(request, endpoint, attempt, -1, e.getClass().getSimpleName());
+				continue;
+			}
+			int code = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			boolean empty = code == HttpStatus.SC_OK && (entity == null || entity.getContentLength() == 0) && !"HEAD".equals(request.getMethod());
+			if (!empty && !RETRYABLE_STATUS_CODES.contains(code)) {
+				if (attempt > 0) {
+					endpoint.recovered.incrementAndGet();
+				}
+				return response;
+			}
+			long retryAfter = getRetryAfter(response);
+			if (attempt >= maxRetries || !canRetry(request, code) || retryAfter > maxDelay) {
+				if (attempt > 0 || RETRYABLE_STATUS_CODES.contains(code)) {
+					endpoint.exhausted.incrementAndGet();
+				}
+				return response;
+			}
+			// releases the connection before waiting
+			response.close();
+			backoff(request, endpoint, attempt, retryAfter, empty ? "empty result" : "status code " + code);
+		}
+	}
+
+	private boolean canRetry(HttpRequestBase request, IOException e) {
+		if (!isPost(request)) {
+			// except when the thread was interrupted
+			return !(e instanceof InterruptedIOException) || e instanceof ConnectTimeoutException || e instanceof SocketTimeoutException;
+		}
+		// otherwise, the server might have received the request already
+		return canRetryPost(request) && (e instanceof ConnectException || e instanceof ConnectTimeoutException || e instanceof UnknownHostException);
+	}
+
+	private boolean canRetry(HttpRequestBase request, int code) {
+		return !isPost(request) || (canRetryPost(request) && REFUSED_STATUS_CODES.contains(code));
+	}
+
+	private static boolean isPost(HttpRequestBase request) {
+		return HttpPost.METHOD_NAME.equals(request.getMethod());
+	}
+
+	private boolean canRetryPost(HttpRequestBase request) {
+		if (!retryPosts) {
+			return false;
+		}
+		HttpEntity entity = request instanceof HttpEntityEnclosingRequest ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+		return entity == null || entity.isRepeatable();
+	}
+
+	private void backoff(HttpRequestBase request, RetryStatistics endpoint, int attempt, long retryAfter, String reason) throws IOException {
+		long delay = retryAfter >= 0 ? retryAfter : getDelay(attempt);
+		endpoint.retries.incrementAndGet();
+		endpoint.delay.addAndGet(delay);
+		Conversion.log("Warning", "Retry", request.getMethod() + " " + request.getURI().getPath() + " failed (" + reason + "), retrying in " + delay + " ms. ");
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry " + request.getURI().getPath());
+		}
+	}
+
+	/**
+	 * @param attempt - the number of the retry, starting at 0
+	 * @return a random delay (ms) between 0 and the exponential backoff
+	 */
+	long getDelay(int attempt) {
+		long backoff = Math.min(maxDelay, baseDelay << Math.min(attempt, 30));
+		return ThreadLocalRandom.current().nextLong(backoff + 1);
+	}
+
+	// the delay (ms) the server asks for, or -1
+	private static long getRetryAfter(CloseableHttpResponse response) {
+		Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+		if (header == null) {
+			return -1;
+		}
+		String value = header.getValue().trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch (NumberFormatException e) {
+			Date date = DateUtils.parseDate(value);
+			return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Returns the endpoint family of a URL, e.g., task for api/v1/task/59,
+	 * run/list for api/v1/run/list/task/59 and download for data/v1/download/61/iris.arff
+	 *
+	 * @param uri - the URL
+	 * @return the endpoint family
+	 */
+	public static String getEndpoint(URI uri) {
+		String[] segments = uri.getPath().split("/");
+		int start = 0;
+		for (int i = 0; i < segments.length; ++i) {
+			if (segments[i].equals("v1")) {
+				start = i + 1;
+			}
+		}
+		if (start < segments.length && (segments[start].equals("xml") || segments[start].equals("json"))) {
+			start += 1;
+		}
+		StringBuilder endpoint = new StringBuilder();
+		for (int i = start; i < segments.length && i < start + 2; ++i) {
+			if (segments[i].isEmpty() || Character.isDigit(segments[i].charAt(0))) {
+				break;
+			}
+			endpoint.append(endpoint.length() > 0 ? "/" : "").append(segments[i]);
+		}
+		return endpoint.toString();
+	}
+
+	/**
+	 * @return the retry statistics per endpoint (e.g., GET task), in alphabetical order
+	 */
+	public static Map<String, RetryStatistics> getStatistics() {
+		return Collections.unmodifiableMap(new TreeMap<String, RetryStatistics>(statistics));
+	}
+
+	/**
+	 * Resets the retry statistics of all endpoints
+	 */
+	public static void resetStatistics() {
+		statistics.clear();
+	}
+}
@@ -0,0 +1,55 @@
+package org.openml.apiconnector.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the requests to an endpoint, and how often they had to be retried.
+ */
+public class RetryStatistics {
+
+	final AtomicLong requests = new AtomicLong();
+	final AtomicLong retries = new AtomicLong();
+	final AtomicLong recovered = new AtomicLong();
+	final AtomicLong exhausted = new AtomicLong();
+	final AtomicLong delay = new AtomicLong();
+
+	/**
+	 * @return the number of requests (not counting retries)
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return the number of retries
+	 */
+	public long getRetryCount() {
+		return retries.get();
+	}
+
+	/**
+	 * @return the number of requests that succeeded after being retried
+	 */
+	public long getRecoveredCount() {
+		return recovered.get();
+	}
+
+	/**
+	 * @return the number of requests that still failed when the retries were exhausted (or not allowed)
+	 */
+	public long getExhaustedCount() {
+		return exhausted.get();
+	}
+
+	/**
+	 * @return the total time (ms) spent waiting before retries
+	 */
+	public long getTotalDelay() {
+		return delay.get();
+	}
+
+	@Override
+	public String toString() {
+		return "[requests: " + requests + "; retries: " + retries + "; recovered: " + recovered + "; exhausted: " + exhausted + "; delay: " + delay + " ms]";
+	}
+}
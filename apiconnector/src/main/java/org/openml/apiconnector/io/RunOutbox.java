@@ -0,0 +1,370 @@
+package org.openml.apiconnector.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.http.entity.mime.content.FileBody;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Run;
+import org.openml.apiconnector.xml.UploadRun;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * A persistent queue of runs to upload. Enqueueing a run stores its
+ * description and output files (e.g., the predictions) in a journal
+ * directory and returns immediately; background threads upload the runs,
+ * a bounded number at a time. Runs that fail because of a transient problem
+ * (connection, server) are retried with exponential backoff until they
+ * succeed, also after a restart: runs that are still in the journal are
+ * uploaded when an outbox is opened on the same directory.
+ *
+ * Each run is identified by a checksum of its description and output files,
+ * so enqueueing the same run twice uploads it once. Runs that the server
+ * rejects (ApiException) are kept in the journal, with the error, and not
+ * retried until asked to (retryFailed, e.g., after the problem was fixed on
+ * the server) or removed (discard). Note that a run that was uploaded just 
+ * before the JVM stopped, but not yet marked as uploaded, is uploaded again 
+ * after a restart.
+ *
+ * Runs are not uploaded in batches: the API has no call that takes several
+ * runs, each run gets its own id from a separate run upload. The uploads 
+ * share the pooled connections of the connector instead.
+ */
+public class RunOutbox implements Closeable {
+
+	private static final XStream xstream = XstreamXmlMapping.getInstance();
+
+	private static final String DESCRIPTION = "description.xml";
+	private static final String FAILED = "failed.txt";
+	private static final String UPLOADED = "uploaded.log";
+	private static final String TEMP = ".tmp";
+	// the code of the ApiException of an empty response, which the server gives when overloaded
+	private static final int EMPTY_RESULT = 1;
+
+	private final OpenmlBasicConnector connector;
+	private final File directory;
+	private final ScheduledThreadPoolExecutor executor;
+
+	// run id of the uploaded entries
+	private final Map<String, Integer> uploaded = new ConcurrentHashMap<String, Integer>();
+	// the scheduled upload of the entries that are to be uploaded
+	private final Map<String, ScheduledFuture<?>> pending = new LinkedHashMap<String, ScheduledFuture<?>>();
+	private final Map<String, Integer> attempts = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * Opens an outbox that uploads Settings.OUTBOX_PARALLELISM runs concurrently
+	 *
+	 * @param connector - the connector that uploads the runs
+	 * @param directory - the journal directory
+	 * @throws IOException - problem reading the journal
+	 */
+	public RunOutbox(OpenmlBasicConnector connector, File directory) throws IOException {
+		this(connector, directory, Settings.OUTBOX_PARALLELISM);
+	}
+
+	/**
+	 * Opens an outbox, and starts uploading the runs that are still in its journal
+	 *
+	 * @param connector - the connector that uploads the runs
+	 * @param directory - the journal directory
+	 * @param parallelism - the number of runs that is uploaded concurrently
+	 * @throws IOException - problem reading the journal
+	 */
+	public RunOutbox(OpenmlBasicConnector connector, File directory, int parallelism) throws IOException {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism should be at least 1");
+		}
+		this.connector = connector;
+		this.directory = directory;
+		this.executor = new ScheduledThreadPoolExecutor(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "openml-outbox");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		Files.createDirectories(directory.toPath());
+
+		File log = new File(directory, UPLOADED);
+		if (log.exists()) {
+			for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)) {
+				String[] parts = line.trim().split(" ");
+				if (parts.length == 2) {
+					uploaded.put(parts[0], Integer.parseInt(parts[1]));
+				}
+			}
+		}
+		for (File entry : listEntries()) {
+			String id = entry.getName();
+			if (id.endsWith(TEMP) || uploaded.containsKey(id)) {
+				// incomplete enqueue, or uploaded but not yet removed
+				FileUtils.deleteDirectory(entry);
+			} else if (!new File(entry, FAILED).exists()) {
+				schedule(id, 0);
+			}
+		}
+	}
+
+	/**
+	 * Stores a run in the journal, to be uploaded in the background
+	 *
+	 * @param run - the run description
+	 * @param outputFiles - the output files of the run (key: name, e.g., "predictions"), or null. They are copied into the journal.
+	 * @return the id of the entry (checksum of the run), to query its state
+	 * @throws IOException - problem writing the journal
+	 */
+	public String enqueue(Run run, Map<String, File> outputFiles) throws IOException {
+		byte[] description = xstream.toXML(run).getBytes(StandardCharsets.UTF_8);
+		Map<String, File> files = new TreeMap<String, File>();
+		if (outputFiles != null) {
+			files.putAll(outputFiles);
+		}
+		String id = getId(description, files);
+		File entry = new File(directory, id);
+		synchronized (this) {
+			if (new File(entry, FAILED).exists()) {
+				Conversion.log("Warning", "Outbox", "Run " + id + " was rejected by the server before, use retryFailed to upload it again");
+				return id;
+			}
+			if (uploaded.containsKey(id) || entry.exists()) {
+				Conversion.log("OK", "Outbox", "Run " + id + " was enqueued already");
+				return id;
+			}
+			File temp = new File(directory, id + TEMP);
+			FileUtils.deleteDirectory(temp);
+			Files.createDirectories(temp.toPath());
+			Files.write(new File(temp, DESCRIPTION).toPath(), description);
+			for (String name : files.keySet()) {
+				FileUtils.copyFile(files.get(name), new File(temp, name));
+			}
+			// appears in the journal only when complete
+			Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			schedule(id, 0);
+		}
+		return id;
+	}
+
+	/**
+	 * @return the ids of the runs that are still to be uploaded
+	 */
+	public synchronized List<String> getPending() {
+		return new ArrayList<String>(pending.keySet());
+	}
+
+	/**
+	 * @return the ids of the runs that the server rejected, with the error
+	 * @throws IOException - problem reading the journal
+	 */
+	public Map<String, String> getFailed() throws IOException {
+		Map<String, String> failed = new TreeMap<String, String>();
+		for (File entry : listEntries()) {
+			File error = new File(entry, FAILED);
+			if (error.exists()) {
+				failed.put(entry.getName(), new String(Files.readAllBytes(error.toPath()), StandardCharsets.UTF_8));
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Uploads a run that the server rejected once more, e.g., after the 
+	 * problem was fixed on the server (such as a missing flow).
+	 *
+	 * @param id - the id of the entry, as returned by enqueue
+	 * @return whether the run was rejected, and is now pending again
+	 * @throws IOException - problem updating the journal
+	 */
+	public synchronized boolean retryFailed(String id) throws IOException {
+		File error = new File(new File(directory, id), FAILED);
+		if (!error.exists()) {
+			return false;
+		}
+		Files.delete(error.toPath());
+		schedule(id, 0);
+		return true;
+	}
+
+	/**
+	 * Removes a run that was rejected, or that is still waiting to be 
+	 * uploaded, from the journal without uploading it.
+	 *
+	 * @param id - the id of the entry, as returned by enqueue
+	 * @return whether the run was removed, false if it is not in the journal or being uploaded right now
+	 * @throws IOException - problem updating the journal
+	 */
+	public synchronized boolean discard(String id) throws IOException {
+		File entry = new File(directory, id);
+		if (!entry.exists()) {
+			return false;
+		}
+		ScheduledFuture<?> upload = pending.get(id);
+		if (upload != null && !upload.cancel(false)) {
+			return false;
+		}
+		FileUtils.deleteDirectory(entry);
+		done(id);
+		Conversion.log("OK", "Outbox", "Discarded run " + id);
+		return true;
+	}
+
+	/**
+	 * @param id - the id of the entry, as returned by enqueue
+	 * @return the id the server gave the run, or null if it was not uploaded (yet)
+	 */
+	public Integer getRunId(String id) {
+		return uploaded.get(id);
+	}
+
+	/**
+	 * Uploads the pending runs now (also the ones that are waiting for a
+	 * retry), and waits until they are uploaded or rejected.
+	 *
+	 * @param timeout - maximum time (ms) to wait
+	 * @return whether all runs are uploaded or rejected, false if some are still pending
+	 * @throws InterruptedException - interrupted while waiting
+	 */
+	public synchronized boolean flush(long timeout) throws InterruptedException {
+		for (String id : new ArrayList<String>(pending.keySet())) {
+			ScheduledFuture<?> upload = pending.get(id);
+			if (upload.getDelay(TimeUnit.MILLISECONDS) > 0 && upload.cancel(false)) {
+				schedule(id, 0);
+			}
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		while (!pending.isEmpty()) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops uploading, after the uploads that are in progress. The runs that
+	 * are not uploaded remain in the journal, and are uploaded by the next
+	 * outbox on the same directory.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void schedule(String id, long delay) {
+		if (!executor.isShutdown()) {
+			pending.put(id, executor.schedule(() -> upload(id), delay, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private synchronized void done(String id) {
+		pending.remove(id);
+		attempts.remove(id);
+		notifyAll();
+	}
+
+	private void upload(String id) {
+		File entry = new File(directory, id);
+		if (!entry.exists()) {
+			done(id);
+			return;
+		}
+		Map<String, File> files = new TreeMap<String, File>();
+		for (File file : entry.listFiles()) {
+			if (!file.getName().equals(DESCRIPTION) && !file.getName().equals(FAILED)) {
+				files.put(file.getName(), file);
+			}
+		}
+		try {
+			UploadRun result = connector.runUpload(new FileBody(new File(entry, DESCRIPTION)), files);
+			markUploaded(id, result.getRun_id());
+			FileUtils.deleteDirectory(entry);
+			Conversion.log("OK", "Outbox", "Uploaded run " + id + ", with rid " + result.getRun_id());
+			done(id);
+		} catch (ApiException e) {
+			if (e.getCode() == EMPTY_RESULT) {
+				retry(id, e);
+				return;
+			}
+			// at once, so retryFailed does not see the error before the upload is done
+			synchronized (this) {
+				try {
+					Files.write(new File(entry, FAILED).toPath(), (e.getCode() + " " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+				} catch (IOException io) {
+					Conversion.log("Error", "Outbox", "Could not store error of run " + id + ": " + io.getMessage());
+				}
+				Conversion.log("Error", "Outbox", "Server rejected run " + id + ": " + e.getMessage());
+				done(id);
+			}
+		} catch (Exception e) {
+			retry(id, e);
+		}
+	}
+
+	private void retry(String id, Exception e) {
+		int attempt = attempts.merge(id, 1, Integer::sum);
+		long delay = Math.min(Settings.OUTBOX_RETRY_MAX_DELAY, Settings.OUTBOX_RETRY_DELAY << Math.min(attempt - 1, 30));
+		Conversion.log("Warning", "Outbox", "Could not upload run " + id + " (attempt " + attempt + "), retrying in " + delay + " ms: " + e.getMessage());
+		schedule(id, delay);
+	}
+
+	private synchronized void markUploaded(String id, int runId) throws IOException {
+		uploaded.put(id, runId);
+		Files.write(new File(directory, UPLOADED).toPath(), (id + " " + runId + "\n").getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+	}
+
+	private List<File> listEntries() {
+		List<File> entries = new ArrayList<File>();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					entries.add(file);
+				}
+			}
+		}
+		return entries;
+	}
+
+	private static String getId(byte[] description, Map<String, File> files) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			digest.update(description);
+			for (String name : files.keySet()) {
+				if (!name.matches("[A-Za-z0-9_]+")) {
+					throw new IllegalArgumentException("Illegal output file name: " + name);
+				}
+				digest.update(name.getBytes(StandardCharsets.UTF_8));
+				digest.update(CacheManager.md5(files.get(name)).getBytes(StandardCharsets.UTF_8));
+			}
+			return CacheManager.toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
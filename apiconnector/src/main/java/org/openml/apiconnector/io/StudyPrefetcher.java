@@ -0,0 +1,266 @@
+package org.openml.apiconnector.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.algorithms.TaskInformation;
+import org.openml.apiconnector.settings.Config;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Study;
+import org.openml.apiconnector.xml.Task;
+
+/**
+ * Downloads everything that is needed to run a study (or benchmark suite)
+ * into the cache, concurrently: per task the task, its data splits and its
+ * dataset, and per dataset the description, the data, the features and the
+ * qualities. Datasets that are used by multiple tasks are downloaded once.
+ * Afterwards, running the study does not need the server. Qualities are only
+ * read from the cache through OpenmlBasicConnector.dataQualitiesCached, as they
+ * can change after a dataset is uploaded.
+ *
+ * The items are requested as soon as the items they depend on are known
+ * (e.g., a dataset as soon as its task is), and items that can not be
+ * obtained are reported without stopping the others. Prefetching again
+ * resumes: items that are in the cache are not downloaded again, and
+ * interrupted downloads continue where they stopped.
+ */
+public class StudyPrefetcher {
+
+	/**
+	 * Receives the progress of a prefetch
+	 */
+	public interface Listener {
+		/**
+		 * Called when an item is obtained (or failed). May be called concurrently.
+		 *
+		 * @param item - the item, e.g., "task 59" or "dataset 61"
+		 * @param completed - the number of completed items
+		 * @param total - the number of items known so far (grows while the dependencies are discovered)
+		 * @param error - the error, or null if the item was obtained
+		 */
+		void progress(String item, int completed, int total, Exception error);
+	}
+
+	/**
+	 * The outcome of a prefetch
+	 */
+	public static class Result {
+		private final int completed;
+		private final Map<String, Exception> errors;
+
+		private Result(int completed, Map<String, Exception> errors) {
+			this.completed = completed;
+			this.errors = Collections.unmodifiableMap(new LinkedHashMap<String, Exception>(errors));
+		}
+
+		/**
+		 * @return the number of items that were obtained
+		 */
+		public int getCompleted() {
+			return completed;
+		}
+
+		/**
+		 * @return the errors of the items that could not be obtained
+		 */
+		public Map<String, Exception> getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return whether all items were obtained
+		 */
+		public boolean isComplete() {
+			return errors.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return "Prefetched " + completed + " items, " + errors.size() + " failed";
+		}
+	}
+
+	private final OpenmlBasicConnector connector;
+	private final int parallelism;
+	private volatile Listener listener = null;
+
+	/**
+	 * Creates a prefetcher that requests Settings.BULK_PARALLELISM items concurrently
+	 *
+	 * @param connector - the connector that obtains the items
+	 */
+	public StudyPrefetcher(OpenmlBasicConnector connector) {
+		this(connector, Settings.BULK_PARALLELISM);
+	}
+
+	/**
+	 * @param connector - the connector that obtains the items
+	 * @param parallelism - the number of items that is requested concurrently
+	 */
+	public StudyPrefetcher(OpenmlBasicConnector connector, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism should be at least 1");
+		}
+		this.connector = connector;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param listener - receives the progress, or null
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Prefetches a study
+	 *
+	 * @param studyAlias - the id or alias of the study (e.g., OpenML100)
+	 * @return the number of obtained items, and the errors of the others
+	 * @throws Exception - Can be: IOException (problem with connection, server),
+	 *                   ApiException (contains error code, see OpenML
+	 *                   documentation), InterruptedException
+	 */
+	public Result prefetch(String studyAlias) throws Exception {
+		return prefetch(connector.studyGet(studyAlias, null));
+	}
+
+	/**
+	 * Prefetches the tasks and datasets of a study
+	 *
+	 * @param study - the study (obtained with studyGet)
+	 * @return the number of obtained items, and the errors of the others
+	 * @throws InterruptedException - interrupted while prefetching
+	 */
+	public Result prefetch(Study study) throws InterruptedException {
+		if (!Settings.CACHE_ALLOWED) {
+			throw new IllegalStateException("Prefetching requires the cache to be allowed (Settings.CACHE_ALLOWED). ");
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "openml-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+		Prefetch prefetch = new Prefetch(executor);
+		try {
+			List<CompletableFuture<?>> items = new ArrayList<CompletableFuture<?>>();
+			if (study.getTasks() != null) {
+				for (Integer task_id : study.getTasks()) {
+					items.add(prefetch.task(task_id));
+				}
+			}
+			if (study.getDataset() != null) {
+				for (Integer did : study.getDataset()) {
+					items.add(prefetch.dataset(did));
+				}
+			}
+			// completes when all items (and their dependencies) are done, failed or not
+			CompletableFuture.allOf(items.stream().map(item -> item.handle((result, error) -> null))
+					.toArray(CompletableFuture[]::new)).get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		Result result = new Result(prefetch.completed.get() - prefetch.errors.size(), prefetch.errors);
+		Conversion.log(result.isComplete() ? "OK" : "Warning", "Prefetch", "Study " + study.getId() + ": " + result);
+		return result;
+	}
+
+	// the state of a single prefetch
+	private class Prefetch {
+		private final ExecutorService executor;
+		private final Map<Integer, CompletableFuture<Void>> datasets = new ConcurrentHashMap<Integer, CompletableFuture<Void>>();
+		private final Map<String, Exception> errors = Collections.synchronizedMap(new LinkedHashMap<String, Exception>());
+		private final AtomicInteger completed = new AtomicInteger();
+		private final AtomicInteger total = new AtomicInteger();
+
+		private Prefetch(ExecutorService executor) {
+			this.executor = executor;
+		}
+
+		private CompletableFuture<Void> task(int task_id) {
+			return fetch("task " + task_id, () -> connector.taskGet(task_id)).thenCompose(task -> {
+				CompletableFuture<?> splits = fetch("splits " + task_id, () -> connector.taskSplitsGet(task));
+				Integer did = getDatasetId(task);
+				return did == null ? CompletableFuture.allOf(splits) : CompletableFuture.allOf(splits, dataset(did));
+			});
+		}
+
+		private CompletableFuture<Void> dataset(int did) {
+			return datasets.computeIfAbsent(did, key -> fetch("data " + did, () -> connector.dataGet(did)).thenCompose(dsd -> CompletableFuture.allOf(
+					fetch("dataset " + did, () -> connector.datasetGet(dsd)),
+					fetch("features " + did, () -> connector.dataFeatures(did)),
+					fetch("qualities " + did, () -> connector.dataQualitiesCached(did, null)))));
+		}
+
+		private <T> CompletableFuture<T> fetch(String item, Callable<T> call) {
+			total.incrementAndGet();
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					T result = call.call();
+					report(item, null);
+					return result;
+				} catch (Exception e) {
+					report(item, e);
+					throw new CompletionException(e);
+				}
+			}, executor);
+		}
+
+		private void report(String item, Exception error) {
+			if (error != null) {
+				errors.put(item, error);
+				Conversion.log("Warning", "Prefetch", "Could not obtain " + item + ": " + error.getMessage());
+			}
+			int done = completed.incrementAndGet();
+			Listener current = listener;
+			if (current != null) {
+				current.progress(item, done, total.get(), error);
+			}
+		}
+	}
+
+	private static Integer getDatasetId(Task task) {
+		try {
+			return TaskInformation.getSourceData(task).getData_set_id();
+		} catch (Exception e) {
+			// e.g., tasks without source data
+			return null;
+		}
+	}
+
+	/**
+	 * Prefetches a study from the command line, with the server and api key of the config file
+	 *
+	 * @param args - the id or alias of the study, optionally followed by the number of concurrent requests
+	 * @throws Exception - problem obtaining the study
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: StudyPrefetcher <study id or alias> [parallelism]");
+			return;
+		}
+		Config config = new Config();
+		config.updateStaticSettings();
+		Settings.CACHE_ALLOWED = true;
+		try (OpenmlConnector connector = new OpenmlConnector(config.getServer(), config.getApiKey())) {
+			StudyPrefetcher prefetcher = new StudyPrefetcher(connector, args.length > 1 ? Integer.parseInt(args[1]) : Settings.BULK_PARALLELISM);
+			prefetcher.setListener((item, completed, total, error) ->
+				System.out.println("[" + completed + "/" + total + "] " + item + (error == null ? "" : " failed: " + error.getMessage())));
+			System.out.println(prefetcher.prefetch(args[0]));
+		}
+	}
+}
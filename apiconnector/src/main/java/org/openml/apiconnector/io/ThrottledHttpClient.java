@@ -0,0 +1,86 @@
+package org.openml.apiconnector.io;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Http client that passes every request (including retries) through a rate
+ * limiter and an adaptive concurrency limit before handing it to the pooled
+ * client. A request counts against the concurrency limit until its response
+ * arrived; the body is read afterwards.
+ */
+class ThrottledHttpClient extends CloseableHttpClient {
+
+	private final CloseableHttpClient client;
+	private final RateLimiter rateLimiter;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+	/**
+	 * @param client - the client that executes the requests
+	 * @param rateLimiter - the rate limiter, or null
+	 * @param concurrencyLimit - the concurrency limit, or null
+	 */
+	ThrottledHttpClient(CloseableHttpClient client, RateLimiter rateLimiter, AdaptiveConcurrencyLimit concurrencyLimit) {
+		this.client = client;
+		this.rateLimiter = rateLimiter;
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	@Override
+	protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+		if (rateLimiter != null) {
+			rateLimiter.acquire();
+		}
+		if (concurrencyLimit == null) {
+			return client.execute(target, request, context);
+		}
+		concurrencyLimit.acquire();
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			CloseableHttpResponse response = client.execute(target, request, context);
+			failed = CircuitBreaker.isFailure(request.getRequestLine().getMethod(), response);
+			return response;
+		} finally {
+			concurrencyLimit.release(getEndpoint(request), System.nanoTime() - start, failed);
+		}
+	}
+
+	private static String getEndpoint(HttpRequest request) {
+		if (request instanceof HttpUriRequest) {
+			return RetryPolicy.getEndpoint(((HttpUriRequest) request).getURI());
+		}
+		try {
+			return RetryPolicy.getEndpoint(URI.create(request.getRequestLine().getUri()));
+		} catch (IllegalArgumentException e) {
+			return "";
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		client.close();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public HttpParams getParams() {
+		return client.getParams();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public ClientConnectionManager getConnectionManager() {
+		return client.getConnectionManager();
+	}
+}
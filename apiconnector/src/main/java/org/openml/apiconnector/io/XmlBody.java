@@ -0,0 +1,79 @@
+package org.openml.apiconnector.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * A part of a multipart request that contains the xml of an object, which is
+ * serialized straight into the request body (rather than into a string or a
+ * temp file first). The length is determined by serializing into a counter,
+ * such that the request has a content length, and can be repeated (e.g., on
+ * a retry) by serializing again.
+ */
+public class XmlBody extends AbstractContentBody {
+
+	private static final XStream xstream = XstreamXmlMapping.getInstance();
+
+	private final Object object;
+	private final String filename;
+	private long length = -1;
+
+	/**
+	 * @param object - the object to serialize, e.g., a Run or a Flow
+	 * @param filename - the name of the part's file, e.g., "run.xml"
+	 */
+	public XmlBody(Object object, String filename) {
+		super(ContentType.create("text/xml", StandardCharsets.UTF_8));
+		this.object = object;
+		this.filename = filename;
+	}
+
+	@Override
+	public String getFilename() {
+		return filename;
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		xstream.toXML(object, writer);
+		// flush, but do not close the request body
+		writer.flush();
+	}
+
+	@Override
+	public String getTransferEncoding() {
+		return "binary";
+	}
+
+	@Override
+	public synchronized long getContentLength() {
+		if (length < 0) {
+			CountingOutputStream counter = new CountingOutputStream(new NullOutputStream());
+			try {
+				writeTo(counter);
+			} catch (IOException e) {
+				// does not happen when writing to a counter
+				return -1;
+			}
+			length = counter.getByteCount();
+		}
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return xstream.toXML(object);
+	}
+}
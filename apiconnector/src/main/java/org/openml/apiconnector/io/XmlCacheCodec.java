@@ -0,0 +1,51 @@
+package org.openml.apiconnector.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * Stores api responses in the same xml format as the server returns them.
+ */
+public class XmlCacheCodec implements CacheCodec {
+
+	public static final String NAME = "xml";
+
+	private static final XStream xstream = XstreamXmlMapping.getInstance();
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public File getLocation(File cachedData) {
+		return cachedData;
+	}
+
+	@Override
+	public void write(OpenmlApiResponse response, OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		writer.append(xstream.toXML(response));
+		writer.flush();
+	}
+
+	@Override
+	public OpenmlApiResponse read(InputStream in) throws IOException {
+		try {
+			return (OpenmlApiResponse) xstream.fromXML(in);
+		} catch (XStreamException | ClassCastException e) {
+			throw new IOException("Could not read cached xml: " + e.getMessage(), e);
+		}
+	}
+}
@@ -79,6 +79,135 @@ public class Config implements Serializable {
 		if (get("cache_directory") != null) {
 			Settings.CACHE_DIRECTORY = config.get("cache_directory");
 		}
+		if (get("cache_max_size") != null) {
+			Settings.CACHE_MAX_SIZE = Long.parseLong(get("cache_max_size"));
+		}
+		if (get("cache_eviction_policy") != null) {
+			Settings.CACHE_EVICTION_POLICY = get("cache_eviction_policy");
+		}
+		if (get("cache_codec") != null) {
+			Settings.CACHE_CODEC = get("cache_codec");
+		}
+		if (get("cache_max_age") != null) {
+			Settings.CACHE_MAX_AGE = Long.parseLong(get("cache_max_age"));
+		}
+		if (get("cache_qualities_max_age") != null) {
+			Settings.CACHE_QUALITIES_MAX_AGE = Long.parseLong(get("cache_qualities_max_age"));
+		}
+		if (get("cache_stale_while_revalidate") != null) {
+			Settings.CACHE_STALE_WHILE_REVALIDATE = get("cache_stale_while_revalidate").equals("true");
+		}
+		if (get("cache_compression") != null) {
+			Settings.CACHE_COMPRESSION = get("cache_compression").equals("true");
+		}
+		if (get("cache_verify_checksums") != null) {
+			Settings.CACHE_VERIFY_CHECKSUMS = get("cache_verify_checksums").equals("true");
+		}
+		if (get("cache_lazy_verification") != null) {
+			Settings.CACHE_LAZY_VERIFICATION = get("cache_lazy_verification").equals("true");
+		}
+		if (get("memory_cache_max_entries") != null) {
+			Settings.MEMORY_CACHE_MAX_ENTRIES = Integer.parseInt(get("memory_cache_max_entries"));
+		}
+		if (get("memory_cache_max_weight") != null) {
+			Settings.MEMORY_CACHE_MAX_WEIGHT = Long.parseLong(get("memory_cache_max_weight"));
+		}
+		if (get("memory_cache_soft_references") != null) {
+			Settings.MEMORY_CACHE_SOFT_REFERENCES = get("memory_cache_soft_references").equals("true");
+		}
+		if (get("download_buffer_size") != null) {
+			Settings.DOWNLOAD_BUFFER_SIZE = Integer.parseInt(get("download_buffer_size"));
+		}
+		if (get("download_resume_attempts") != null) {
+			Settings.DOWNLOAD_RESUME_ATTEMPTS = Integer.parseInt(get("download_resume_attempts"));
+		}
+		if (get("download_parallel_connections") != null) {
+			Settings.DOWNLOAD_PARALLEL_CONNECTIONS = Integer.parseInt(get("download_parallel_connections"));
+		}
+		if (get("download_chunk_size") != null) {
+			Settings.DOWNLOAD_CHUNK_SIZE = Long.parseLong(get("download_chunk_size"));
+		}
+		if (get("http_compression") != null) {
+			Settings.HTTP_COMPRESSION = get("http_compression").equals("true");
+		}
+		if (get("upload_compression") != null) {
+			Settings.UPLOAD_COMPRESSION = get("upload_compression").equals("true");
+		}
+		if (get("http_max_connections_total") != null) {
+			Settings.HTTP_MAX_CONNECTIONS_TOTAL = Integer.parseInt(get("http_max_connections_total"));
+		}
+		if (get("http_max_connections_per_route") != null) {
+			Settings.HTTP_MAX_CONNECTIONS_PER_ROUTE = Integer.parseInt(get("http_max_connections_per_route"));
+		}
+		if (get("http_keep_alive") != null) {
+			Settings.HTTP_KEEP_ALIVE = Long.parseLong(get("http_keep_alive"));
+		}
+		if (get("http_idle_eviction") != null) {
+			Settings.HTTP_IDLE_EVICTION = Long.parseLong(get("http_idle_eviction"));
+		}
+		if (get("http_connect_timeout") != null) {
+			Settings.HTTP_CONNECT_TIMEOUT = Integer.parseInt(get("http_connect_timeout"));
+		}
+		if (get("http_socket_timeout") != null) {
+			Settings.HTTP_SOCKET_TIMEOUT = Integer.parseInt(get("http_socket_timeout"));
+		}
+		if (get("http_connection_request_timeout") != null) {
+			Settings.HTTP_CONNECTION_REQUEST_TIMEOUT = Integer.parseInt(get("http_connection_request_timeout"));
+		}
+		if (get("http_max_retries") != null) {
+			Settings.HTTP_MAX_RETRIES = Integer.parseInt(get("http_max_retries"));
+		}
+		if (get("http_retry_base_delay") != null) {
+			Settings.HTTP_RETRY_BASE_DELAY = Long.parseLong(get("http_retry_base_delay"));
+		}
+		if (get("http_retry_max_delay") != null) {
+			Settings.HTTP_RETRY_MAX_DELAY = Long.parseLong(get("http_retry_max_delay"));
+		}
+		if (get("http_retry_posts") != null) {
+			Settings.HTTP_RETRY_POSTS = get("http_retry_posts").equals("true");
+		}
+		if (get("http_coalesce_requests") != null) {
+			Settings.HTTP_COALESCE_REQUESTS = get("http_coalesce_requests").equals("true");
+		}
+		if (get("bulk_parallelism") != null) {
+			Settings.BULK_PARALLELISM = Integer.parseInt(get("bulk_parallelism"));
+		}
+		if (get("http_rate_limit") != null) {
+			Settings.HTTP_RATE_LIMIT = Double.parseDouble(get("http_rate_limit"));
+		}
+		if (get("http_rate_limit_burst") != null) {
+			Settings.HTTP_RATE_LIMIT_BURST = Integer.parseInt(get("http_rate_limit_burst"));
+		}
+		if (get("http_limits_shared") != null) {
+			Settings.HTTP_LIMITS_SHARED = get("http_limits_shared").equals("true");
+		}
+		if (get("http_adaptive_concurrency") != null) {
+			Settings.HTTP_ADAPTIVE_CONCURRENCY = get("http_adaptive_concurrency").equals("true");
+		}
+		if (get("http_latency_tolerance") != null) {
+			Settings.HTTP_LATENCY_TOLERANCE = Double.parseDouble(get("http_latency_tolerance"));
+		}
+		if (get("circuit_breaker_threshold") != null) {
+			Settings.CIRCUIT_BREAKER_THRESHOLD = Integer.parseInt(get("circuit_breaker_threshold"));
+		}
+		if (get("circuit_breaker_open_time") != null) {
+			Settings.CIRCUIT_BREAKER_OPEN_TIME = Long.parseLong(get("circuit_breaker_open_time"));
+		}
+		if (get("circuit_breaker_probes") != null) {
+			Settings.CIRCUIT_BREAKER_PROBES = Integer.parseInt(get("circuit_breaker_probes"));
+		}
+		if (get("circuit_breaker_serve_stale") != null) {
+			Settings.CIRCUIT_BREAKER_SERVE_STALE = get("circuit_breaker_serve_stale").equals("true");
+		}
+		if (get("outbox_parallelism") != null) {
+			Settings.OUTBOX_PARALLELISM = Integer.parseInt(get("outbox_parallelism"));
+		}
+		if (get("outbox_retry_delay") != null) {
+			Settings.OUTBOX_RETRY_DELAY = Long.parseLong(get("outbox_retry_delay"));
+		}
+		if (get("outbox_retry_max_delay") != null) {
+			Settings.OUTBOX_RETRY_MAX_DELAY = Long.parseLong(get("outbox_retry_max_delay"));
+		}
 	}
 
 	/**
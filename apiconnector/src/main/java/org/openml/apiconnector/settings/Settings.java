@@ -45,5 +45,186 @@ public class Settings {
 	 * Whether caching is allowed. Keep value to true.
 	 */
 	public static boolean CACHE_ALLOWED = true;
+	/**
+	 * Maximum total size (bytes) of the cache. When exceeded, files are evicted. 0 for unlimited
+	 */
+	public static long CACHE_MAX_SIZE = 0;
+	/**
+	 * Which files are evicted first when the cache exceeds its maximum size: least 
+	 * recently used (lru) or least frequently used (lfu)
+	 */
+	public static String CACHE_EVICTION_POLICY = "lru";
+	/**
+	 * Format in which api responses are cached (xml or binary). Binary is faster to read, 
+	 * but stored next to the xml location (with .bin appended). Xml is used as fallback
+	 */
+	public static String CACHE_CODEC = "xml";
+	/**
+	 * Cached api responses that were validated longer ago (ms) are revalidated with 
+	 * the server (conditional get). -1 to never revalidate
+	 */
+	public static long CACHE_MAX_AGE = -1;
+	/**
+	 * Cached data qualities (see OpenmlBasicConnector.dataQualitiesCached) that were validated 
+	 * longer ago (ms) are revalidated with the server, as it computes them after a dataset 
+	 * is uploaded. -1 to never revalidate
+	 */
+	public static long CACHE_QUALITIES_MAX_AGE = 60L * 60 * 1000;
+	/**
+	 * Whether stale api responses are served immediately, while they are 
+	 * revalidated in the background. Otherwise, they are revalidated first
+	 */
+	public static boolean CACHE_STALE_WHILE_REVALIDATE = true;
+	/**
+	 * Whether cached api responses are compressed (gzip)
+	 */
+	public static boolean CACHE_COMPRESSION = false;
+	/**
+	 * Whether downloaded datasets are verified against the md5 checksum in their description
+	 */
+	public static boolean CACHE_VERIFY_CHECKSUMS = true;
+	/**
+	 * Whether cached datasets are returned immediately, and verified against their checksum 
+	 * in the background (once per session). Otherwise, only datasets without known checksum are verified, before returning them
+	 */
+	public static boolean CACHE_LAZY_VERIFICATION = false;
+	/**
+	 * Maximum number of deserialized api responses kept in memory. 0 to disable. 
+	 * Responses from memory are shared by all callers, so they should not be modified
+	 */
+	public static int MEMORY_CACHE_MAX_ENTRIES = 1024;
+	/**
+	 * Maximum total weight (size of the cached xml, bytes) of the api responses kept in memory. 0 for unlimited
+	 */
+	public static long MEMORY_CACHE_MAX_WEIGHT = 256L * 1024 * 1024;
+	/**
+	 * Whether api responses in memory are held by soft references, so they can be reclaimed under memory pressure
+	 */
+	public static boolean MEMORY_CACHE_SOFT_REFERENCES = false;
+	
+	/**
+	 * Size (bytes) of the buffer through which files are downloaded
+	 */
+	public static int DOWNLOAD_BUFFER_SIZE = 1024 * 1024;
+	/**
+	 * How often a file download is resumed after the connection dropped
+	 */
+	public static int DOWNLOAD_RESUME_ATTEMPTS = 3;
+	/**
+	 * Number of connections over which a large file is downloaded in parallel chunks. 1 to download as a single stream
+	 */
+	public static int DOWNLOAD_PARALLEL_CONNECTIONS = 1;
+	/**
+	 * Size (bytes) of the chunks of a parallel download. Smaller files are downloaded as a single stream
+	 */
+	public static long DOWNLOAD_CHUNK_SIZE = 16L * 1024 * 1024;
 	
+	/**
+	 * Whether responses are requested compressed (gzip, deflate), and decompressed while they are received
+	 */
+	public static boolean HTTP_COMPRESSION = true;
+	/**
+	 * Whether output files of runs (e.g., predictions) are written gzip compressed, and uploaded as such. Requires a server that accepts compressed files
+	 */
+	public static boolean UPLOAD_COMPRESSION = false;
+	/**
+	 * Maximum number of open connections of a connection pool
+	 */
+	public static int HTTP_MAX_CONNECTIONS_TOTAL = 64;
+	/**
+	 * Maximum number of open connections of a connection pool to a single host
+	 */
+	public static int HTTP_MAX_CONNECTIONS_PER_ROUTE = 16;
+	/**
+	 * How long (ms) a pooled connection is kept alive, if the server does not specify it
+	 */
+	public static long HTTP_KEEP_ALIVE = 30000;
+	/**
+	 * Pooled connections that are idle for longer than this (ms) are closed. 0 to disable. 
+	 */
+	public static long HTTP_IDLE_EVICTION = 60000;
+	/**
+	 * Timeout (ms) for establishing a connection. 0 for infinite
+	 */
+	public static int HTTP_CONNECT_TIMEOUT = 30000;
+	/**
+	 * Timeout (ms) of waiting for data. 0 for infinite
+	 */
+	public static int HTTP_SOCKET_TIMEOUT = 300000;
+	/**
+	 * Timeout (ms) of waiting for a connection from the pool. 0 for infinite
+	 */
+	public static int HTTP_CONNECTION_REQUEST_TIMEOUT = 60000;
+	/**
+	 * How often a request that failed because of a transient problem (connection, server load) is retried
+	 */
+	public static int HTTP_MAX_RETRIES = 3;
+	/**
+	 * Delay (ms) before the first retry, doubled for every next retry (with random jitter)
+	 */
+	public static long HTTP_RETRY_BASE_DELAY = 1000;
+	/**
+	 * Maximum delay (ms) before a retry. Requests for which the server asks a longer wait (Retry-After) are not retried
+	 */
+	public static long HTTP_RETRY_MAX_DELAY = 30000;
+	/**
+	 * Whether post requests (uploads) are retried, when the server certainly did not process them
+	 */
+	public static boolean HTTP_RETRY_POSTS = false;
+	/**
+	 * Whether identical get requests of concurrent threads share a single call to the server
+	 */
+	public static boolean HTTP_COALESCE_REQUESTS = true;
+	/**
+	 * Maximum number of entities that a bulk get (e.g., dataGet with a collection of ids) requests concurrently
+	 */
+	public static int BULK_PARALLELISM = 8;
+	/**
+	 * Maximum number of requests per second of a connector (token bucket, with bursts of HTTP_RATE_LIMIT_BURST). 0 for unlimited
+	 */
+	public static double HTTP_RATE_LIMIT = 0;
+	/**
+	 * Number of requests that may be sent at once before the rate limit applies
+	 */
+	public static int HTTP_RATE_LIMIT_BURST = 10;
+	/**
+	 * Whether the rate and concurrency limits are shared by all connectors in this JVM, rather than applied per connector
+	 */
+	public static boolean HTTP_LIMITS_SHARED = false;
+	/**
+	 * Whether the number of concurrent requests adapts to the server: it shrinks (halves) on errors and slow responses, and slowly grows up to HTTP_MAX_CONNECTIONS_PER_ROUTE otherwise
+	 */
+	public static boolean HTTP_ADAPTIVE_CONCURRENCY = false;
+	/**
+	 * A response is slow (and shrinks the concurrency) when it took this many times longer than usual for its endpoint
+	 */
+	public static double HTTP_LATENCY_TOLERANCE = 2.0;
+	/**
+	 * Number of consecutive failures of an endpoint family (e.g., task) after which its requests fail fast. 0 to disable
+	 */
+	public static int CIRCUIT_BREAKER_THRESHOLD = 5;
+	/**
+	 * Time (ms) requests fail fast, before probe requests are sent to the server
+	 */
+	public static long CIRCUIT_BREAKER_OPEN_TIME = 30000;
+	/**
+	 * Number of successful probe requests after which requests are sent normally again
+	 */
+	public static int CIRCUIT_BREAKER_PROBES = 1;
+	/**
+	 * Whether stale cache entries are returned (instead of failing) when requests to their endpoint fail fast
+	 */
+	public static boolean CIRCUIT_BREAKER_SERVE_STALE = true;
+	/**
+	 * Number of runs that a RunOutbox uploads concurrently
+	 */
+	public static int OUTBOX_PARALLELISM = 2;
+	/**
+	 * Delay (ms) before a RunOutbox retries a failed upload, doubled for every next retry
+	 */
+	public static long OUTBOX_RETRY_DELAY = 10000;
+	/**
+	 * Maximum delay (ms) before a RunOutbox retries a failed upload
+	 */
+	public static long OUTBOX_RETRY_MAX_DELAY = 600000;
 }
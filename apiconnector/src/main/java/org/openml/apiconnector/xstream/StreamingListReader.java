@@ -0,0 +1,235 @@
+package org.openml.apiconnector.xstream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.openml.apiconnector.xml.ApiError;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.naming.NoNameCoder;
+import com.thoughtworks.xstream.io.xml.QNameMap;
+import com.thoughtworks.xstream.io.xml.StaxReader;
+
+/**
+ * Reads the elements of a list response (e.g., the oml:evaluation elements of
+ * an oml:evaluations document) one by one, directly from an input stream.
+ * Only a single element is materialized at a time, so memory usage does not
+ * depend on the length of the list.
+ *
+ * @param <T> - the type of the list elements
+ */
+public class StreamingListReader<T> implements Iterator<T>, Closeable {
+
+	private static final XMLInputFactory inputFactory = createInputFactory();
+
+	private final InputStream in;
+	private final XMLStreamReader reader;
+	private final XStream xstream;
+	private final String elementName;
+	private final Class<T> elementClass;
+	private final Closeable resource;
+	private final ApiError error;
+	private boolean positioned = false;
+	private boolean finished = false;
+	private boolean exhausted = false;
+
+	/**
+	 * Opens the stream and reads up to the root element.
+	 *
+	 * @param in - the xml input stream
+	 * @param elementName - the name of the list elements (e.g., oml:evaluation)
+	 * @param elementClass - the class the list elements are mapped to
+	 * @param resource - closed together with this reader (e.g., the http response). Can be null
+	 * @throws XMLStreamException - the input is not well formed xml
+	 */
+	public StreamingListReader(InputStream in, String elementName, Class<T> elementClass, Closeable resource) throws XMLStreamException {
+		this.in = in;
+		this.reader = inputFactory.createXMLStreamReader(in, "UTF-8");
+		this.xstream = XstreamXmlMapping.getElementInstance(elementName, elementClass);
+		this.elementName = elementName;
+		this.elementClass = elementClass;
+		this.resource = resource;
+
+		if (nextStartElement(0) && reader.getLocalName().equals("oml:error")) {
+			error = (ApiError) unmarshal(XstreamXmlMapping.getInstance());
+			finished = true;
+			exhausted = true;
+		} else {
+			error = null;
+		}
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// the mapping uses prefixed names (oml:...), so names are taken literally
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * Returns the error that the server returned instead of a list
+	 *
+	 * @return the error, or null if the server returned a list
+	 */
+	public ApiError getError() {
+		return error;
+	}
+
+	/**
+	 * Advances to the next start element, as long as it is not deeper than maxDepth
+	 * levels below the current element and the enclosing elements are not closed.
+	 */
+	private boolean nextStartElement(int maxDepth) throws XMLStreamException {
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (depth <= maxDepth) {
+					return true;
+				}
+				depth += 1;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == 0) {
+					return false;
+				}
+				depth -= 1;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (finished) {
+			return false;
+		}
+		if (positioned) {
+			return true;
+		}
+		try {
+			// skips over other children of the root, e.g., meta data
+			while (nextStartElement(0)) {
+				if (reader.getLocalName().equals(elementName)) {
+					positioned = true;
+					return true;
+				}
+				skipElement();
+			}
+			finished = true;
+			exhausted = true;
+			return false;
+		} catch (XMLStreamException e) {
+			throw new IllegalStateException("Problem reading xml stream: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		positioned = false;
+		try {
+			return elementClass.cast(unmarshal(xstream));
+		} catch (XMLStreamException e) {
+			throw new IllegalStateException("Problem reading xml stream: " + e.getMessage(), e);
+		}
+	}
+
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth += 1;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth -= 1;
+			}
+		}
+	}
+
+	/**
+	 * Unmarshals the element the reader is positioned at, and leaves the
+	 * reader at its end element.
+	 */
+	private Object unmarshal(XStream xstream) throws XMLStreamException {
+		SubtreeReader subtree = new SubtreeReader(reader);
+		Object result = xstream.unmarshal(new StaxReader(new QNameMap(), subtree, new NoNameCoder()));
+		subtree.skipToEnd();
+		return result;
+	}
+
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		try {
+			if (exhausted) {
+				// reads the trailing whitespace, so the connection can be reused
+				byte[] buffer = new byte[1024];
+				while (in.read(buffer) != -1);
+			}
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (resource != null) {
+				resource.close();
+			}
+		}
+	}
+
+	/**
+	 * Exposes only the element that the underlying reader is positioned at, as
+	 * if it were a document on its own. The start element is replayed, and the
+	 * document ends after the matching end element.
+	 */
+	private static class SubtreeReader extends StreamReaderDelegate {
+		private boolean replay = true;
+		private int depth = 0;
+
+		public SubtreeReader(XMLStreamReader reader) {
+			super(reader);
+		}
+
+		@Override
+		public boolean hasNext() throws XMLStreamException {
+			return replay || depth > 0;
+		}
+
+		@Override
+		public int next() throws XMLStreamException {
+			if (replay) {
+				replay = false;
+				depth = 1;
+				return XMLStreamConstants.START_ELEMENT;
+			}
+			if (depth == 0) {
+				return XMLStreamConstants.END_DOCUMENT;
+			}
+			int event = super.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth += 1;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth -= 1;
+			}
+			return event;
+		}
+
+		public void skipToEnd() throws XMLStreamException {
+			while (depth > 0) {
+				next();
+			}
+		}
+	}
+}
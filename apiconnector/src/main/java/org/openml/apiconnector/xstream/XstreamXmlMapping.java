@@ -30,6 +30,9 @@
  ******************************************************************************/
 package org.openml.apiconnector.xstream;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.openml.apiconnector.xml.ApiError;
 import org.openml.apiconnector.xml.Data;
 import org.openml.apiconnector.xml.DataDelete;
@@ -97,6 +100,25 @@ import com.thoughtworks.xstream.io.xml.DomDriver;
 
 public class XstreamXmlMapping {
 	
+	/**
+	 * Lazily initialized holder of the shared instance. Configuring an XStream
+	 * instance (annotation processing, aliases) is expensive, while a fully 
+	 * configured instance is thread-safe for marshalling and unmarshalling. 
+	 */
+	private static class SharedInstanceHolder {
+		private static final XStream INSTANCE = getInstance(new ClassLoaderReference(new CompositeClassLoader()));
+	}
+	
+	private static final Map<String, XStream> elementInstances = new ConcurrentHashMap<String, XStream>();
+	
+	/**
+	 * Generates a new bidirectional mapping between the XML Objects (server) and 
+	 * the Java Objects, using a specific class loader. 
+	 * 
+	 * @param clr - reference to the class loader to be used by XStream
+	 * @return XStream - A new XStream instance capable of mapping XML objects and
+	 * OpenmlApiConnector Objects to each other. 
+	 */
 	public static XStream getInstance(ClassLoaderReference clr) {
 		XStream xstream = new XStream(null,new DomDriver("UTF-8", new NoNameCoder()), clr);
 		xstream.allowTypesByWildcard(new String[] { 
@@ -257,13 +279,34 @@ public class XstreamXmlMapping {
 	}
 
 	/**
-	 * Generates a bidirectional mapping between the XML Objects (server) and 
+	 * Returns a shared mapping that maps elements with a given name to a given
+	 * class. Used for reading the elements of list responses one at a time, 
+	 * as these elements are not always mapped as root element (e.g., oml:task
+	 * is mapped to Task as root, but to Tasks.Task within a task list). 
+	 * 
+	 * @param elementName - the xml element name (e.g., oml:evaluation)
+	 * @param elementClass - the class it should be mapped to
+	 * @return XStream - An XStream instance that has this mapping
+	 */
+	public static XStream getElementInstance(String elementName, Class<?> elementClass) {
+		return elementInstances.computeIfAbsent(elementName + "=" + elementClass.getName(), key -> {
+			XStream xstream = getInstance(new ClassLoaderReference(new CompositeClassLoader()));
+			xstream.alias(elementName, elementClass);
+			return xstream;
+		});
+	}
+	
+	/**
+	 * Returns the shared bidirectional mapping between the XML Objects (server) and 
 	 * the Java Objects (OpenmlApiConnector package opg.openml.apiconnector.xml).
+	 * The instance is created once and can safely be used by multiple threads. It
+	 * should not be configured any further; use getInstance(ClassLoaderReference)
+	 * to obtain a private instance instead. 
 	 * 
 	 * @return XStream - An XStream instance capable of mapping XML objects and
 	 * OpenmlApiConnector Objects to each other. 
 	 */
 	public static XStream getInstance() {
-		return getInstance(new ClassLoaderReference(new CompositeClassLoader()));
+		return SharedInstanceHolder.INSTANCE;
 	}
 }
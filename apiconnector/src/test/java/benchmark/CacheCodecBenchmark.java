@@ -0,0 +1,103 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openml.apiconnector.io.BinaryCacheCodec;
+import org.openml.apiconnector.io.CacheCodec;
+import org.openml.apiconnector.io.XmlCacheCodec;
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+/**
+ * Compares the size of the cache entries and the time to read them back
+ * between the xml and the binary cache codec, for a workload of 100 tasks and
+ * 100 data feature lists (20 - 220 features). The first round is reported as
+ * cold (before the jit compiled the readers), the other rounds as warm.
+ *
+ * Run from the apiconnector directory, after mvn test-compile:
+ *   mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat cp.txt) benchmark.CacheCodecBenchmark [rounds]
+ *
+ * Run every codec in a separate jvm for cold numbers that are not affected by
+ * the other codec: benchmark.CacheCodecBenchmark [rounds] [xml|binary]
+ */
+public class CacheCodecBenchmark {
+
+	private static final String TASK = "<oml:task xmlns:oml=\"http://openml.org/openml\">\n" +
+		"  <oml:task_id>%d</oml:task_id>\n" +
+		"  <oml:task_type_id>1</oml:task_type_id>\n" +
+		"  <oml:task_type>Supervised Classification</oml:task_type>\n" +
+		"  <oml:input name=\"source_data\">\n" +
+		"    <oml:data_set><oml:data_set_id>%d</oml:data_set_id><oml:target_feature>class</oml:target_feature></oml:data_set>\n" +
+		"  </oml:input>\n" +
+		"  <oml:input name=\"estimation_procedure\">\n" +
+		"    <oml:estimation_procedure>\n" +
+		"      <oml:id>1</oml:id>\n" +
+		"      <oml:type>crossvalidation</oml:type>\n" +
+		"      <oml:data_splits_url>https://www.openml.org/api_splits/get/%d/Task_%d_splits.arff</oml:data_splits_url>\n" +
+		"      <oml:parameter name=\"number_repeats\">1</oml:parameter>\n" +
+		"      <oml:parameter name=\"number_folds\">10</oml:parameter>\n" +
+		"    </oml:estimation_procedure>\n" +
+		"  </oml:input>\n" +
+		"  <oml:input name=\"evaluation_measures\">\n" +
+		"    <oml:evaluation_measures><oml:evaluation_measure>predictive_accuracy</oml:evaluation_measure></oml:evaluation_measures>\n" +
+		"  </oml:input>\n" +
+		"  <oml:output name=\"predictions\">\n" +
+		"    <oml:predictions><oml:format>ARFF</oml:format></oml:predictions>\n" +
+		"  </oml:output>\n" +
+		"</oml:task>";
+
+	private static String features(int count) {
+		StringBuilder sb = new StringBuilder("<oml:data_features xmlns:oml=\"http://openml.org/openml\">\n");
+		for (int i = 0; i < count; ++i) {
+			sb.append("  <oml:feature>\n    <oml:index>" + i + "</oml:index>\n    <oml:name>attribute_" + i + "</oml:name>\n");
+			sb.append("    <oml:data_type>" + (i % 3 == 0 ? "nominal" : "numeric") + "</oml:data_type>\n");
+			if (i % 3 == 0) {
+				sb.append("    <oml:nominal_value>a</oml:nominal_value>\n    <oml:nominal_value>b</oml:nominal_value>\n");
+			}
+			sb.append("    <oml:is_target>" + (i == 0) + "</oml:is_target>\n    <oml:is_ignore>false</oml:is_ignore>\n");
+			sb.append("    <oml:is_row_identifier>false</oml:is_row_identifier>\n");
+			sb.append("    <oml:NumberOfMissingValues>" + (i % 5) + "</oml:NumberOfMissingValues>\n");
+			sb.append("    <oml:MaximumValue>" + (i * 1.5) + "</oml:MaximumValue>\n  </oml:feature>\n");
+		}
+		return sb.append("</oml:data_features>").toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		List<OpenmlApiResponse> responses = new ArrayList<OpenmlApiResponse>();
+		for (int i = 0; i < 100; ++i) {
+			responses.add((OpenmlApiResponse) XstreamXmlMapping.getInstance().fromXML(String.format(TASK, i, i, i, i)));
+			responses.add((OpenmlApiResponse) XstreamXmlMapping.getInstance().fromXML(features(20 + i * 2)));
+		}
+
+		List<CacheCodec> codecs = new ArrayList<CacheCodec>();
+		if (args.length < 2 || args[1].equals(XmlCacheCodec.NAME)) {
+			codecs.add(new XmlCacheCodec());
+		}
+		if (args.length < 2 || args[1].equals(BinaryCacheCodec.NAME)) {
+			codecs.add(new BinaryCacheCodec());
+		}
+		for (CacheCodec codec : codecs) {
+			List<byte[]> entries = new ArrayList<byte[]>();
+			long size = 0;
+			for (OpenmlApiResponse response : responses) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				codec.write(response, out);
+				entries.add(out.toByteArray());
+				size += out.size();
+			}
+			System.out.printf("%s: %.2f MB%n", codec.getName(), size / 1e6);
+			for (int round = 0; round < rounds; ++round) {
+				long start = System.nanoTime();
+				for (byte[] entry : entries) {
+					codec.read(new ByteArrayInputStream(entry));
+				}
+				System.out.printf("  %s read: %d ms%n", round == 0 ? "cold" : "warm", (System.nanoTime() - start) / 1000000);
+			}
+		}
+	}
+}
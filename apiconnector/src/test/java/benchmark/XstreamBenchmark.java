@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.xml.Flow;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.core.ClassLoaderReference;
+import com.thoughtworks.xstream.core.util.CompositeClassLoader;
+
+/**
+ * Compares unmarshalling api responses with a freshly configured XStream
+ * instance per response (as before the shared instance) to the shared instance
+ * of XstreamXmlMapping. Reports the thread cpu time per response, after
+ * warm-up rounds.
+ *
+ * Run from the apiconnector directory, after mvn test-compile:
+ *   mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat cp.txt) benchmark.XstreamBenchmark [rounds] [responses]
+ */
+public class XstreamBenchmark {
+
+	private static final String FLOW_FILE = "data/FilteredClassifier_RandomForest.xml";
+
+	public static void main(String[] args) throws Exception {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int responses = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		String xml = Conversion.fileToString(new File(FLOW_FILE));
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		for (int round = -2; round < rounds; ++round) {
+			long start = threads.getCurrentThreadCpuTime();
+			for (int i = 0; i < responses; ++i) {
+				XStream fresh = XstreamXmlMapping.getInstance(new ClassLoaderReference(new CompositeClassLoader()));
+				check((Flow) fresh.fromXML(xml));
+			}
+			long freshTime = threads.getCurrentThreadCpuTime() - start;
+
+			start = threads.getCurrentThreadCpuTime();
+			for (int i = 0; i < responses; ++i) {
+				check((Flow) XstreamXmlMapping.getInstance().fromXML(xml));
+			}
+			long sharedTime = threads.getCurrentThreadCpuTime() - start;
+
+			if (round >= 0) {
+				System.out.printf("round %d: fresh instance %.2f ms, shared instance %.2f ms per response%n", round,
+						freshTime / 1e6 / responses, sharedTime / 1e6 / responses);
+			}
+		}
+	}
+
+	private static void check(Flow flow) {
+		if (!flow.getName().equals("weka.FilteredClassifier_RandomForest")) {
+			throw new IllegalStateException("Unexpected flow: " + flow.getName());
+		}
+	}
+}
@@ -46,6 +46,7 @@ import java.util.TreeSet;
 
 import org.junit.Ignore;
 import org.junit.Test;
+import org.openml.apiconnector.io.BulkResult;
 import org.openml.apiconnector.io.OpenmlConnector;
 import org.openml.apiconnector.xml.EvaluationList;
 import org.openml.apiconnector.xml.EvaluationList.Evaluation;
@@ -244,10 +245,16 @@ public class TestThesisMassivelyCollaborativeMachineLearning extends BaseTestFra
 		// for sanity checking: all setups need to have the same flow id
 		Integer flowId = null;
 		
+		// the results have setup ids -> use these to obtain the full setup objects, all at once
+		List<Integer> resultSetupIds = new ArrayList<Integer>();
+		for (Evaluation e : results.getEvaluations()) {
+			resultSetupIds.add(e.getSetup_id());
+		}
+		BulkResult<SetupParameters> setups = openml.setupParameters(resultSetupIds);
+		
 		// loop over all the results obtained from OpenML
 		for (Evaluation e : results.getEvaluations()) {
-			// we have a setup id -> use this to obtain the full setup object
-			SetupParameters setupDetails = openml.setupParameters(e.getSetup_id());
+			SetupParameters setupDetails = setups.getOrThrow(e.getSetup_id());
 			// sanity checking
 			if (flowId == null) {
 				flowId = setupDetails.getFlow_id();
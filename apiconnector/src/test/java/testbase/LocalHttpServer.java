@@ -0,0 +1,54 @@
+package testbase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// minimal http server on localhost, for tests that should not depend on the OpenML servers
+public class LocalHttpServer implements AutoCloseable {
+
+	private final HttpServer server;
+	private final AtomicInteger requestCount = new AtomicInteger();
+
+	public LocalHttpServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	public void handle(String path, HttpHandler handler) {
+		server.createContext(path, exchange -> {
+			requestCount.incrementAndGet();
+			handler.handle(exchange);
+		});
+	}
+
+	public void respond(String path, int code, String body) {
+		handle(path, exchange -> {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(code, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	public String getUrl() {
+		return "http://localhost:" + server.getAddress().getPort() + "/";
+	}
+
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
@@ -0,0 +1,161 @@
+package utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.openml.apiconnector.algorithms.ArffReader;
+import org.openml.apiconnector.algorithms.ArffReader.Column;
+import org.openml.apiconnector.xml.DataFeature;
+import org.openml.apiconnector.xml.DataFeature.Feature;
+
+import testbase.BaseTestFramework;
+
+public class TestArffReader extends BaseTestFramework {
+
+	private static final String HEADER = "% the famous iris\n@relation iris\n\n" +
+		"@attribute sepallength numeric\n@attribute 'name' string\n@attribute class {Iris-setosa,Iris-versicolor}\n@data\n";
+
+	private static Feature feature(int index, String name, String type, String... nominalValues) {
+		return new Feature(index, name, type, nominalValues.length == 0 ? null : nominalValues, false,
+				null, null, null, null, null, null, null, null, null, null, null, null);
+	}
+
+	// in a different order than the columns, as the api may return them
+	private static final DataFeature FEATURES = new DataFeature(61, null, new Feature[] {
+		feature(2, "class", "nominal", "Iris-setosa", "Iris-versicolor"),
+		feature(0, "sepallength", "numeric"),
+		feature(1, "name", "string")
+	});
+
+	private static Column[] read(String arff) throws IOException {
+		List<Column[]> batches = new ArrayList<Column[]>();
+		new ArffReader(FEATURES).read(new ByteArrayInputStream(arff.getBytes(StandardCharsets.UTF_8)), Integer.MAX_VALUE, batches::add);
+		assertEquals(1, batches.size());
+		return batches.get(0);
+	}
+
+	@Test
+	public void testDense() throws Exception {
+		Column[] columns = read(HEADER +
+			"5.1,first,Iris-setosa\r\n" +
+			"% a comment\n" +
+			"\n" +
+			"-4.9e-1 , 'it\\'s quoted, with comma' , Iris-versicolor\n" +
+			"?,\"first\",?\n" +
+			"0.12345678901234567890,?,Iris-setosa, {2.5}");
+		assertEquals("sepallength", columns[0].getName());
+		assertEquals(ArffReader.Type.NUMERIC, columns[0].getType());
+		assertEquals(ArffReader.Type.STRING, columns[1].getType());
+		assertEquals(ArffReader.Type.NOMINAL, columns[2].getType());
+		assertEquals(4, columns[0].size());
+
+		assertArrayEquals(new double[] {5.1, -0.49, Double.NaN, 0.12345678901234567890}, columns[0].getValues(), 0.0);
+		assertArrayEquals(new int[] {0, 1, 0, -1}, columns[1].getCodes());
+		assertEquals(Arrays.asList("first", "it's quoted, with comma"), columns[1].getDictionary());
+		assertArrayEquals(new int[] {0, 1, -1, 0}, columns[2].getCodes());
+		assertEquals("Iris-versicolor", columns[2].getString(1));
+		assertTrue(columns[2].isMissing(2));
+		assertNull(columns[1].getString(3));
+	}
+
+	@Test
+	public void testSparse() throws Exception {
+		Column[] columns = read(HEADER +
+			"{0 5.1, 1 first, 2 Iris-versicolor}\n" +
+			"{} % empty\n" +
+			"{2 ?,0 3}, {0.5}\n");
+		assertArrayEquals(new double[] {5.1, 0, 3}, columns[0].getValues(), 0.0);
+		// omitted strings are missing, omitted nominal values are the first value
+		assertArrayEquals(new int[] {0, -1, -1}, columns[1].getCodes());
+		assertArrayEquals(new int[] {1, 0, -1}, columns[2].getCodes());
+	}
+
+	@Test
+	public void testNumbers() throws Exception {
+		Random random = new Random(0);
+		StringBuilder arff = new StringBuilder(HEADER);
+		List<String> numbers = new ArrayList<String>();
+		for (int i = 0; i < 10000; ++i) {
+			double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+			String[] formats = {Double.toString(value), String.format(Locale.ROOT, "%.6f", value),
+				String.format(Locale.ROOT, "%.3e", value), Integer.toString(random.nextInt()), "1e400", "NaN", "-Infinity"};
+			numbers.add(formats[random.nextInt(formats.length)]);
+			arff.append(numbers.get(i)).append(",x,Iris-setosa\n");
+		}
+		double[] values = read(arff.toString())[0].getValues();
+		for (int i = 0; i < numbers.size(); ++i) {
+			// exactly as Java parses them
+			assertEquals(numbers.get(i), Double.parseDouble(numbers.get(i)), values[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testBatches() throws Exception {
+		File file = File.createTempFile("data", ".arff.gz");
+		file.deleteOnExit();
+		try (OutputStream os = new GZIPOutputStream(new FileOutputStream(file))) {
+			os.write(HEADER.getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < 2500; ++i) {
+				os.write((i + ",name" + (i % 10) + ",Iris-setosa\n").getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		// gzip compressed files are read as well
+		Column[] all = new ArffReader(FEATURES).read(file);
+		assertEquals(2500, all[0].size());
+		assertEquals(2499.0, all[0].getValues()[2499], 0.0);
+
+		List<Column[]> batches = new ArrayList<Column[]>();
+		try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+			new ArffReader(FEATURES).read(is, 1000, batches::add);
+		}
+		assertEquals(3, batches.size());
+		assertEquals(500, batches.get(2)[0].size());
+		assertEquals(2000.0, batches.get(2)[0].getValues()[0], 0.0);
+		// codes mean the same in every batch
+		assertEquals(10, batches.get(2)[1].getDictionary().size());
+		assertEquals("name0", batches.get(2)[1].getString(0));
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		String[] invalid = {
+			HEADER + "5.1,first,Iris-virginica\n",
+			HEADER + "5.1,first\n",
+			HEADER + "5.1,first,Iris-setosa,extra\n",
+			HEADER + "five,first,Iris-setosa\n",
+			HEADER + "{0 5.1\n",
+			HEADER + "{0 5.1, 1\n",
+			HEADER + "{0 5.1, 1}\n",
+			HEADER + "{0 5.1} x\n",
+			"@attribute sepallength numeric\n@data\n5.1\n"
+		};
+		for (String arff : invalid) {
+			try {
+				read(arff);
+				fail("Should have thrown an exception: " + arff);
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Line 8") || e.getMessage().startsWith("ARFF header"));
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openml.apiconnector.io.ApiException;
+import org.openml.apiconnector.io.OpenmlAsyncConnector;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.xml.FlowExists;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestAsyncConnector extends BaseTestFramework {
+
+	private static final String FLOW_EXISTS = "<oml:flow_exists xmlns:oml=\"http://openml.org/openml\"><oml:exists>true</oml:exists><oml:id>42</oml:id></oml:flow_exists>";
+	private static final String ERROR = "<oml:error xmlns:oml=\"http://openml.org/openml\"><oml:code>181</oml:code><oml:message>Unknown flow</oml:message></oml:error>";
+
+	@Test
+	public void testInFlightLimit() throws Exception {
+		final int maxInFlight = 3;
+		final AtomicInteger concurrent = new AtomicInteger();
+		final AtomicInteger maxConcurrent = new AtomicInteger();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc");
+			 OpenmlAsyncConnector async = new OpenmlAsyncConnector(openml, maxInFlight)) {
+			server.handle("/api/v1/flow/exists/", exchange -> {
+				maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {}
+				concurrent.decrementAndGet();
+				byte[] bytes = FLOW_EXISTS.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, bytes.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(bytes);
+				os.close();
+			});
+
+			List<CompletableFuture<FlowExists>> futures = new ArrayList<CompletableFuture<FlowExists>>();
+			for (int i = 0; i < 12; ++i) {
+				futures.add(async.flowExists("weka.J48", "" + i));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+			for (CompletableFuture<FlowExists> future : futures) {
+				assertEquals(42, future.get().getId());
+			}
+			assertEquals(12, server.getRequestCount());
+			assertTrue(maxConcurrent.get() <= maxInFlight);
+			assertTrue(maxConcurrent.get() > 1);
+		}
+	}
+
+	@Test
+	public void testExceptionalCompletion() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc");
+			 OpenmlAsyncConnector async = new OpenmlAsyncConnector(openml)) {
+			server.respond("/api/v1/flow/", 412, ERROR);
+			try {
+				async.flowGet(1).get();
+				fail("Should have thrown an exception");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof ApiException);
+				assertEquals(181, ((ApiException) e.getCause()).getCode());
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.ApiException;
+import org.openml.apiconnector.io.BulkResult;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Task;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestBulkGet extends BaseTestFramework {
+
+	private static final String TASK = "<oml:task xmlns:oml=\"http://openml.org/openml\"><oml:task_id>%d</oml:task_id></oml:task>";
+	private static final String ERROR = "<oml:error xmlns:oml=\"http://openml.org/openml\"><oml:code>151</oml:code><oml:message>Unknown task</oml:message></oml:error>";
+
+	private final Set<Integer> requested = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.BULK_PARALLELISM = 8;
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// serves tasks with an even id, an error otherwise
+	private void serveTasks(LocalHttpServer server) {
+		server.handle("/api/v1/task/", exchange -> {
+			maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {}
+			String path = exchange.getRequestURI().getPath();
+			int id = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+			requested.add(id);
+			byte[] bytes = (id % 2 == 0 ? String.format(TASK, id) : ERROR).getBytes(StandardCharsets.UTF_8);
+			concurrent.decrementAndGet();
+			exchange.sendResponseHeaders(id % 2 == 0 ? 200 : 412, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	@Test
+	public void testPerIdErrors() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTasks(server);
+			BulkResult<Task> tasks = openml.taskGet(Arrays.asList(6, 2, 3, 2, 4, null));
+			assertEquals(Arrays.asList(6, 2, 4), Arrays.asList(tasks.keySet().toArray()));
+			assertEquals(4, (int) tasks.get(4).getTask_id());
+			assertFalse(tasks.isComplete());
+			assertEquals(1, tasks.getErrors().size());
+			assertEquals(151, ((ApiException) tasks.getErrors().get(3)).getCode());
+			try {
+				tasks.getOrThrow(3);
+				fail("Should have thrown an exception");
+			} catch (ApiException e) {
+				assertEquals(151, e.getCode());
+			}
+			// duplicates are requested once
+			assertEquals(4, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testBoundedParallelism() throws Exception {
+		Settings.BULK_PARALLELISM = 3;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTasks(server);
+			BulkResult<Task> tasks = openml.taskGet(Arrays.asList(2, 4, 6, 8, 10, 12, 14, 16, 18, 20));
+			assertTrue(tasks.isComplete());
+			assertEquals(10, tasks.size());
+			assertTrue(maxConcurrent.get() > 1);
+			assertTrue(maxConcurrent.get() <= 3);
+		}
+	}
+
+	@Test
+	public void testCacheFirst() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTasks(server);
+			openml.taskGet(2);
+			openml.taskGet(4);
+			requested.clear();
+			BulkResult<Task> tasks = openml.taskGet(Arrays.asList(2, 4, 6));
+			assertEquals(3, tasks.size());
+			assertEquals(Set.of(6), requested);
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.BinaryCacheCodec;
+import org.openml.apiconnector.io.CacheCodec;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.io.XmlCacheCodec;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.DataFeature;
+import org.openml.apiconnector.xml.Flow;
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+import org.openml.apiconnector.xml.Task;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestCacheCodec extends BaseTestFramework {
+
+	static final String TASK = "<oml:task xmlns:oml=\"http://openml.org/openml\">\n" +
+		"  <oml:task_id>59</oml:task_id>\n" +
+		"  <oml:task_type_id>1</oml:task_type_id>\n" +
+		"  <oml:task_type>Supervised Classification</oml:task_type>\n" +
+		"  <oml:input name=\"source_data\">\n" +
+		"    <oml:data_set><oml:data_set_id>61</oml:data_set_id><oml:target_feature>class</oml:target_feature></oml:data_set>\n" +
+		"  </oml:input>\n" +
+		"  <oml:input name=\"estimation_procedure\">\n" +
+		"    <oml:estimation_procedure>\n" +
+		"      <oml:id>1</oml:id>\n" +
+		"      <oml:type>crossvalidation</oml:type>\n" +
+		"      <oml:data_splits_url>https://www.openml.org/api_splits/get/59/Task_59_splits.arff</oml:data_splits_url>\n" +
+		"      <oml:parameter name=\"number_repeats\">1</oml:parameter>\n" +
+		"      <oml:parameter name=\"number_folds\">10</oml:parameter>\n" +
+		"    </oml:estimation_procedure>\n" +
+		"  </oml:input>\n" +
+		"  <oml:output name=\"predictions\">\n" +
+		"    <oml:predictions>\n" +
+		"      <oml:format>ARFF</oml:format>\n" +
+		"      <oml:feature name=\"repeat\" type=\"integer\"/>\n" +
+		"      <oml:feature name=\"prediction\" type=\"string\"/>\n" +
+		"    </oml:predictions>\n" +
+		"  </oml:output>\n" +
+		"  <oml:tag>basic</oml:tag>\n" +
+		"  <oml:tag>study_14</oml:tag>\n" +
+		"</oml:task>";
+
+	static String features(int count) {
+		StringBuilder sb = new StringBuilder("<oml:data_features xmlns:oml=\"http://openml.org/openml\">\n");
+		for (int i = 0; i < count; ++i) {
+			sb.append("  <oml:feature>\n    <oml:index>" + i + "</oml:index>\n    <oml:name>attribute_" + i + "</oml:name>\n");
+			sb.append("    <oml:data_type>" + (i % 3 == 0 ? "nominal" : "numeric") + "</oml:data_type>\n");
+			if (i % 3 == 0) {
+				sb.append("    <oml:nominal_value>a</oml:nominal_value>\n    <oml:nominal_value>b</oml:nominal_value>\n");
+			}
+			sb.append("    <oml:is_target>" + (i == 0) + "</oml:is_target>\n    <oml:is_ignore>false</oml:is_ignore>\n");
+			sb.append("    <oml:is_row_identifier>false</oml:is_row_identifier>\n");
+			sb.append("    <oml:NumberOfMissingValues>" + (i % 5) + "</oml:NumberOfMissingValues>\n");
+			sb.append("    <oml:MaximumValue>" + (i * 1.5) + "</oml:MaximumValue>\n  </oml:feature>\n");
+		}
+		return sb.append("</oml:data_features>").toString();
+	}
+
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.CACHE_CODEC = XmlCacheCodec.NAME;
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private static OpenmlApiResponse roundTrip(CacheCodec codec, OpenmlApiResponse response) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.write(response, out);
+		return codec.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		CacheCodec codec = new BinaryCacheCodec();
+		for (String xml : new String[] {TASK, features(50)}) {
+			OpenmlApiResponse original = (OpenmlApiResponse) XstreamXmlMapping.getInstance().fromXML(xml);
+			OpenmlApiResponse decoded = roundTrip(codec, original);
+			assertEquals(XstreamXmlMapping.getInstance().toXML(original), XstreamXmlMapping.getInstance().toXML(decoded));
+		}
+		Task task = (Task) roundTrip(codec, (Task) XstreamXmlMapping.getInstance().fromXML(TASK));
+		assertEquals("10", task.getInputs()[1].getEstimation_procedure().getParameters()[1].getValue());
+		assertEquals("class", task.getInputs()[0].getData_set().getTarget_feature());
+	}
+
+	@Test
+	public void testCompactness() throws Exception {
+		DataFeature features = (DataFeature) XstreamXmlMapping.getInstance().fromXML(features(500));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinaryCacheCodec().write(features, out);
+		int xmlSize = XstreamXmlMapping.getInstance().toXML(features).length();
+		assertTrue(out.size() * 3 < xmlSize);
+	}
+
+	@Test
+	public void testUnsupportedVersion() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinaryCacheCodec().write((Task) XstreamXmlMapping.getInstance().fromXML(TASK), out);
+		byte[] bytes = out.toByteArray();
+		bytes[4] = 99;
+		try {
+			new BinaryCacheCodec().read(new ByteArrayInputStream(bytes));
+			fail("Should have thrown an exception");
+		} catch (IOException e) {}
+	}
+
+	// a binary cache file with a single value: the tag, followed by the name of a class
+	private static byte[] referring(int tag, String className) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write('O');
+		out.write('M');
+		out.write('L');
+		out.write('B');
+		out.write(1);
+		out.write(tag);
+		// first string, by index and length
+		out.write(0);
+		out.write(className.length());
+		out.write(className.getBytes(), 0, className.length());
+		// no fields, or no elements
+		out.write(0);
+		return out.toByteArray();
+	}
+
+	private static void assertRejected(byte[] bytes, String className) {
+		try {
+			new BinaryCacheCodec().read(new ByteArrayInputStream(bytes));
+			fail("Should have rejected " + className);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains(className));
+		}
+	}
+
+	@Test
+	public void testDisallowedClasses() throws Exception {
+		// objects, by tag 7
+		String[] objects = {"java.util.ArrayList", "java.lang.String", "org.openml.apiconnector.io.OpenmlConnector"};
+		// array component types, by tag 8
+		String[] components = {"java.lang.Thread", "[Ljava.lang.ProcessBuilder;"};
+		for (String name : objects) {
+			assertRejected(referring(7, name), name);
+		}
+		for (String name : components) {
+			assertRejected(referring(8, name), name);
+		}
+		// allowed classes that no longer exist are read as null
+		try {
+			new BinaryCacheCodec().read(new ByteArrayInputStream(referring(7, "org.openml.apiconnector.xml.Removed")));
+			fail("Should have thrown an exception");
+		} catch (IOException e) {
+			assertEquals("Binary cache file does not contain an api response", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCyclicReference() throws Exception {
+		Flow flow = new Flow("moa.HoeffdingTree", "moa.HoeffdingTree", "1.0", "Hoeffding Tree", "English", "moa_2018.6.0");
+		flow.addComponent("itself", flow);
+		try {
+			new BinaryCacheCodec().write(flow, new ByteArrayOutputStream());
+			fail("Should have thrown an exception");
+		} catch (IOException e) {}
+		// a flow may occur more than once, as long as it does not contain itself
+		Flow parent = new Flow("moa.Bagging", "moa.Bagging", "1.0", "Bagging", "English", "moa_2018.6.0");
+		Flow child = new Flow("moa.HoeffdingTree", "moa.HoeffdingTree", "1.0", "Hoeffding Tree", "English", "moa_2018.6.0");
+		parent.addComponent("first", child);
+		parent.addComponent("second", child);
+		Flow decoded = (Flow) roundTrip(new BinaryCacheCodec(), parent);
+		assertEquals(2, decoded.getComponent().length);
+		assertEquals("moa.HoeffdingTree", decoded.getSubImplementation("second").getName());
+	}
+
+	@Test
+	public void testUnreadableEntryIsRefetched() throws Exception {
+		Settings.CACHE_CODEC = BinaryCacheCodec.NAME;
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/task/59", 200, TASK);
+			openml.taskGet(59);
+			File entry = HttpCacheController.getCacheLocation(new URL(server.getUrl()), "tasks/59/task.xml" + BinaryCacheCodec.EXTENSION);
+			assertTrue(entry.exists());
+			Files.write(entry.toPath(), new byte[] {'g', 'a', 'r', 'b', 'a', 'g', 'e'});
+			ResponseCache.getInstance().clear();
+
+			Task task = openml.taskGet(59);
+			assertEquals(59, (int) task.getTask_id());
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testXmlFallback() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/task/59", 200, TASK);
+			// an existing xml cache remains readable after switching to the binary codec
+			Settings.CACHE_CODEC = "xml";
+			openml.taskGet(59);
+			Settings.CACHE_CODEC = BinaryCacheCodec.NAME;
+			ResponseCache.getInstance().clear();
+			openml.taskGet(59);
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.CacheLock;
+import org.openml.apiconnector.io.CacheManager;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Task;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestCacheManager extends BaseTestFramework {
+
+	private static final String TASK = "<oml:task xmlns:oml=\"http://openml.org/openml\"><oml:task_id>59</oml:task_id><oml:task_type>Supervised Classification</oml:task_type></oml:task>";
+
+	private File directory;
+
+	@Before
+	public void createDirectory() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.CACHE_MAX_SIZE = 0;
+		Settings.CACHE_EVICTION_POLICY = "lru";
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private File store(CacheManager cache, String path, int size) throws Exception {
+		File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[size]);
+		cache.put(file, "http://localhost/" + path, CacheManager.md5(file));
+		return file;
+	}
+
+	@Test
+	public void testLruEviction() throws Exception {
+		Settings.CACHE_MAX_SIZE = 250;
+		CacheManager cache = CacheManager.getInstance(directory);
+		File a = store(cache, "datasets/1/dataset.arff", 100);
+		File b = store(cache, "datasets/2/dataset.arff", 100);
+		assertTrue(cache.touch(a));
+		File c = store(cache, "datasets/3/dataset.arff", 100);
+
+		assertTrue(a.exists());
+		assertFalse(b.exists());
+		assertTrue(c.exists());
+		assertEquals(200, cache.getTotalSize());
+		assertEquals(2, cache.getEntryCount());
+		assertFalse(cache.touch(b));
+
+		cache.flush();
+		List<String> index = Files.readAllLines(new File(directory, CacheManager.INDEX_FILE).toPath());
+		assertEquals(2, index.size());
+		assertEquals(CacheManager.md5(c), cache.getChecksum(c));
+	}
+
+	@Test
+	public void testLookupsAreNoAccess() throws Exception {
+		Settings.CACHE_MAX_SIZE = 250;
+		CacheManager cache = CacheManager.getInstance(directory);
+		File a = store(cache, "datasets/1/dataset.arff", 100);
+		File b = store(cache, "datasets/2/dataset.arff", 100);
+		// revalidation and verification read the metadata of a
+		cache.getChecksum(a);
+		cache.getValidationTime(a);
+		store(cache, "datasets/3/dataset.arff", 100);
+		assertFalse(a.exists());
+		assertTrue(b.exists());
+		// the index is written in the background, not with every change
+		assertFalse(new File(directory, CacheManager.INDEX_FILE).exists());
+		cache.flush();
+		assertEquals(2, Files.readAllLines(new File(directory, CacheManager.INDEX_FILE).toPath()).size());
+	}
+
+	@Test
+	public void testLockedEntriesAreNotEvicted() throws Exception {
+		Settings.CACHE_MAX_SIZE = 250;
+		CacheManager cache = CacheManager.getInstance(directory);
+		File a = store(cache, "datasets/1/dataset.arff", 100);
+		File b = store(cache, "datasets/2/dataset.arff", 100);
+		CacheLock lock = CacheLock.acquire(a);
+		try {
+			store(cache, "datasets/3/dataset.arff", 100);
+		} finally {
+			lock.release();
+		}
+		// a is the least recently used, but it is in use
+		assertTrue(a.exists());
+		assertFalse(b.exists());
+		assertEquals(200, cache.getTotalSize());
+	}
+
+	@Test
+	public void testMergesIndex() throws Exception {
+		CacheManager cache = CacheManager.getInstance(directory);
+		File a = store(cache, "datasets/1/dataset.arff", 100);
+		File b = store(cache, "datasets/2/dataset.arff", 100);
+		cache.flush();
+		// another process stores c and removes b
+		File c = new File(directory, "datasets/3/dataset.arff");
+		c.getParentFile().mkdirs();
+		Files.write(c.toPath(), new byte[50]);
+		b.delete();
+		File indexFile = new File(directory, CacheManager.INDEX_FILE);
+		List<String> lines = new ArrayList<String>(Files.readAllLines(indexFile.toPath()));
+		lines.removeIf(line -> line.startsWith("datasets/2/"));
+		lines.add("datasets/3/dataset.arff\t50\t" + System.currentTimeMillis() + "\t1\t\t\t\t" + System.currentTimeMillis() + "\thttp://localhost/datasets/3/dataset.arff");
+		Files.write(indexFile.toPath(), lines);
+
+		cache.touch(a);
+		cache.flush();
+		lines = Files.readAllLines(indexFile.toPath());
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).startsWith("datasets/3/dataset.arff\t"));
+		assertTrue(lines.get(1).startsWith("datasets/1/dataset.arff\t"));
+		assertEquals(150, cache.getTotalSize());
+		assertEquals(2, cache.getEntryCount());
+	}
+
+	@Test
+	public void testLfuEviction() throws Exception {
+		Settings.CACHE_MAX_SIZE = 250;
+		Settings.CACHE_EVICTION_POLICY = "lfu";
+		CacheManager cache = CacheManager.getInstance(directory);
+		File a = store(cache, "datasets/1/dataset.arff", 100);
+		File b = store(cache, "datasets/2/dataset.arff", 100);
+		cache.touch(b);
+		cache.touch(b);
+		// most recently used, but least frequently
+		cache.touch(a);
+		File c = store(cache, "datasets/3/dataset.arff", 100);
+
+		assertFalse(a.exists());
+		assertTrue(b.exists());
+		assertTrue(c.exists());
+	}
+
+	@Test
+	public void testPinning() throws Exception {
+		Settings.CACHE_MAX_SIZE = 250;
+		CacheManager cache = CacheManager.getInstance(directory);
+		File a = store(cache, "datasets/1/dataset.arff", 100);
+		File b = store(cache, "datasets/2/dataset.arff", 100);
+		cache.pin(new File(directory, "datasets/1"));
+		store(cache, "datasets/3/dataset.arff", 100);
+		assertTrue(a.exists());
+		assertFalse(b.exists());
+		cache.unpinAll();
+	}
+
+	@Test
+	public void testSingleFlightDownload() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		final byte[] content = new byte[1 << 20];
+		Arrays.fill(content, (byte) 'x');
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle("/data/v1/download/1/iris.arff", exchange -> {
+				exchange.sendResponseHeaders(200, content.length);
+				OutputStream os = exchange.getResponseBody();
+				// slowly, so the other workers find the download in progress
+				for (int i = 0; i < content.length; i += 1 << 16) {
+					os.write(content, i, 1 << 16);
+					os.flush();
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {}
+				}
+				os.close();
+			});
+			final URL url = new URL(server.getUrl() + "data/v1/download/1/iris.arff");
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			List<Future<File>> futures = new ArrayList<Future<File>>();
+			for (int i = 0; i < 8; ++i) {
+				futures.add(executor.submit(() -> HttpCacheController.getCachedFileFromUrl(url, "datasets/1/dataset.arff")));
+			}
+			for (Future<File> future : futures) {
+				File file = future.get();
+				assertEquals(content.length, file.length());
+			}
+			executor.shutdown();
+			assertEquals(1, server.getRequestCount());
+			File[] temps = futures.get(0).get().getParentFile().listFiles((dir, name) -> name.endsWith(HttpCacheController.TEMP_SUFFIX));
+			assertEquals(0, temps.length);
+			File[] locks = futures.get(0).get().getParentFile().listFiles((dir, name) -> name.endsWith(CacheLock.LOCK_SUFFIX));
+			assertEquals(0, locks.length);
+		}
+	}
+
+	@Test
+	public void testConnectorRegistersFiles() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/task/59", 200, TASK);
+			Task first = openml.taskGet(59);
+			Task second = openml.taskGet(59);
+			assertEquals(first.getTask_id(), second.getTask_id());
+			assertEquals(1, server.getRequestCount());
+			assertEquals(1, CacheManager.getInstance().getEntryCount());
+		}
+	}
+}
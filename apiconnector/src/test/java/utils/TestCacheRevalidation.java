@@ -0,0 +1,142 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Task;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestCacheRevalidation extends BaseTestFramework {
+
+	private static final String TASK = "<oml:task xmlns:oml=\"http://openml.org/openml\"><oml:task_id>59</oml:task_id><oml:task_name>%s</oml:task_name></oml:task>";
+	private static final String QUALITIES = "<oml:data_qualities xmlns:oml=\"http://openml.org/openml\"><oml:quality>" +
+		"<oml:name>NumberOfInstances</oml:name><oml:value>%s</oml:value></oml:quality></oml:data_qualities>";
+
+	private File directory;
+	private final AtomicReference<String> version = new AtomicReference<String>("v1");
+	private final AtomicInteger notModified = new AtomicInteger();
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		Settings.CACHE_MAX_AGE = 0;
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.CACHE_MAX_AGE = -1;
+		Settings.CACHE_QUALITIES_MAX_AGE = 60L * 60 * 1000;
+		Settings.CACHE_STALE_WHILE_REVALIDATE = true;
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private void serveTask(LocalHttpServer server) {
+		server.handle("/api/v1/task/59", exchange -> {
+			String etag = "\"" + version.get() + "\"";
+			exchange.getResponseHeaders().add("ETag", etag);
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				notModified.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			byte[] bytes = String.format(TASK, version.get()).getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	@Test
+	public void testRevalidation() throws Exception {
+		Settings.CACHE_STALE_WHILE_REVALIDATE = false;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTask(server);
+			Task first = openml.taskGet(59);
+			Thread.sleep(5);
+			Task second = openml.taskGet(59);
+			assertSame(first, second);
+			assertEquals(1, notModified.get());
+
+			version.set("v2");
+			Thread.sleep(5);
+			assertEquals("v2", openml.taskGet(59).getTask_name());
+			assertEquals(3, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTask(server);
+			openml.taskGet(59);
+			version.set("v2");
+			Thread.sleep(5);
+			// the stale version is served, while the new one is obtained
+			assertEquals("v1", openml.taskGet(59).getTask_name());
+			long deadline = System.currentTimeMillis() + 5000;
+			while (server.getRequestCount() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(100);
+			Settings.CACHE_MAX_AGE = 60000;
+			assertEquals("v2", openml.taskGet(59).getTask_name());
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testQualitiesRevalidation() throws Exception {
+		Settings.CACHE_MAX_AGE = -1;
+		Settings.CACHE_STALE_WHILE_REVALIDATE = false;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			// the server computes more qualities after a while
+			AtomicReference<String> instances = new AtomicReference<String>("150");
+			server.handle("/api/v1/data/qualities/61", exchange -> {
+				byte[] bytes = String.format(QUALITIES, instances.get()).getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, bytes.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(bytes);
+				os.close();
+			});
+			// not cached, unless asked for
+			openml.dataQualities(61, null);
+			openml.dataQualities(61, null);
+			assertEquals(2, server.getRequestCount());
+			openml.dataQualitiesCached(61, null);
+			openml.dataQualitiesCached(61, null);
+			assertEquals(3, server.getRequestCount());
+
+			instances.set("151");
+			assertEquals(151.0, openml.dataQualities(61, null).getQualities()[0].getValue(), 0.0);
+			Settings.CACHE_QUALITIES_MAX_AGE = 0;
+			Thread.sleep(5);
+			assertEquals(151.0, openml.dataQualitiesCached(61, null).getQualities()[0].getValue(), 0.0);
+			assertEquals(5, server.getRequestCount());
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.CacheLock;
+import org.openml.apiconnector.io.CacheManager;
+import org.openml.apiconnector.io.ConnectionPool;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.settings.Settings;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestChecksumVerification extends BaseTestFramework {
+
+	private static final String PATH = "/data/v1/download/61/iris.arff";
+	private static final String SUFFIX = "datasets/61/dataset.arff";
+
+	private final byte[] content = new byte[512 * 1024];
+	private String md5;
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		new Random(7).nextBytes(content);
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		File reference = new File(directory, "reference");
+		Files.write(reference.toPath(), content);
+		md5 = CacheManager.md5(reference);
+		reference.delete();
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath() + "/cache";
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.CACHE_LAZY_VERIFICATION = false;
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// serves the content, corrupted for the given number of requests
+	private static void serve(LocalHttpServer server, byte[] content, AtomicInteger corrupted) {
+		server.handle(PATH, exchange -> {
+			byte[] bytes = content.clone();
+			if (corrupted.getAndDecrement() > 0) {
+				bytes[bytes.length / 2] ^= 1;
+			}
+			exchange.sendResponseHeaders(200, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	private static File get(LocalHttpServer server, String md5) throws Exception {
+		URL url = new URL(server.getUrl() + PATH.substring(1));
+		return HttpCacheController.getCachedFileFromUrl(ConnectionPool.getDefault().getHttpClient(), url, SUFFIX, md5);
+	}
+
+	@Test
+	public void testVerifiedDownload() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			serve(server, content, new AtomicInteger(0));
+			File file = get(server, md5);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(md5, CacheManager.getInstance().getChecksum(file));
+			get(server, md5);
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testCorruptedDownloadIsRefetched() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			serve(server, content, new AtomicInteger(1));
+			File file = get(server, md5);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testPersistentMismatch() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			serve(server, content, new AtomicInteger(Integer.MAX_VALUE));
+			try {
+				get(server, md5);
+				fail("Should have thrown an exception");
+			} catch (IOException e) {}
+			File cachedData = HttpCacheController.getCacheLocation(new URL(server.getUrl()), SUFFIX);
+			assertFalse(cachedData.exists());
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testChangedChecksum() throws Exception {
+		byte[] updated = content.clone();
+		updated[0] ^= 1;
+		File reference = new File(directory, "reference");
+		Files.write(reference.toPath(), updated);
+		String updatedMd5 = CacheManager.md5(reference);
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			AtomicReference<byte[]> served = new AtomicReference<byte[]>(content);
+			server.handle(PATH, exchange -> {
+				exchange.sendResponseHeaders(200, served.get().length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(served.get());
+				os.close();
+			});
+			get(server, md5);
+			// the dataset was updated, and so was the checksum in its description
+			served.set(updated);
+			File file = get(server, updatedMd5);
+			assertArrayEquals(updated, Files.readAllBytes(file.toPath()));
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testRemovedOnlyUnderLock() throws Exception {
+		byte[] updated = content.clone();
+		updated[0] ^= 1;
+		File reference = new File(directory, "reference");
+		Files.write(reference.toPath(), updated);
+		String updatedMd5 = CacheManager.md5(reference);
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			AtomicReference<byte[]> served = new AtomicReference<byte[]>(content);
+			server.handle(PATH, exchange -> {
+				exchange.sendResponseHeaders(200, served.get().length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(served.get());
+				os.close();
+			});
+			File cachedData = get(server, md5);
+			served.set(updated);
+			// e.g., another thread that is reading or replacing the entry
+			CacheLock lock = CacheLock.acquire(cachedData);
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			Future<File> future;
+			try {
+				future = executor.submit(() -> get(server, updatedMd5));
+				Thread.sleep(200);
+				assertFalse(future.isDone());
+				assertArrayEquals(content, Files.readAllBytes(cachedData.toPath()));
+			} finally {
+				lock.release();
+			}
+			assertArrayEquals(updated, Files.readAllBytes(future.get().toPath()));
+			assertEquals(2, server.getRequestCount());
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnknownChecksumIsVerified() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			serve(server, content, new AtomicInteger(0));
+			// placed by an older version, that did not record checksums
+			File cachedData = HttpCacheController.getCacheLocation(new URL(server.getUrl()), SUFFIX);
+			cachedData.getParentFile().mkdirs();
+			Files.write(cachedData.toPath(), new byte[] {'c', 'o', 'r', 'r', 'u', 'p', 't'});
+
+			File file = get(server, md5);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testLazyVerification() throws Exception {
+		Settings.CACHE_LAZY_VERIFICATION = true;
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			serve(server, content, new AtomicInteger(0));
+			File cachedData = HttpCacheController.getCacheLocation(new URL(server.getUrl()), SUFFIX);
+			cachedData.getParentFile().mkdirs();
+			Files.write(cachedData.toPath(), new byte[] {'c', 'o', 'r', 'r', 'u', 'p', 't'});
+
+			// returned right away, and removed once the verification finds it corrupted
+			assertEquals(cachedData, get(server, md5));
+			assertEquals(0, server.getRequestCount());
+			long deadline = System.currentTimeMillis() + 5000;
+			while (cachedData.exists() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertFalse(cachedData.exists());
+			assertArrayEquals(content, Files.readAllBytes(get(server, md5).toPath()));
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+}
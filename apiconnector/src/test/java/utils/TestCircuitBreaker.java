@@ -0,0 +1,167 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.CircuitBreaker;
+import org.openml.apiconnector.io.CircuitOpenException;
+import org.openml.apiconnector.io.HttpConnector;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.io.RetryPolicy;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Task;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestCircuitBreaker extends BaseTestFramework {
+
+	private final AtomicBoolean down = new AtomicBoolean();
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		HttpConnector.setRetryPolicy(new RetryPolicy(0, 10, 2000, false));
+		Settings.CIRCUIT_BREAKER_THRESHOLD = 3;
+		Settings.CIRCUIT_BREAKER_OPEN_TIME = 300;
+		CircuitBreaker.resetAll();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		HttpConnector.setRetryPolicy(null);
+		Settings.CIRCUIT_BREAKER_THRESHOLD = 5;
+		Settings.CIRCUIT_BREAKER_OPEN_TIME = 30000;
+		Settings.CACHE_MAX_AGE = -1;
+		Settings.CACHE_STALE_WHILE_REVALIDATE = true;
+		CircuitBreaker.resetAll();
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private void serveTask(LocalHttpServer server) {
+		server.handle("/api/v1/task/59", exchange -> {
+			if (down.get()) {
+				// the test server closes the connection after this response, so it has to say so
+				exchange.getResponseHeaders().add("Connection", "close");
+				exchange.sendResponseHeaders(503, -1);
+				exchange.close();
+				return;
+			}
+			byte[] bytes = TestCacheCodec.TASK.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	private static void assertFails(OpenmlConnector openml, boolean fast) {
+		try {
+			openml.taskGet(59);
+			fail("Should have thrown an exception");
+		} catch (Exception e) {
+			assertEquals(fast, e instanceof CircuitOpenException);
+		}
+	}
+
+	@Test
+	public void testFailFast() throws Exception {
+		down.set(true);
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTask(server);
+			server.respond("/api/v1/data/features/61", 200, TestCacheCodec.features(2));
+			for (int i = 0; i < 3; ++i) {
+				assertFails(openml, false);
+			}
+			assertFails(openml, true);
+			assertEquals(3, server.getRequestCount());
+			CircuitBreaker breaker = CircuitBreaker.get(new URI(server.getUrl() + "api/v1/task/59"));
+			assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+			// other endpoint families are not affected
+			assertEquals(2, openml.dataFeatures(61).getFeatures().length);
+		}
+	}
+
+	@Test
+	public void testHalfOpen() throws Exception {
+		down.set(true);
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTask(server);
+			for (int i = 0; i < 3; ++i) {
+				assertFails(openml, false);
+			}
+			// a failing probe opens it again
+			Thread.sleep(350);
+			assertFails(openml, false);
+			assertFails(openml, true);
+			assertEquals(4, server.getRequestCount());
+
+			down.set(false);
+			Thread.sleep(350);
+			CircuitBreaker breaker = CircuitBreaker.get(new URI(server.getUrl() + "api/v1/task/59"));
+			assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+			Task task = openml.taskGet(59);
+			assertEquals(59, (int) task.getTask_id());
+			assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+			openml.taskGet(59);
+			assertEquals(6, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testServeStale() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		Settings.CACHE_MAX_AGE = 0;
+		Settings.CACHE_STALE_WHILE_REVALIDATE = false;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveTask(server);
+			openml.taskGet(59);
+			down.set(true);
+			Thread.sleep(5);
+			for (int i = 0; i < 3; ++i) {
+				assertFails(openml, false);
+			}
+			// the revalidation of the stale entry fails fast
+			Task task = openml.taskGet(59);
+			assertEquals(59, (int) task.getTask_id());
+			assertEquals(4, server.getRequestCount());
+
+			Settings.CIRCUIT_BREAKER_SERVE_STALE = false;
+			try {
+				assertFails(openml, true);
+			} finally {
+				Settings.CIRCUIT_BREAKER_SERVE_STALE = true;
+			}
+		}
+	}
+
+	@Test
+	public void testFamily() throws Exception {
+		assertEquals("data", CircuitBreaker.getFamily(new URI("https://www.openml.org/api/v1/data/features/61")));
+		assertEquals("data", CircuitBreaker.getFamily(new URI("https://www.openml.org/data/v1/download/61/iris.arff")));
+		assertEquals("run", CircuitBreaker.getFamily(new URI("https://www.openml.org/api/v1/run/list/task/59")));
+		assertEquals("study", CircuitBreaker.getFamily(new URI("https://www.openml.org/api/v1/xml/study/99")));
+		assertTrue(CircuitBreaker.getCircuitBreakers().isEmpty());
+	}
+}
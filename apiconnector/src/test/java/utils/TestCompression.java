@@ -0,0 +1,173 @@
+package utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.io.FileDownloader;
+import org.openml.apiconnector.io.GzipCacheCodec;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.io.HttpConnector;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Run;
+import org.openml.apiconnector.xml.Task;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestCompression extends BaseTestFramework {
+
+	private static final String PATH = "/data/v1/download/61/iris.arff";
+
+	private final List<String> encodings = new CopyOnWriteArrayList<String>();
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.CACHE_COMPRESSION = false;
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// responds gzip compressed, if the client accepts it
+	private void serve(HttpExchange exchange, byte[] bytes) throws IOException {
+		String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		encodings.add(range + ": " + accepted);
+		int offset = 0;
+		if (range != null) {
+			offset = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+			exchange.getResponseHeaders().add("Content-Range", "bytes " + offset + "-" + (bytes.length - 1) + "/" + bytes.length);
+		} else if (accepted != null && accepted.contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write(bytes);
+			}
+			bytes = compressed.toByteArray();
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+		}
+		exchange.sendResponseHeaders(range != null ? 206 : 200, bytes.length - offset);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes, offset, bytes.length - offset);
+		os.close();
+	}
+
+	@Test
+	public void testCompressedResponse() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", exchange -> serve(exchange, TestCacheCodec.TASK.getBytes(StandardCharsets.UTF_8)));
+			Task task = openml.taskGet(59);
+			assertEquals(59, (int) task.getTask_id());
+			assertTrue(encodings.get(0).contains("gzip"));
+		}
+	}
+
+	@Test
+	public void testCompressedDownload() throws Exception {
+		byte[] arff = TestCacheCodec.features(2000).getBytes(StandardCharsets.UTF_8);
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, arff));
+			URL url = new URL(server.getUrl() + PATH.substring(1));
+			File file = HttpConnector.getTempFileFromUrl(url, "arff");
+			assertArrayEquals(arff, Files.readAllBytes(file.toPath()));
+			assertTrue(encodings.get(0).contains("gzip"));
+
+			// the remainder of a partial file is requested uncompressed
+			Settings.CACHE_ALLOWED = true;
+			Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+			File cachedData = HttpCacheController.getCacheLocation(url, "datasets/61/dataset.arff");
+			cachedData.getParentFile().mkdirs();
+			File part = new File(cachedData.getAbsolutePath() + FileDownloader.PART_SUFFIX);
+			Files.write(part.toPath(), Arrays.copyOf(arff, 1000));
+			Files.write(new File(part.getAbsolutePath() + FileDownloader.VALIDATOR_SUFFIX).toPath(), "\"v1\"".getBytes());
+			file = HttpCacheController.getCachedFileFromUrl(url, "datasets/61/dataset.arff");
+			assertArrayEquals(arff, Files.readAllBytes(file.toPath()));
+			assertTrue(encodings.get(1).endsWith(": identity"));
+		}
+	}
+
+	@Test
+	public void testCompressedCache() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		Settings.CACHE_COMPRESSION = true;
+		String features = TestCacheCodec.features(500);
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/data/features/61", 200, features);
+			openml.dataFeatures(61);
+			File entry = HttpCacheController.getCacheLocation(new URL(server.getUrl()), "datasets/61/features.xml" + GzipCacheCodec.EXTENSION);
+			assertTrue(entry.exists());
+			assertTrue(entry.length() * 10 < features.length());
+
+			ResponseCache.getInstance().clear();
+			assertEquals(500, openml.dataFeatures(61).getFeatures().length);
+			// remains readable when compression is turned off
+			Settings.CACHE_COMPRESSION = false;
+			ResponseCache.getInstance().clear();
+			assertEquals(500, openml.dataFeatures(61).getFeatures().length);
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testCompressedUpload() throws Exception {
+		File predictions = new File(directory, "predictions.arff.gz");
+		try (OutputStream os = new GZIPOutputStream(new FileOutputStream(predictions))) {
+			os.write("@relation predictions\n@attribute row_id numeric\n@data\n1\n".getBytes(StandardCharsets.UTF_8));
+		}
+		File plain = new File(directory, "trace.arff");
+		FileUtils.writeStringToFile(plain, "@relation trace\n");
+		assertTrue(Conversion.isGzipped(predictions));
+		assertFalse(Conversion.isGzipped(plain));
+
+		AtomicReference<byte[]> request = new AtomicReference<byte[]>();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/run/", exchange -> {
+				request.set(exchange.getRequestBody().readAllBytes());
+				serve(exchange, "<oml:upload_run xmlns:oml=\"http://openml.org/openml\"><oml:run_id>7</oml:run_id></oml:upload_run>".getBytes(StandardCharsets.UTF_8));
+			});
+			Run run = new Run(59, null, 100, "setup", null, null);
+			assertEquals(7, openml.runUpload(run, Map.of("predictions", predictions, "trace", plain)));
+		}
+		// the compressed file is sent as is, with a flag
+		String body = new String(request.get(), StandardCharsets.ISO_8859_1);
+		assertTrue(body.contains("name=\"predictions_compression\""));
+		assertTrue(body.contains("Content-Type: application/gzip"));
+		assertTrue(body.contains(new String(Files.readAllBytes(predictions.toPath()), StandardCharsets.ISO_8859_1)));
+		assertFalse(body.contains("name=\"trace_compression\""));
+	}
+}
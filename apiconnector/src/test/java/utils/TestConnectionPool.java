@@ -0,0 +1,76 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.pool.PoolStats;
+import org.junit.Test;
+import org.openml.apiconnector.io.ConnectionPool;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.xml.FlowExists;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestConnectionPool extends BaseTestFramework {
+
+	private static final String FLOW_EXISTS = "<oml:flow_exists xmlns:oml=\"http://openml.org/openml\"><oml:exists>true</oml:exists><oml:id>42</oml:id></oml:flow_exists>";
+
+	@Test
+	public void testConnectionReuse() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/flow/exists/", 200, FLOW_EXISTS);
+
+			for (int i = 0; i < 5; ++i) {
+				FlowExists fe = openml.flowExists("weka.J48", "1.0");
+				assertTrue(fe.exists());
+				assertEquals(42, fe.getId());
+			}
+			PoolStats stats = openml.getConnectionPoolStatistics();
+			// all requests were done sequentially over one kept-alive connection
+			assertEquals(0, stats.getLeased());
+			assertEquals(1, stats.getAvailable());
+			assertEquals(5, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testNoAutomaticRetries() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 ConnectionPool pool = new ConnectionPool(4, 2, 1000, 0, 1000, 1000, 1000)) {
+			// closes the connection without responding
+			server.handle("/api/v1/flow/exists/", exchange -> exchange.close());
+			try {
+				pool.getHttpClient().execute(new HttpGet(server.getUrl() + "api/v1/flow/exists/")).close();
+				fail("Should have thrown an exception");
+			} catch (IOException e) {}
+			// the client itself does not retry, only the RetryPolicy of the connector does
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testSharedPool() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 ConnectionPool pool = new ConnectionPool(4, 2, 1000, 0, 1000, 1000, 1000)) {
+			server.respond("/api/v1/flow/exists/", 200, FLOW_EXISTS);
+			OpenmlConnector first = new OpenmlConnector(server.getUrl(), "abc");
+			OpenmlConnector second = new OpenmlConnector(server.getUrl(), "abc");
+			first.setConnectionPool(pool);
+			second.setConnectionPool(pool);
+
+			first.flowExists("weka.J48", "1.0");
+			second.flowExists("weka.J48", "1.0");
+			// closing a connector does not close a pool it does not own
+			first.close();
+			second.flowExists("weka.J48", "1.0");
+			assertEquals(4, pool.getStatistics().getMax());
+			assertEquals(1, pool.getStatistics().getAvailable());
+		}
+	}
+}
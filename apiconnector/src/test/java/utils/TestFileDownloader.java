@@ -0,0 +1,285 @@
+package utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.ConnectionPool;
+import org.openml.apiconnector.io.FileDownloader;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.settings.Settings;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestFileDownloader extends BaseTestFramework {
+
+	private static final String PATH = "/data/v1/download/61/iris.arff";
+
+	private volatile byte[] content = new byte[3 * 1024 * 1024 + 17];
+	private volatile String etag = "\"v1\"";
+	private final List<String> ranges = new CopyOnWriteArrayList<String>();
+	private final List<String> ifRanges = new CopyOnWriteArrayList<String>();
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		new Random(42).nextBytes(content);
+		directory = Files.createTempDirectory("openml-cache").toFile();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.DOWNLOAD_PARALLEL_CONNECTIONS = 1;
+		Settings.DOWNLOAD_CHUNK_SIZE = 16L * 1024 * 1024;
+		FileDownloader.setDownloadListener(null);
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// serves the content, honouring range requests when supported
+	private void serve(HttpExchange exchange, boolean supportRanges, int truncateAt) throws IOException {
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		ranges.add(String.valueOf(range));
+		ifRanges.add(String.valueOf(ifRange));
+		byte[] content = this.content;
+		exchange.getResponseHeaders().add("ETag", etag);
+		int offset = 0;
+		int end = content.length;
+		int code = 200;
+		// a range of another version is not sent
+		if (supportRanges && range != null && (ifRange == null || ifRange.equals(etag))) {
+			offset = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+			if (!range.endsWith("-")) {
+				end = Math.min(Integer.parseInt(range.substring(range.indexOf('-') + 1)) + 1, content.length);
+			}
+			exchange.getResponseHeaders().add("Content-Range", "bytes " + offset + "-" + (end - 1) + "/" + content.length);
+			code = 206;
+		}
+		exchange.sendResponseHeaders(code, end - offset);
+		OutputStream os = exchange.getResponseBody();
+		try {
+			os.write(content, offset, (truncateAt > 0 ? truncateAt : end) - offset);
+			os.close();
+		} catch (IOException e) {
+			// truncated on purpose; the rest never arrives, until the client gives up
+		}
+	}
+
+	@Test
+	public void testResumePartFile() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, true, 0));
+			URL url = new URL(server.getUrl() + PATH.substring(1));
+			File cachedData = HttpCacheController.getCacheLocation(url, "datasets/61/dataset.arff");
+			File part = new File(cachedData.getAbsolutePath() + FileDownloader.PART_SUFFIX);
+			part.getParentFile().mkdirs();
+			// left behind by an interrupted download
+			Files.write(part.toPath(), Arrays.copyOf(content, 1024 * 1024));
+			File validator = new File(part.getAbsolutePath() + FileDownloader.VALIDATOR_SUFFIX);
+			Files.write(validator.toPath(), etag.getBytes());
+
+			File file = HttpCacheController.getCachedFileFromUrl(url, "datasets/61/dataset.arff");
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(Arrays.asList("bytes=1048576-"), ranges);
+			assertEquals(Arrays.asList(etag), ifRanges);
+			assertFalse(part.exists());
+			assertFalse(validator.exists());
+		}
+	}
+
+	@Test
+	public void testResumeChangedFile() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, true, 0));
+			URL url = new URL(server.getUrl() + PATH.substring(1));
+			File cachedData = HttpCacheController.getCacheLocation(url, "datasets/61/dataset.arff");
+			File part = new File(cachedData.getAbsolutePath() + FileDownloader.PART_SUFFIX);
+			part.getParentFile().mkdirs();
+			// of a previous version
+			Files.write(part.toPath(), new byte[1024 * 1024]);
+			Files.write(new File(part.getAbsolutePath() + FileDownloader.VALIDATOR_SUFFIX).toPath(), "\"v0\"".getBytes());
+
+			File file = HttpCacheController.getCachedFileFromUrl(url, "datasets/61/dataset.arff");
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(Arrays.asList("bytes=1048576-"), ranges);
+			assertEquals(Arrays.asList("\"v0\""), ifRanges);
+		}
+	}
+
+	@Test
+	public void testResumeWithoutValidator() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, true, 0));
+			URL url = new URL(server.getUrl() + PATH.substring(1));
+			File cachedData = HttpCacheController.getCacheLocation(url, "datasets/61/dataset.arff");
+			File part = new File(cachedData.getAbsolutePath() + FileDownloader.PART_SUFFIX);
+			part.getParentFile().mkdirs();
+			Files.write(part.toPath(), new byte[1024 * 1024]);
+
+			// can not tell whether it is of the current version
+			File file = HttpCacheController.getCachedFileFromUrl(url, "datasets/61/dataset.arff");
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(Arrays.asList("null"), ranges);
+		}
+	}
+
+	@Test
+	public void testRangeNotSupported() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, false, 0));
+			URL url = new URL(server.getUrl() + PATH.substring(1));
+			File cachedData = HttpCacheController.getCacheLocation(url, "datasets/61/dataset.arff");
+			File part = new File(cachedData.getAbsolutePath() + FileDownloader.PART_SUFFIX);
+			part.getParentFile().mkdirs();
+			Files.write(part.toPath(), new byte[] {1, 2, 3});
+
+			File file = HttpCacheController.getCachedFileFromUrl(url, "datasets/61/dataset.arff");
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testResumeAfterDroppedConnection() throws Exception {
+		AtomicInteger requests = new AtomicInteger();
+		AtomicLong lastProgress = new AtomicLong();
+		FileDownloader.setDownloadListener((url, transferred, total, bytesPerSecond) -> {
+			assertEquals(content.length, total);
+			lastProgress.set(transferred);
+		});
+		try (LocalHttpServer server = new LocalHttpServer();
+			 ConnectionPool pool = new ConnectionPool(4, 4, 30000, 0, 1000, 500, 1000)) {
+			// the first response stalls halfway
+			server.handle(PATH, exchange -> serve(exchange, true, requests.getAndIncrement() == 0 ? content.length / 2 : 0));
+			File file = new File(directory, "dataset.arff");
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			FileDownloader.download(pool.getHttpClient(), new URL(server.getUrl() + PATH.substring(1)), file, false, digest);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), digest.digest());
+			assertEquals(2, server.getRequestCount());
+			assertEquals("null", ranges.get(0));
+			assertEquals(etag, ifRanges.get(1));
+			assertEquals(content.length, lastProgress.get());
+		}
+	}
+
+	@Test
+	public void testParallelDownload() throws Exception {
+		Settings.DOWNLOAD_PARALLEL_CONNECTIONS = 4;
+		Settings.DOWNLOAD_CHUNK_SIZE = 256 * 1024;
+		AtomicLong lastProgress = new AtomicLong();
+		FileDownloader.setDownloadListener((url, transferred, total, bytesPerSecond) -> lastProgress.accumulateAndGet(transferred, Math::max));
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, true, 0));
+			File file = new File(directory, "dataset.arff");
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			FileDownloader.download(ConnectionPool.getDefault().getHttpClient(), new URL(server.getUrl() + PATH.substring(1)), file, false, digest);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), digest.digest());
+			// 3 MB and 17 bytes, in chunks of 256 KB
+			assertEquals(13, server.getRequestCount());
+			assertTrue(ranges.contains("bytes=0-262143"));
+			assertTrue(ranges.contains("bytes=3145728-3145744"));
+			assertEquals(content.length, lastProgress.get());
+		}
+	}
+
+	@Test
+	public void testParallelFileChanged() throws Exception {
+		Settings.DOWNLOAD_PARALLEL_CONNECTIONS = 4;
+		Settings.DOWNLOAD_CHUNK_SIZE = 256 * 1024;
+		byte[] changed = new byte[content.length + 100];
+		new Random(43).nextBytes(changed);
+		AtomicInteger requests = new AtomicInteger();
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> {
+				// changes right after the first chunk was requested
+				if (requests.getAndIncrement() == 1) {
+					content = changed;
+					etag = "\"v2\"";
+				}
+				serve(exchange, true, 0);
+			});
+			File file = new File(directory, "dataset.arff");
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			FileDownloader.download(ConnectionPool.getDefault().getHttpClient(), new URL(server.getUrl() + PATH.substring(1)), file, false, digest);
+			assertArrayEquals(changed, Files.readAllBytes(file.toPath()));
+			assertArrayEquals(MessageDigest.getInstance("MD5").digest(changed), digest.digest());
+			// the other chunks were tied to the version of the first
+			assertEquals("null", ifRanges.get(0));
+			assertEquals("\"v1\"", ifRanges.get(1));
+			// and the download started over as a single stream
+			assertEquals("null", ranges.get(ranges.size() - 1));
+		}
+	}
+
+	@Test
+	public void testParallelRangeNotSupported() throws Exception {
+		Settings.DOWNLOAD_PARALLEL_CONNECTIONS = 4;
+		Settings.DOWNLOAD_CHUNK_SIZE = 256 * 1024;
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> serve(exchange, false, 0));
+			File file = new File(directory, "dataset.arff");
+			FileDownloader.download(ConnectionPool.getDefault().getHttpClient(), new URL(server.getUrl() + PATH.substring(1)), file, false);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testParallelChunkFails() throws Exception {
+		Settings.DOWNLOAD_PARALLEL_CONNECTIONS = 4;
+		Settings.DOWNLOAD_CHUNK_SIZE = 1024 * 1024;
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle(PATH, exchange -> {
+				if ("bytes=2097152-3145727".equals(exchange.getRequestHeaders().getFirst("Range"))) {
+					exchange.sendResponseHeaders(500, -1);
+					exchange.close();
+				} else {
+					serve(exchange, true, 0);
+				}
+			});
+			File file = new File(directory, "dataset.arff");
+			try {
+				FileDownloader.download(ConnectionPool.getDefault().getHttpClient(), new URL(server.getUrl() + PATH.substring(1)), file, false);
+				fail("Should have thrown an exception");
+			} catch (HttpResponseException e) {
+				assertEquals(500, e.getStatusCode());
+			}
+			// what was downloaded contiguously can be resumed
+			assertEquals(2 * 1024 * 1024, file.length());
+			assertArrayEquals(Arrays.copyOf(content, 2 * 1024 * 1024), Files.readAllBytes(file.toPath()));
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.ApiException;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Flow;
+import org.openml.apiconnector.xml.Run;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestFlowIdCache extends BaseTestFramework {
+
+	private static final String OML = "xmlns:oml=\"http://openml.org/openml\"";
+	private static final String EXISTS = "<oml:flow_exists " + OML + "><oml:exists>%s</oml:exists><oml:id>%d</oml:id></oml:flow_exists>";
+	private static final String FLOW = "<oml:flow " + OML + "><oml:id>42</oml:id><oml:name>moa.HoeffdingTree</oml:name>" +
+		"<oml:external_version>1.0</oml:external_version></oml:flow>";
+	private static final String ERROR = "<oml:error " + OML + "><oml:code>%d</oml:code><oml:message>%s</oml:message></oml:error>";
+
+	private final AtomicBoolean deleted = new AtomicBoolean();
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// flow 42 exists (until deleted), others do not; uploads get id 43
+	private void serveFlows(LocalHttpServer server) {
+		server.handle("/api/v1/flow", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String body;
+			int code = 200;
+			if (path.startsWith("/api/v1/flow/exists/")) {
+				boolean exists = path.contains("HoeffdingTree") && !deleted.get();
+				body = String.format(EXISTS, exists, exists ? 42 : -1);
+			} else if (path.endsWith("/tag") || path.endsWith("/untag")) {
+				exchange.getRequestBody().readAllBytes();
+				String element = path.endsWith("/tag") ? "oml:flow_tag" : "oml:flow_untag";
+				body = "<" + element + " " + OML + "><oml:id>42</oml:id></" + element + ">";
+			} else if (exchange.getRequestMethod().equals("POST")) {
+				exchange.getRequestBody().readAllBytes();
+				body = "<oml:upload_flow " + OML + "><oml:id>43</oml:id></oml:upload_flow>";
+			} else if (exchange.getRequestMethod().equals("DELETE")) {
+				body = "<oml:flow_delete " + OML + "><oml:id>43</oml:id></oml:flow_delete>";
+			} else if (deleted.get()) {
+				code = 412;
+				body = String.format(ERROR, 181, "Unknown flow");
+			} else {
+				body = FLOW;
+			}
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(code, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	@Test
+	public void testFlowExists() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveFlows(server);
+			assertEquals(42, openml.flowExists("moa.HoeffdingTree", "1.0").getId());
+			assertEquals(1, server.getRequestCount());
+			try (OpenmlConnector other = new OpenmlConnector(server.getUrl(), "abc")) {
+				assertTrue(other.flowExists("moa.HoeffdingTree", "1.0").exists());
+			}
+			assertEquals(1, server.getRequestCount());
+			File ids = HttpCacheController.getCacheLocation(new URL(server.getUrl()), "flows/ids.properties");
+			assertTrue(FileUtils.readFileToString(ids).contains("=42"));
+
+			// flows that do not exist (yet) are asked every time
+			assertFalse(openml.flowExists("moa.NaiveBayes", "1.0").exists());
+			assertFalse(openml.flowExists("moa.NaiveBayes", "1.0").exists());
+			assertEquals(3, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testUploadAndDelete() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveFlows(server);
+			Flow flow = new Flow("moa.NaiveBayes", "moa.NaiveBayes", "2.0", "Naive Bayes", "English", "moa_2018.6.0");
+			assertEquals(43, openml.flowUpload(flow));
+			assertEquals(43, openml.flowExists("moa.NaiveBayes", "2.0").getId());
+			assertEquals(1, server.getRequestCount());
+
+			openml.flowDelete(43);
+			assertFalse(openml.flowExists("moa.NaiveBayes", "2.0").exists());
+			assertEquals(3, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testDeletedOnServer() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveFlows(server);
+			server.handle("/api/v1/run", exchange -> {
+				exchange.getRequestBody().readAllBytes();
+				byte[] bytes = String.format(ERROR, 203, "Unknown flow").getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(412, bytes.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(bytes);
+				os.close();
+			});
+			assertEquals(42, openml.flowExists("moa.HoeffdingTree", "1.0").getId());
+			// deleted by someone else
+			deleted.set(true);
+			assertEquals(42, openml.flowExists("moa.HoeffdingTree", "1.0").getId());
+			assertEquals(1, server.getRequestCount());
+
+			// the server rejects a run of the flow, which is checked and forgotten
+			File predictions = Files.createTempFile(directory.toPath(), "predictions", ".arff").toFile();
+			try {
+				openml.runUpload(new Run(1, null, 42, "setup", null, null), Map.of("predictions", predictions));
+				fail("Run of a deleted flow was accepted");
+			} catch (ApiException e) {
+				assertEquals(203, e.getCode());
+			}
+			assertEquals(3, server.getRequestCount());
+			assertFalse(openml.flowExists("moa.HoeffdingTree", "1.0").exists());
+			assertEquals(4, server.getRequestCount());
+
+			// as is a flow that can not be obtained
+			deleted.set(false);
+			assertTrue(openml.flowExists("moa.HoeffdingTree", "1.0").exists());
+			deleted.set(true);
+			try {
+				openml.flowGet(42);
+				fail("Deleted flow was obtained");
+			} catch (ApiException e) {
+				assertEquals(181, e.getCode());
+			}
+			assertFalse(openml.flowExists("moa.HoeffdingTree", "1.0").exists());
+			assertEquals(7, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testFlowGet() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveFlows(server);
+			assertEquals("moa.HoeffdingTree", openml.flowGet(42).getName());
+			assertEquals("moa.HoeffdingTree", openml.flowGet(42).getName());
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testChangesRemoveCachedFlow() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveFlows(server);
+			openml.flowGet(42);
+			openml.flowTag(42, "study_1");
+			// the tags changed, so the flow is obtained again (and cached)
+			openml.flowGet(42);
+			openml.flowGet(42);
+			assertEquals(3, server.getRequestCount());
+			openml.flowUntag(42, "study_1");
+			openml.flowGet(42);
+			assertEquals(5, server.getRequestCount());
+			openml.flowDelete(42);
+			File cached = HttpCacheController.getCacheLocation(new URL(server.getUrl()), "flows/42");
+			assertEquals(0, cached.list().length);
+			openml.flowGet(42);
+			assertEquals(7, server.getRequestCount());
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.xml.EvaluationList.Evaluation;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestPagedList extends BaseTestFramework {
+
+	private static final String ERROR = "<oml:error xmlns:oml=\"http://openml.org/openml\"><oml:code>542</oml:code><oml:message>No results</oml:message></oml:error>";
+	private static final Pattern PAGE = Pattern.compile("/limit/(\\d+)/offset/(\\d+)");
+
+	private static String evaluations(int from, int to) {
+		StringBuilder sb = new StringBuilder("<oml:evaluations xmlns:oml=\"http://openml.org/openml\">\n");
+		for (int i = from; i < to; ++i) {
+			sb.append("<oml:evaluation><oml:run_id>" + i + "</oml:run_id><oml:task_id>59</oml:task_id>");
+			sb.append("<oml:setup_id>1</oml:setup_id><oml:flow_id>100</oml:flow_id><oml:function>predictive_accuracy</oml:function>");
+			sb.append("<oml:upload_time>2014-01-01 00:00:00</oml:upload_time><oml:value>0.5</oml:value></oml:evaluation>\n");
+		}
+		return sb.append("</oml:evaluations>\n").toString();
+	}
+
+	private static void servePages(LocalHttpServer server, int size, AtomicInteger concurrent, AtomicInteger maxConcurrent) {
+		server.handle("/api/v1/evaluation/list/", exchange -> {
+			maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {}
+			Matcher matcher = PAGE.matcher(exchange.getRequestURI().getPath());
+			matcher.find();
+			int limit = Integer.parseInt(matcher.group(1));
+			int offset = Integer.parseInt(matcher.group(2));
+			String body = offset >= size ? ERROR : evaluations(offset, Math.min(size, offset + limit));
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			concurrent.decrementAndGet();
+			exchange.sendResponseHeaders(offset >= size ? 412 : 200, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	@Test
+	public void testPagedEvaluations() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			servePages(server, 2500, new AtomicInteger(), new AtomicInteger());
+			try (Stream<Evaluation> stream = openml.evaluationListPaged(Arrays.asList(59), null, null, 1000)) {
+				List<Integer> runIds = stream.map(Evaluation::getRun_id).collect(Collectors.toList());
+				assertEquals(2500, runIds.size());
+				for (int i = 0; i < runIds.size(); ++i) {
+					assertEquals(i, (int) runIds.get(i));
+				}
+			}
+			// the last page is not full, so no further pages are requested
+			assertEquals(3, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testExactMultipleOfPageSize() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			servePages(server, 200, new AtomicInteger(), new AtomicInteger());
+			try (Stream<Evaluation> stream = openml.evaluationListPaged(Arrays.asList(59), null, null, 100)) {
+				assertEquals(200, stream.count());
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentPagesWithTotal() throws Exception {
+		AtomicInteger maxConcurrent = new AtomicInteger();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			servePages(server, 1000, new AtomicInteger(), maxConcurrent);
+			try (Stream<Evaluation> stream = openml.evaluationListPaged(Arrays.asList(59), null, null, 100, 4, 1000)) {
+				List<Integer> runIds = stream.map(Evaluation::getRun_id).collect(Collectors.toList());
+				assertEquals(1000, runIds.size());
+				for (int i = 0; i < runIds.size(); ++i) {
+					assertEquals(i, (int) runIds.get(i));
+				}
+			}
+			// with a known total, no page beyond the end is requested
+			assertEquals(10, server.getRequestCount());
+			assertTrue(maxConcurrent.get() > 1);
+			assertEquals(0, openml.getConnectionPoolStatistics().getLeased());
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openml.apiconnector.io.AdaptiveConcurrencyLimit;
+import org.openml.apiconnector.io.ConnectionPool;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.RateLimiter;
+import org.openml.apiconnector.settings.Settings;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestRateLimiter extends BaseTestFramework {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@After
+	public void cleanUp() {
+		Settings.HTTP_RATE_LIMIT = 0;
+		Settings.HTTP_RATE_LIMIT_BURST = 10;
+		Settings.HTTP_LIMITS_SHARED = false;
+		Settings.HTTP_ADAPTIVE_CONCURRENCY = false;
+	}
+
+	@Test
+	public void testBurstThenRate() throws Exception {
+		RateLimiter limiter = new RateLimiter(20, 5);
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 5; ++i) {
+			limiter.acquire();
+		}
+		assertTrue(System.currentTimeMillis() - start < 100);
+		for (int i = 0; i < 10; ++i) {
+			limiter.acquire();
+		}
+		// 10 requests at 20 per second
+		assertTrue(System.currentTimeMillis() - start >= 450);
+	}
+
+	@Test
+	public void testAdditiveIncrease() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 4, 2.0);
+		// 2.5, 2.9, 3.24
+		for (int i = 0; i < 3; ++i) {
+			limit.acquire();
+			limit.release("task", 10 * MS, false);
+		}
+		assertEquals(3, limit.getLimit());
+		for (int i = 0; i < 100; ++i) {
+			limit.acquire();
+			limit.release("task", 10 * MS, false);
+		}
+		assertEquals(4, limit.getLimit());
+		assertEquals(0, limit.getInFlight());
+	}
+
+	@Test
+	public void testMultiplicativeDecrease() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 1, 16, 2.0);
+		for (int i = 0; i < 4; ++i) {
+			limit.acquire();
+		}
+		Thread.sleep(5);
+		// failures of requests that were in flight together count once
+		for (int i = 0; i < 4; ++i) {
+			limit.release("task", MS, true);
+		}
+		assertEquals(8, limit.getLimit());
+		Thread.sleep(5);
+		limit.acquire();
+		limit.release("task", MS, true);
+		assertEquals(4, limit.getLimit());
+	}
+
+	@Test
+	public void testSlowResponses() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 16, 2.0);
+		for (int i = 0; i < 10; ++i) {
+			limit.acquire();
+			limit.release("run/list", 100 * MS, false);
+			limit.acquire();
+			limit.release("task", MS, false);
+		}
+		int grown = limit.getLimit();
+		assertTrue(grown > 8);
+		// usual for one endpoint, slow for another
+		Thread.sleep(20);
+		limit.acquire();
+		limit.release("run/list", 10 * MS, false);
+		assertTrue(limit.getLimit() >= grown);
+		grown = limit.getLimit();
+		limit.acquire();
+		limit.release("task", 10 * MS, false);
+		assertEquals(grown / 2, limit.getLimit());
+	}
+
+	@Test
+	public void testWaitsForLimit() throws Exception {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, 2.0);
+		limit.acquire();
+		Thread other = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {}
+			limit.release("task", MS, false);
+		});
+		long start = System.currentTimeMillis();
+		other.start();
+		limit.acquire();
+		assertTrue(System.currentTimeMillis() - start >= 150);
+		assertEquals(1, limit.getInFlight());
+	}
+
+	@Test
+	public void testConnectorRateLimit() throws Exception {
+		Settings.HTTP_RATE_LIMIT = 10;
+		Settings.HTTP_RATE_LIMIT_BURST = 1;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/task/59", 200, TestCacheCodec.TASK);
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < 5; ++i) {
+				openml.taskGet(59);
+			}
+			assertTrue(System.currentTimeMillis() - start >= 350);
+			assertEquals(5, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testSharedLimits() throws Exception {
+		try (ConnectionPool first = new ConnectionPool(); ConnectionPool second = new ConnectionPool()) {
+			assertNull(first.getRateLimiter());
+			assertNull(first.getConcurrencyLimit());
+		}
+		Settings.HTTP_RATE_LIMIT = 10;
+		Settings.HTTP_ADAPTIVE_CONCURRENCY = true;
+		Settings.HTTP_LIMITS_SHARED = true;
+		try (ConnectionPool first = new ConnectionPool(); ConnectionPool second = new ConnectionPool()) {
+			assertSame(first.getRateLimiter(), second.getRateLimiter());
+			assertSame(first.getConcurrencyLimit(), second.getConcurrencyLimit());
+			assertEquals(Settings.HTTP_MAX_CONNECTIONS_PER_ROUTE / 2, first.getConcurrencyLimit().getLimit());
+		}
+	}
+}
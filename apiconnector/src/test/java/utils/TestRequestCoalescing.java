@@ -0,0 +1,145 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.HttpConnector;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.io.RetryPolicy;
+import org.openml.apiconnector.settings.Settings;
+
+import com.sun.net.httpserver.HttpHandler;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestRequestCoalescing extends BaseTestFramework {
+
+	private static final int THREADS = 8;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		executor.shutdownNow();
+		HttpConnector.setRetryPolicy(null);
+		Settings.HTTP_COALESCE_REQUESTS = true;
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// responds slowly, so that the requests of all threads overlap
+	private static HttpHandler slow(int code, String body) {
+		return exchange -> {
+			try {
+				Thread.sleep(300);
+			} catch (InterruptedException e) {}
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		};
+	}
+
+	private <T> List<Future<T>> concurrently(Callable<T> call) {
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (int i = 0; i < THREADS; ++i) {
+			futures.add(executor.submit(call));
+		}
+		return futures;
+	}
+
+	@Test
+	public void testSharedResponse() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", slow(200, TestCacheCodec.TASK));
+			List<Future<Object>> futures = concurrently(() -> openml.taskGet(59));
+			Object first = futures.get(0).get();
+			for (Future<Object> future : futures) {
+				assertSame(first, future.get());
+			}
+			assertEquals(1, server.getRequestCount());
+
+			// requests after it finished are done again
+			openml.taskGet(59);
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testSharedException() throws Exception {
+		HttpConnector.setRetryPolicy(new RetryPolicy(0, 10, 2000, false));
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", slow(503, ""));
+			List<Future<Object>> futures = concurrently(() -> openml.taskGet(59));
+			Throwable first = null;
+			for (Future<Object> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					first = first == null ? e.getCause() : first;
+					assertSame(first, e.getCause());
+				}
+			}
+			assertTrue(first != null);
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testSharedCacheMiss() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/data/features/61", slow(200, TestCacheCodec.features(10)));
+			List<Future<Object>> futures = concurrently(() -> openml.dataFeatures(61));
+			Object first = futures.get(0).get();
+			for (Future<Object> future : futures) {
+				assertSame(first, future.get());
+			}
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		Settings.HTTP_COALESCE_REQUESTS = false;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", slow(200, TestCacheCodec.TASK));
+			for (Future<?> future : concurrently(() -> openml.taskGet(59))) {
+				future.get();
+			}
+			assertEquals(THREADS, server.getRequestCount());
+		}
+	}
+}
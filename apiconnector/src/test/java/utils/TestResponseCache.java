@@ -0,0 +1,139 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.BinaryCacheCodec;
+import org.openml.apiconnector.io.CacheManager;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.OpenmlApiResponse;
+import org.openml.apiconnector.xml.Task;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestResponseCache extends BaseTestFramework {
+
+	private static final String TASK = "<oml:task xmlns:oml=\"http://openml.org/openml\"><oml:task_id>59</oml:task_id><oml:task_type>Supervised Classification</oml:task_type></oml:task>";
+
+	private final ResponseCache cache = ResponseCache.getInstance();
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		cache.clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		Settings.MEMORY_CACHE_MAX_ENTRIES = 1024;
+		Settings.MEMORY_CACHE_MAX_WEIGHT = 256L * 1024 * 1024;
+		Settings.MEMORY_CACHE_SOFT_REFERENCES = false;
+		Settings.CACHE_MAX_SIZE = 0;
+		cache.clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testLimits() {
+		Settings.MEMORY_CACHE_MAX_ENTRIES = 2;
+		Settings.MEMORY_CACHE_MAX_WEIGHT = 100;
+		OpenmlApiResponse a = new Task(1);
+		OpenmlApiResponse b = new Task(1);
+		OpenmlApiResponse c = new Task(1);
+		cache.put("a", a, 10);
+		cache.put("b", b, 10);
+		assertSame(a, cache.get("a"));
+		cache.put("c", c, 10);
+		// exceeds the entry limit, b is the least recently used
+		assertNull(cache.get("b"));
+		assertSame(a, cache.get("a"));
+		cache.put("b", b, 85);
+		// exceeds the weight limit
+		assertEquals(2, cache.getEntryCount());
+		assertEquals(95, cache.getWeight());
+		assertNull(cache.get("c"));
+		// heavier than the limit by itself
+		cache.put("d", new Task(1), 101);
+		assertNull(cache.get("d"));
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(2, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testSoftReferences() {
+		Settings.MEMORY_CACHE_SOFT_REFERENCES = true;
+		OpenmlApiResponse a = new Task(1);
+		cache.put("a", a, 10);
+		assertSame(a, cache.get("a"));
+	}
+
+	@Test
+	public void testServedFromMemory() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/task/59", 200, TASK);
+			Task first = openml.taskGet(59);
+			// the disk cache is not consulted anymore
+			FileUtils.cleanDirectory(directory);
+			Task second = openml.taskGet(59);
+			assertSame(first, second);
+			assertEquals(1, server.getRequestCount());
+			assertEquals(1, cache.getHitCount());
+		}
+	}
+
+	// the file the codec stored an entry in
+	private static File stored(OpenmlConnector openml, String cacheSuffix) throws Exception {
+		File location = HttpCacheController.getCacheLocation(new URL(openml.getApiUrl()), cacheSuffix);
+		if (CacheManager.getInstance().getValidationTime(location) >= 0) {
+			return location;
+		}
+		return new File(location.getPath() + BinaryCacheCodec.EXTENSION);
+	}
+
+	@Test
+	public void testFollowsDiskCache() throws Exception {
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			for (String id : new String[] {"59", "60", "61"}) {
+				server.respond("/api/v1/task/" + id, 200, TASK.replace("59", id));
+			}
+			openml.taskGet(59);
+			openml.taskGet(60);
+			// a hit in memory is an access of the disk entry, so 60 is the least recently used
+			openml.taskGet(59);
+			assertEquals(1, cache.getHitCount());
+			Settings.CACHE_MAX_SIZE = CacheManager.getInstance().getTotalSize() + 1;
+			openml.taskGet(61);
+			assertTrue(stored(openml, "tasks/59/task.xml").exists());
+			assertFalse(stored(openml, "tasks/60/task.xml").exists());
+
+			// evicted from disk, so from memory as well
+			assertEquals(2, cache.getEntryCount());
+			openml.taskGet(60);
+			assertEquals(4, server.getRequestCount());
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.entity.mime.MultipartEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.ConnectionPool;
+import org.openml.apiconnector.io.HttpConnector;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.RetryPolicy;
+import org.openml.apiconnector.io.RetryStatistics;
+import org.openml.apiconnector.xml.Task;
+
+import com.sun.net.httpserver.HttpHandler;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestRetryPolicy extends BaseTestFramework {
+
+	@Before
+	public void prepare() {
+		HttpConnector.setRetryPolicy(new RetryPolicy(3, 10, 2000, false));
+		RetryPolicy.resetStatistics();
+	}
+
+	@After
+	public void cleanUp() {
+		HttpConnector.setRetryPolicy(null);
+	}
+
+	// fails with the given status code (and Retry-After header) for the given number of requests
+	private static HttpHandler failing(int failures, int code, String retryAfter) {
+		AtomicInteger count = new AtomicInteger();
+		return exchange -> {
+			// closing the exchange with an unread body resets the connection
+			exchange.getRequestBody().readAllBytes();
+			if (count.getAndIncrement() < failures) {
+				if (retryAfter != null) {
+					exchange.getResponseHeaders().add("Retry-After", retryAfter);
+				}
+				exchange.sendResponseHeaders(code, -1);
+				exchange.close();
+				return;
+			}
+			byte[] bytes = TestCacheCodec.TASK.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		};
+	}
+
+	@Test
+	public void testRetryTransientErrors() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", failing(2, 503, null));
+			Task task = openml.taskGet(59);
+			assertEquals(59, (int) task.getTask_id());
+			assertEquals(3, server.getRequestCount());
+			RetryStatistics statistics = RetryPolicy.getStatistics().get("GET task");
+			assertEquals(1, statistics.getRequestCount());
+			assertEquals(2, statistics.getRetryCount());
+			assertEquals(1, statistics.getRecoveredCount());
+		}
+	}
+
+	@Test
+	public void testRetryAfter() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", failing(1, 429, "1"));
+			long start = System.currentTimeMillis();
+			openml.taskGet(59);
+			assertTrue(System.currentTimeMillis() - start >= 1000);
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testRetryAfterTooLong() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", failing(1, 503, "3600"));
+			try {
+				openml.taskGet(59);
+				fail("Should have thrown an exception");
+			} catch (Exception e) {}
+			assertEquals(1, server.getRequestCount());
+			assertEquals(1, RetryPolicy.getStatistics().get("GET task").getExhaustedCount());
+		}
+	}
+
+	@Test
+	public void testRetriesExhausted() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/task/59", failing(Integer.MAX_VALUE, 502, null));
+			try {
+				openml.taskGet(59);
+				fail("Should have thrown an exception");
+			} catch (Exception e) {}
+			assertEquals(4, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testPostsOnlyRetriedWhenEnabled() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer()) {
+			server.handle("/api/v1/run", failing(1, 503, null));
+			URL url = new URL(server.getUrl() + "api/v1/run");
+			try {
+				HttpConnector.doApiPostRequest(ConnectionPool.getDefault().getHttpClient(), url, new MultipartEntity(), "abc", 0);
+				fail("Should have thrown an exception");
+			} catch (Exception e) {}
+			assertEquals(1, server.getRequestCount());
+
+			HttpConnector.setRetryPolicy(new RetryPolicy(3, 10, 2000, true));
+			server.handle("/api/v1/flow", failing(1, 503, null));
+			HttpConnector.doApiPostRequest(ConnectionPool.getDefault().getHttpClient(), new URL(server.getUrl() + "api/v1/flow"), new MultipartEntity(), "abc", 0);
+			assertEquals(3, server.getRequestCount());
+
+			// the server might have processed it
+			server.handle("/api/v1/setup", failing(1, 502, null));
+			try {
+				HttpConnector.doApiPostRequest(ConnectionPool.getDefault().getHttpClient(), new URL(server.getUrl() + "api/v1/setup"), new MultipartEntity(), "abc", 0);
+				fail("Should have thrown an exception");
+			} catch (Exception e) {}
+			assertEquals(4, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testEndpoint() throws Exception {
+		assertEquals("task", RetryPolicy.getEndpoint(new URL("https://www.openml.org/api/v1/task/59").toURI()));
+		assertEquals("run/list", RetryPolicy.getEndpoint(new URL("https://www.openml.org/api/v1/run/list/task/59/limit/10").toURI()));
+		assertEquals("data/features", RetryPolicy.getEndpoint(new URL("https://www.openml.org/api/v1/xml/data/features/61").toURI()));
+		assertEquals("download", RetryPolicy.getEndpoint(new URL("https://www.openml.org/data/v1/download/61/iris.arff").toURI()));
+	}
+}
@@ -0,0 +1,203 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.io.CircuitBreaker;
+import org.openml.apiconnector.io.HttpConnector;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.RetryPolicy;
+import org.openml.apiconnector.io.RunOutbox;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Run;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestRunOutbox extends BaseTestFramework {
+
+	private static final String UPLOAD_RUN = "<oml:upload_run xmlns:oml=\"http://openml.org/openml\"><oml:run_id>%d</oml:run_id></oml:upload_run>";
+	private static final String ERROR = "<oml:error xmlns:oml=\"http://openml.org/openml\"><oml:code>205</oml:code><oml:message>Unknown flow</oml:message></oml:error>";
+
+	private final AtomicInteger failures = new AtomicInteger();
+	private final AtomicInteger uploads = new AtomicInteger();
+	private final AtomicBoolean rejecting = new AtomicBoolean();
+	private File directory;
+	private File predictions;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-outbox").toFile();
+		predictions = Conversion.stringToTempFile("@relation predictions\n@attribute row_id numeric\n@data\n1\n", "predictions", "arff");
+		HttpConnector.setRetryPolicy(new RetryPolicy(0, 10, 10, false));
+		Settings.OUTBOX_RETRY_DELAY = 50;
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		HttpConnector.setRetryPolicy(null);
+		CircuitBreaker.resetAll();
+		Settings.OUTBOX_RETRY_DELAY = 10000;
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private static Run run(int task_id) {
+		return new Run(task_id, null, 100, "setup", null, null);
+	}
+
+	// fails the first uploads with a server error, then assigns run ids
+	private void serveRuns(LocalHttpServer server, boolean reject) {
+		rejecting.set(reject);
+		server.handle("/api/v1/run/", exchange -> {
+			String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			assertTrue(request.contains("name=\"predictions\""));
+			int code = rejecting.get() ? 412 : failures.getAndDecrement() > 0 ? 503 : 200;
+			String body = code == 412 ? ERROR : code == 503 ? "" : String.format(UPLOAD_RUN, uploads.incrementAndGet());
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length == 0) {
+				// the test server closes the connection after an empty response, so it has to say so
+				exchange.getResponseHeaders().add("Connection", "close");
+			}
+			exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	@Test
+	public void testUploadOnce() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc");
+			 RunOutbox outbox = new RunOutbox(openml, directory)) {
+			serveRuns(server, false);
+			String first = outbox.enqueue(run(1), Map.of("predictions", predictions));
+			String second = outbox.enqueue(run(2), Map.of("predictions", predictions));
+			assertTrue(outbox.flush(5000));
+			assertTrue(outbox.getPending().isEmpty());
+			assertEquals(2, server.getRequestCount());
+			assertTrue(outbox.getRunId(first) + outbox.getRunId(second) == 3);
+
+			// the same run is uploaded once
+			assertEquals(first, outbox.enqueue(run(1), Map.of("predictions", predictions)));
+			assertTrue(outbox.flush(5000));
+			assertEquals(2, server.getRequestCount());
+			// only the log of uploaded runs remains
+			assertEquals(Arrays.asList("uploaded.log"), Arrays.asList(directory.list()));
+		}
+	}
+
+	@Test
+	public void testRetry() throws Exception {
+		failures.set(2);
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc");
+			 RunOutbox outbox = new RunOutbox(openml, directory)) {
+			serveRuns(server, false);
+			String id = outbox.enqueue(run(1), Map.of("predictions", predictions));
+			assertTrue(outbox.flush(5000));
+			assertEquals(1, (int) outbox.getRunId(id));
+			assertEquals(3, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		failures.set(Integer.MAX_VALUE);
+		Settings.OUTBOX_RETRY_DELAY = 60000;
+		String id;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveRuns(server, false);
+			try (RunOutbox outbox = new RunOutbox(openml, directory)) {
+				id = outbox.enqueue(run(1), Map.of("predictions", predictions));
+				while (server.getRequestCount() == 0) {
+					Thread.sleep(10);
+				}
+				assertEquals(Arrays.asList(id), outbox.getPending());
+			}
+			// the predictions are in the journal
+			predictions.delete();
+			failures.set(0);
+			try (RunOutbox outbox = new RunOutbox(openml, directory)) {
+				assertTrue(outbox.flush(5000));
+				assertEquals(1, (int) outbox.getRunId(id));
+			}
+			// and known as uploaded after reopening
+			try (RunOutbox outbox = new RunOutbox(openml, directory)) {
+				assertEquals(1, (int) outbox.getRunId(id));
+				assertTrue(outbox.getPending().isEmpty());
+			}
+		}
+	}
+
+	@Test
+	public void testRejected() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc");
+			 RunOutbox outbox = new RunOutbox(openml, directory)) {
+			serveRuns(server, true);
+			String id = outbox.enqueue(run(1), Map.of("predictions", predictions));
+			assertTrue(outbox.flush(5000));
+			assertNull(outbox.getRunId(id));
+			assertEquals("205 Unknown flow", outbox.getFailed().get(id));
+			assertEquals(1, server.getRequestCount());
+
+			// not uploaded again by enqueueing it, only when asked for
+			assertEquals(id, outbox.enqueue(run(1), Map.of("predictions", predictions)));
+			assertTrue(outbox.flush(5000));
+			assertEquals(1, server.getRequestCount());
+			rejecting.set(false);
+			assertTrue(outbox.retryFailed(id));
+			assertTrue(outbox.flush(5000));
+			assertEquals(1, (int) outbox.getRunId(id));
+			assertTrue(outbox.getFailed().isEmpty());
+			assertFalse(outbox.retryFailed(id));
+		}
+	}
+
+	@Test
+	public void testDiscard() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc");
+			 RunOutbox outbox = new RunOutbox(openml, directory)) {
+			serveRuns(server, true);
+			String rejected = outbox.enqueue(run(1), Map.of("predictions", predictions));
+			assertTrue(outbox.flush(5000));
+			assertTrue(outbox.discard(rejected));
+			assertTrue(outbox.getFailed().isEmpty());
+			assertFalse(outbox.discard(rejected));
+
+			// a run that waits for a retry
+			rejecting.set(false);
+			failures.set(Integer.MAX_VALUE);
+			Settings.OUTBOX_RETRY_DELAY = 60000;
+			String waiting = outbox.enqueue(run(2), Map.of("predictions", predictions));
+			while (server.getRequestCount() < 2) {
+				Thread.sleep(10);
+			}
+			// until the first attempt is done
+			while (!outbox.discard(waiting)) {
+				Thread.sleep(10);
+			}
+			assertTrue(outbox.getPending().isEmpty());
+			assertFalse(new File(directory, waiting).exists());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.openml.apiconnector.io.ApiException;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.xml.EvaluationList;
+import org.openml.apiconnector.xml.EvaluationList.Evaluation;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestStreamingList extends BaseTestFramework {
+
+	private static final String ERROR = "<oml:error xmlns:oml=\"http://openml.org/openml\"><oml:code>542</oml:code><oml:message>No results</oml:message></oml:error>";
+
+	private static String evaluations(int size) {
+		StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<oml:evaluations xmlns:oml=\"http://openml.org/openml\">\n");
+		for (int i = 0; i < size; ++i) {
+			sb.append("  <oml:evaluation>\n    <oml:run_id>" + i + "</oml:run_id>\n    <oml:task_id>59</oml:task_id>\n");
+			sb.append("    <oml:setup_id>" + (i % 7) + "</oml:setup_id>\n    <oml:flow_id>100</oml:flow_id>\n");
+			sb.append("    <oml:function>predictive_accuracy</oml:function>\n    <oml:upload_time>2014-01-01 00:00:00</oml:upload_time>\n");
+			sb.append("    <oml:value>0." + i + "</oml:value>\n  </oml:evaluation>\n");
+		}
+		return sb.append("</oml:evaluations>\n").toString();
+	}
+
+	@Test
+	public void testEvaluationListStream() throws Exception {
+		final int size = 5000;
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/evaluation/list/", 200, evaluations(size));
+
+			EvaluationList list = openml.evaluationList(Arrays.asList(59), null, "predictive_accuracy", null);
+			try (Stream<Evaluation> stream = openml.evaluationListStream(Arrays.asList(59), null, "predictive_accuracy", null)) {
+				Iterator<Evaluation> iterator = stream.iterator();
+				for (Evaluation expected : list.getEvaluations()) {
+					Evaluation actual = iterator.next();
+					assertEquals(expected.getRun_id(), actual.getRun_id());
+					assertEquals(expected.getSetup_id(), actual.getSetup_id());
+					assertEquals(expected.getValue(), actual.getValue(), 0.0);
+				}
+				assertEquals(false, iterator.hasNext());
+			}
+			assertEquals(size, list.getEvaluations().length);
+			assertEquals(0, openml.getConnectionPoolStatistics().getLeased());
+		}
+	}
+
+	@Test
+	public void testEarlyClose() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/evaluation/list/", 200, evaluations(20000));
+			try (Stream<Evaluation> stream = openml.evaluationListStream(Arrays.asList(59), null, null, null)) {
+				assertEquals(10, stream.limit(10).count());
+			}
+			assertEquals(0, openml.getConnectionPoolStatistics().getLeased());
+		}
+	}
+
+	@Test
+	public void testApiError() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.respond("/api/v1/evaluation/list/", 412, ERROR);
+			try {
+				openml.evaluationListStream(Arrays.asList(59), null, null, null);
+				fail("Should have thrown an exception");
+			} catch (ApiException e) {
+				assertEquals(542, e.getCode());
+			}
+			assertEquals(0, openml.getConnectionPoolStatistics().getLeased());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openml.apiconnector.io.HttpCacheController;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.ResponseCache;
+import org.openml.apiconnector.io.StudyPrefetcher;
+import org.openml.apiconnector.settings.Settings;
+import org.openml.apiconnector.xml.Study;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestStudyPrefetcher extends BaseTestFramework {
+
+	private static final String STUDY = "<oml:study xmlns:oml=\"http://openml.org/openml\"><oml:id>99</oml:id><oml:alias>suite</oml:alias>" +
+		"<oml:main_entity_type>task</oml:main_entity_type><oml:tasks><oml:task_id>1</oml:task_id><oml:task_id>2</oml:task_id>" +
+		"<oml:task_id>3</oml:task_id></oml:tasks></oml:study>";
+	private static final String DATA = "<oml:data_set_description xmlns:oml=\"http://openml.org/openml\"><oml:id>%d</oml:id>" +
+		"<oml:name>data%d</oml:name><oml:file_id>%d</oml:file_id></oml:data_set_description>";
+	private static final String QUALITIES = "<oml:data_qualities xmlns:oml=\"http://openml.org/openml\"><oml:quality>" +
+		"<oml:name>NumberOfInstances</oml:name><oml:value>150</oml:value></oml:quality></oml:data_qualities>";
+	private static final String ERROR = "<oml:error xmlns:oml=\"http://openml.org/openml\"><oml:code>362</oml:code>" +
+		"<oml:message>No qualities found</oml:message></oml:error>";
+
+	private final AtomicBoolean qualitiesAvailable = new AtomicBoolean(false);
+	private File directory;
+
+	@Before
+	public void prepare() throws Exception {
+		directory = Files.createTempDirectory("openml-cache").toFile();
+		Settings.CACHE_ALLOWED = true;
+		Settings.CACHE_DIRECTORY = directory.getAbsolutePath();
+		ResponseCache.getInstance().clear();
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		ResponseCache.getInstance().clear();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	// tasks 1 and 2 are on dataset 61, task 3 on dataset 62, which has no qualities
+	private void serveStudy(LocalHttpServer server) {
+		server.respond("/api/v1/study/suite", 200, STUDY);
+		for (int task_id = 1; task_id <= 3; ++task_id) {
+			String task = TestCacheCodec.TASK.replace("59", Integer.toString(task_id))
+					.replace("<oml:data_set_id>61", "<oml:data_set_id>" + (task_id < 3 ? 61 : 62))
+					.replace("https://www.openml.org/", server.getUrl());
+			server.respond("/api/v1/task/" + task_id, 200, task);
+			server.respond("/api_splits/get/" + task_id + "/", 200, "@relation splits\n@attribute fold numeric\n@data\n0\n");
+		}
+		for (int did = 61; did <= 62; ++did) {
+			server.respond("/api/v1/data/" + did, 200, String.format(DATA, did, did, did));
+			server.respond("/data/v1/download/" + did + "/", 200, "@relation data" + did + "\n@attribute a numeric\n@data\n1\n");
+			server.respond("/api/v1/data/features/" + did, 200, TestCacheCodec.features(3));
+		}
+		server.respond("/api/v1/data/qualities/61", 200, QUALITIES);
+		server.handle("/api/v1/data/qualities/62", exchange -> {
+			byte[] bytes = (qualitiesAvailable.get() ? QUALITIES : ERROR).getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(qualitiesAvailable.get() ? 200 : 412, bytes.length);
+			OutputStream os = exchange.getResponseBody();
+			os.write(bytes);
+			os.close();
+		});
+	}
+
+	@Test
+	public void testPrefetch() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveStudy(server);
+			List<String> items = new CopyOnWriteArrayList<String>();
+			StudyPrefetcher prefetcher = new StudyPrefetcher(openml, 4);
+			prefetcher.setListener((item, completed, total, error) -> {
+				assertTrue(completed <= total);
+				items.add(item);
+			});
+			StudyPrefetcher.Result result = prefetcher.prefetch("suite");
+			// 3 tasks and splits, 2 datasets with description, data, features and qualities
+			assertEquals(14, items.size());
+			assertEquals(13, result.getCompleted());
+			assertFalse(result.isComplete());
+			assertTrue(result.getErrors().containsKey("qualities 62"));
+			// dataset 61 is shared by two tasks
+			assertEquals(1 + 14, server.getRequestCount());
+
+			File dataset = HttpCacheController.getCacheLocation(new URL(server.getUrl()), "datasets/61/dataset.arff");
+			assertTrue(dataset.exists());
+
+			// runs afterwards do not need the server
+			openml.taskSplitsGet(openml.taskGet(2));
+			openml.datasetGet(openml.dataGet(62));
+			openml.dataQualitiesCached(61, null);
+			assertEquals(15, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			serveStudy(server);
+			Study study = openml.studyGet("suite", null);
+			StudyPrefetcher prefetcher = new StudyPrefetcher(openml);
+			prefetcher.prefetch(study);
+			int requests = server.getRequestCount();
+
+			// only what is missing is requested again
+			qualitiesAvailable.set(true);
+			StudyPrefetcher.Result result = prefetcher.prefetch(study);
+			assertTrue(result.isComplete());
+			assertEquals(14, result.getCompleted());
+			assertEquals(requests + 1, server.getRequestCount());
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.entity.mime.MultipartEntity;
+import org.junit.Test;
+import org.openml.apiconnector.io.OpenmlConnector;
+import org.openml.apiconnector.io.XmlBody;
+import org.openml.apiconnector.xml.Flow;
+
+import com.sun.net.httpserver.Headers;
+
+import testbase.BaseTestFramework;
+import testbase.LocalHttpServer;
+
+public class TestXmlBody extends BaseTestFramework {
+
+	private static final String UPLOAD_FLOW = "<oml:upload_flow xmlns:oml=\"http://openml.org/openml\"><oml:id>42</oml:id></oml:upload_flow>";
+
+	private static Flow flow() {
+		// non-ascii, to check the length is counted in bytes
+		return new Flow("openml.test.Flow", "openml.test.Flow", "1.0", "Flow for testing uploads (ünïcode)", "English", "Java_1.8");
+	}
+
+	@Test
+	public void testContentLength() throws Exception {
+		XmlBody body = new XmlBody(flow(), "flow.xml");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		body.writeTo(out);
+		assertEquals(out.size(), body.getContentLength());
+		assertTrue(out.toString(StandardCharsets.UTF_8).contains("(ünïcode)"));
+		assertEquals(out.toString(StandardCharsets.UTF_8), body.toString());
+
+		// a known length makes the request repeatable, and thus retryable
+		MultipartEntity entity = new MultipartEntity();
+		entity.addPart("description", body);
+		assertTrue(entity.isRepeatable());
+		assertTrue(entity.getContentLength() > body.getContentLength());
+	}
+
+	@Test
+	public void testUpload() throws Exception {
+		AtomicReference<Headers> headers = new AtomicReference<Headers>();
+		AtomicReference<String> request = new AtomicReference<String>();
+		try (LocalHttpServer server = new LocalHttpServer();
+			 OpenmlConnector openml = new OpenmlConnector(server.getUrl(), "abc")) {
+			server.handle("/api/v1/flow", exchange -> {
+				headers.set(exchange.getRequestHeaders());
+				request.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+				byte[] bytes = UPLOAD_FLOW.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, bytes.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(bytes);
+				os.close();
+			});
+			assertEquals(42, openml.flowUpload(flow()));
+		}
+		// sent with a content length, rather than chunked
+		assertNull(headers.get().getFirst("Transfer-Encoding"));
+		assertEquals(request.get().getBytes(StandardCharsets.UTF_8).length, Integer.parseInt(headers.get().getFirst("Content-Length")));
+		assertTrue(request.get().contains("filename=\"flow.xml\""));
+		assertTrue(request.get().contains("<oml:name>openml.test.Flow</oml:name>"));
+	}
+}
@@ -0,0 +1,45 @@
+package utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openml.apiconnector.algorithms.Conversion;
+import org.openml.apiconnector.xml.Flow;
+import org.openml.apiconnector.xstream.XstreamXmlMapping;
+
+import com.thoughtworks.xstream.core.ClassLoaderReference;
+import com.thoughtworks.xstream.core.util.CompositeClassLoader;
+
+public class TestXstreamXmlMapping {
+
+	private static final String FLOW_FILE = "data/FilteredClassifier_RandomForest.xml";
+
+	@Test
+	public void testSharedInstance() {
+		assertSame(XstreamXmlMapping.getInstance(), XstreamXmlMapping.getInstance());
+		assertNotSame(XstreamXmlMapping.getInstance(), XstreamXmlMapping.getInstance(new ClassLoaderReference(new CompositeClassLoader())));
+	}
+
+	@Test
+	public void testConcurrentUnmarshalling() throws Exception {
+		final String xml = Conversion.fileToString(new File(FLOW_FILE));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Flow>> futures = new ArrayList<Future<Flow>>();
+		for (int i = 0; i < 64; ++i) {
+			futures.add(executor.submit(() -> (Flow) XstreamXmlMapping.getInstance().fromXML(xml)));
+		}
+		for (Future<Flow> future : futures) {
+			assertEquals("weka.FilteredClassifier_RandomForest", future.get().getName());
+		}
+		executor.shutdown();
+	}
+}